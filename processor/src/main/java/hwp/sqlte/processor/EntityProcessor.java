@@ -0,0 +1,328 @@
+package hwp.sqlte.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.*;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+
+/**
+ * 为 @Table 类生成 <code>类名_SqlteMapper</code>(结果集 -> 对象) 和 <code>类名_SqlteBinder</code>(对象 -> SQL 参数),
+ * 运行时 ClassInfo 会自动加载, 从而不再通过反射读写属性.
+ * <p>
+ * 属性的选取规则与 ClassInfo 一致: public, 非 static/final/transient, 没有 @Ignore.
+ * 需要转换的属性(@Column(json = true), @Convert, 以及非基本类型/包装类型/String)仍由运行时转换.
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+@SupportedAnnotationTypes("hwp.sqlte.Table")
+public class EntityProcessor extends AbstractProcessor {
+
+    private static final String COLUMN = "hwp.sqlte.Column";
+    private static final String IGNORE = "hwp.sqlte.Ignore";
+    private static final String CONVERT = "hwp.sqlte.Convert";
+
+    private static final Map<String, String> GETTERS = new HashMap<>();
+
+    static {
+        GETTERS.put("int", "getInt");
+        GETTERS.put("long", "getLong");
+        GETTERS.put("double", "getDouble");
+        GETTERS.put("float", "getFloat");
+        GETTERS.put("short", "getShort");
+        GETTERS.put("byte", "getByte");
+        GETTERS.put("boolean", "getBoolean");
+        GETTERS.put("java.lang.Integer", "getInt");
+        GETTERS.put("java.lang.Long", "getLong");
+        GETTERS.put("java.lang.Double", "getDouble");
+        GETTERS.put("java.lang.Float", "getFloat");
+        GETTERS.put("java.lang.Short", "getShort");
+        GETTERS.put("java.lang.Byte", "getByte");
+        GETTERS.put("java.lang.Boolean", "getBoolean");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    continue;
+                }
+                TypeElement type = (TypeElement) element;
+                if (!isAccessible(type)) {
+                    note("Skip private class: " + type.getQualifiedName(), type);
+                    continue;
+                }
+                try {
+                    List<VariableElement> fields = getFields(type);
+                    writeMapper(type, fields);
+                    writeBinder(type, fields);
+                } catch (IOException e) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.toString(), type);
+                }
+            }
+        }
+        return false;
+    }
+
+    private void writeMapper(TypeElement type, List<VariableElement> fields) throws IOException {
+        String entity = entityName(type);
+        String name = generatedName(type, "_SqlteMapper");
+        try (PrintWriter out = open(type, name)) {
+            out.println("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+            out.println("public final class " + simpleName(name) + " implements hwp.sqlte.EntityMapper<" + entity + "> {");
+            out.println();
+            writeFieldNames(out, fields);
+            out.println();
+            boolean instantiable = isInstantiable(type);
+            out.println("    @Override");
+            out.println("    public boolean canInstantiate() {");
+            out.println("        return " + instantiable + ";");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public " + entity + " newInstance() {");
+            if (instantiable) {
+                out.println("        return new " + entity + "();");
+            } else {
+                out.println("        throw new UnsupportedOperationException(\"Cannot instantiate " + entity + "\");");
+            }
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public void set(" + entity + " bean, int field, Object value) {");
+            out.println("        switch (field) {");
+            for (int i = 0; i < fields.size(); i++) {
+                VariableElement field = fields.get(i);
+                out.println("            case " + i + ":");
+                out.println("                bean." + field.getSimpleName() + " = (" + typeName(field.asType(), true) + ") value;");
+                out.println("                return;");
+            }
+            out.println("            default:");
+            out.println("                throw new IllegalArgumentException(\"field: \" + field);");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+            // 运行时只在列类型与属性类型一致时调用 read, 所以这里可以直接使用 getInt/getString 等
+            out.println("    @Override");
+            out.println("    public boolean read(java.sql.ResultSet rs, int column, " + entity + " bean, int field) throws java.sql.SQLException {");
+            out.println("        switch (field) {");
+            for (int i = 0; i < fields.size(); i++) {
+                VariableElement field = fields.get(i);
+                if (needConvert(field)) {
+                    continue;
+                }
+                String fieldType = typeName(field.asType(), false);
+                String getter = GETTERS.get(fieldType);
+                out.println("            case " + i + ": {");
+                if (getter != null) {
+                    String local = field.asType().getKind().isPrimitive() ? fieldType : typeName(processingEnv.getTypeUtils().unboxedType(field.asType()), false);
+                    out.println("                " + local + " v = rs." + getter + "(column);");
+                    out.println("                if (!rs.wasNull()) {");
+                } else {
+                    out.println("                String v = rs.getString(column);");
+                    out.println("                if (v != null) {");
+                }
+                out.println("                    bean." + field.getSimpleName() + " = v;");
+                out.println("                }");
+                out.println("                return true;");
+                out.println("            }");
+            }
+            out.println("            default:");
+            out.println("                return false;");
+            out.println("        }");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    private void writeBinder(TypeElement type, List<VariableElement> fields) throws IOException {
+        String entity = entityName(type);
+        String name = generatedName(type, "_SqlteBinder");
+        try (PrintWriter out = open(type, name)) {
+            out.println("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+            out.println("public final class " + simpleName(name) + " implements hwp.sqlte.EntityBinder<" + entity + "> {");
+            out.println();
+            writeFieldNames(out, fields);
+            out.println();
+            out.println("    @Override");
+            out.println("    public Object get(" + entity + " bean, int field) {");
+            out.println("        switch (field) {");
+            for (int i = 0; i < fields.size(); i++) {
+                out.println("            case " + i + ":");
+                out.println("                return bean." + fields.get(i).getSimpleName() + ";");
+            }
+            out.println("            default:");
+            out.println("                throw new IllegalArgumentException(\"field: \" + field);");
+            out.println("        }");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    private void writeFieldNames(PrintWriter out, List<VariableElement> fields) {
+        StringJoiner joiner = new StringJoiner(", ", "{", "}");
+        for (VariableElement field : fields) {
+            joiner.add("\"" + field.getSimpleName() + "\"");
+        }
+        out.println("    private static final String[] FIELDS = " + joiner + ";");
+        out.println();
+        out.println("    @Override");
+        out.println("    public String[] fields() {");
+        out.println("        return FIELDS.clone();");
+        out.println("    }");
+    }
+
+    private PrintWriter open(TypeElement type, String name) throws IOException {
+        PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(name, type).openWriter());
+        String pkg = packageName(type);
+        out.println("// Generated by sqlte-processor, do not edit");
+        if (!pkg.isEmpty()) {
+            out.println("package " + pkg + ";");
+        }
+        out.println();
+        return out;
+    }
+
+    /**
+     * 与 ClassInfo 一致: 包括父类的 public 属性, 同名属性以子类为准
+     */
+    private List<VariableElement> getFields(TypeElement type) {
+        List<VariableElement> fields = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        String pkg = packageName(type);
+        TypeElement current = type;
+        while (current != null) {
+            boolean accessible = current.getModifiers().contains(Modifier.PUBLIC) || packageName(current).equals(pkg);
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                // 子类的属性(包括非 public 的)会隐藏父类的同名属性
+                if (!names.add(field.getSimpleName().toString())) {
+                    continue;
+                }
+                Set<Modifier> modifiers = field.getModifiers();
+                if (!accessible || !modifiers.contains(Modifier.PUBLIC)
+                        || modifiers.contains(Modifier.STATIC)
+                        || modifiers.contains(Modifier.FINAL)
+                        || modifiers.contains(Modifier.TRANSIENT)
+                        || getAnnotation(field, IGNORE) != null) {
+                    continue;
+                }
+                fields.add(field);
+            }
+            TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+        return fields;
+    }
+
+    private boolean needConvert(VariableElement field) {
+        if (getAnnotation(field, CONVERT) != null) {
+            return true;
+        }
+        AnnotationMirror column = getAnnotation(field, COLUMN);
+        if (column != null) {
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : column.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("json") && Boolean.TRUE.equals(entry.getValue().getValue())) {
+                    return true;
+                }
+            }
+        }
+        String fieldType = typeName(field.asType(), false);
+        return !GETTERS.containsKey(fieldType) && !fieldType.equals("java.lang.String");
+    }
+
+    private static AnnotationMirror getAnnotation(Element element, String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(annotation)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private boolean isAccessible(TypeElement type) {
+        Element element = type;
+        while (element instanceof TypeElement) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            element = element.getEnclosingElement();
+        }
+        return true;
+    }
+
+    private boolean isInstantiable(TypeElement type) {
+        Set<Modifier> modifiers = type.getModifiers();
+        if (modifiers.contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        if (type.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC)) {
+            return false;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty()) {
+                return !constructor.getModifiers().contains(Modifier.PRIVATE);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 类型擦除后的类型名, 基本类型可以转为包装类型
+     */
+    private String typeName(TypeMirror type, boolean box) {
+        switch (type.getKind()) {
+            case DECLARED:
+                return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+            case ARRAY:
+                return typeName(((ArrayType) type).getComponentType(), false) + "[]";
+            case TYPEVAR:
+                return typeName(processingEnv.getTypeUtils().erasure(type), box);
+            default:
+                if (type.getKind().isPrimitive()) {
+                    if (box) {
+                        return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+                    }
+                    return type.getKind().name().toLowerCase(Locale.ROOT);
+                }
+                return processingEnv.getTypeUtils().erasure(type).toString();
+        }
+    }
+
+    private String entityName(TypeElement type) {
+        return type.getQualifiedName().toString();
+    }
+
+    /**
+     * 与运行时一致: 二进制类名中的 $ 替换为 _, 再加上后缀
+     */
+    private String generatedName(TypeElement type, String suffix) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString().replace('$', '_') + suffix;
+    }
+
+    private String packageName(TypeElement type) {
+        return processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+    }
+
+    private static String simpleName(String name) {
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+    private void note(String msg, Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, msg, element);
+    }
+
+}
@@ -0,0 +1,134 @@
+package hwp.sqlte;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * {@link SqlteTemplate} 的异步版本, 每个操作在 executor 中使用独立的连接执行, 可以同时发起多个互不依赖的查询:
+ * <pre>
+ * AsyncSqlte async = template.async();
+ * CompletableFuture&lt;User&gt; user = async.tryGet(User.class, userId);
+ * CompletableFuture&lt;List&lt;Order&gt;&gt; orders = async.list(Order.class, where -&gt; where.and("user_id=?", userId));
+ * CompletableFuture.allOf(user, orders).join();
+ * </pre>
+ * 默认的 executor 见 {@link Config#getAsyncExecutor()}: JDK 21+ 使用虚拟线程, 否则使用守护线程的缓存线程池.
+ * 并发数受连接池大小限制.
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public class AsyncSqlte {
+
+    private final SqlteTemplate template;
+    private final Executor executor;
+
+    AsyncSqlte(SqlteTemplate template, Executor executor) {
+        this.template = template;
+        this.executor = executor;
+    }
+
+    /**
+     * 在同一个连接上执行多个操作
+     */
+    public <R> CompletableFuture<R> run(Function<SqlConnection, R> function) {
+        return CompletableFuture.supplyAsync(() -> template.run(function), executor);
+    }
+
+    public CompletableFuture<SqlResultSet> query(String sql, Object... args) {
+        return run(conn -> conn.query(sql, args));
+    }
+
+    public CompletableFuture<SqlResultSet> query(Sql sql) {
+        return run(conn -> conn.query(sql));
+    }
+
+    public CompletableFuture<SqlResultSet> query(Consumer<SqlBuilder> consumer) {
+        return run(conn -> conn.query(consumer));
+    }
+
+    public <T> CompletableFuture<List<T>> list(Sql sql, Supplier<T> supplier) {
+        return run(conn -> conn.list(sql, supplier));
+    }
+
+    public <T> CompletableFuture<List<T>> list(Sql sql, Class<T> clazz) {
+        return run(conn -> conn.list(sql, clazz));
+    }
+
+    public <T> CompletableFuture<List<T>> list(Class<T> clazz, Consumer<Where> consumer) {
+        return run(conn -> conn.list(clazz, consumer));
+    }
+
+    public CompletableFuture<long[]> queryLongs(Sql sql) {
+        return run(conn -> conn.queryLongs(sql));
+    }
+
+    public CompletableFuture<Long> selectCount(String table, Where where) {
+        return run(conn -> conn.selectCount(table, where));
+    }
+
+    public <T> CompletableFuture<T> tryGet(Class<T> clazz, Object id) {
+        return run(conn -> conn.tryGet(clazz, id));
+    }
+
+    public <T> CompletableFuture<T> mustGet(Class<T> clazz, Object id) {
+        return run(conn -> conn.mustGet(clazz, id));
+    }
+
+    public CompletableFuture<Integer> executeUpdate(String sql, Object... args) {
+        return run(conn -> conn.executeUpdate(sql, args));
+    }
+
+    public CompletableFuture<Integer> executeUpdate(Consumer<SqlBuilder> consumer) {
+        return run(conn -> conn.executeUpdate(consumer));
+    }
+
+    public CompletableFuture<Void> insert(Object bean) {
+        return run(conn -> {
+            conn.insert(bean);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Boolean> update(Object bean) {
+        return run(conn -> conn.update(bean));
+    }
+
+    public CompletableFuture<Boolean> delete(Object bean) {
+        return run(conn -> conn.delete(bean));
+    }
+
+    public CompletableFuture<BatchUpdateResult> batchInsert(List<?> beans, String table) {
+        return run(conn -> conn.batchInsert(beans, table));
+    }
+
+    /**
+     * JDK 21+ 每个任务一个虚拟线程, 否则使用守护线程的缓存线程池
+     */
+    static Executor defaultExecutor() {
+        return DefaultExecutor.INSTANCE;
+    }
+
+    private static final class DefaultExecutor {
+        static final Executor INSTANCE = create();
+
+        private static Executor create() {
+            try {
+                return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                AtomicInteger counter = new AtomicInteger();
+                return Executors.newCachedThreadPool(r -> {
+                    Thread thread = new Thread(r, "sqlte-async-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+    }
+
+}
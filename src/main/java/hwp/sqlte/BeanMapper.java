@@ -4,8 +4,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
-import java.lang.reflect.Field;
-import java.util.Map;
 import java.util.function.Supplier;
 
 class BeanMapper<T> implements RowMapper<T> {
@@ -18,7 +16,15 @@ class BeanMapper<T> implements RowMapper<T> {
     }
 
     public BeanMapper(Class<T> clazz) {
-        this.supplier = () -> {
+        this.supplier = supplier(clazz);
+    }
+
+    static <T> Supplier<T> supplier(Class<T> clazz) {
+        EntityMapper<Object> mapper = ClassInfo.getClassInfo(clazz).getEntityMapper();
+        if (mapper != null && mapper.canInstantiate()) {
+            return () -> clazz.cast(mapper.newInstance());
+        }
+        return () -> {
             try {
                 return clazz.getDeclaredConstructor().newInstance();
             } catch (Exception e) {
@@ -28,54 +34,41 @@ class BeanMapper<T> implements RowMapper<T> {
     }
 
     static <T> T copy(Row row, T obj) throws SqlteException {
-        try {
-            ClassInfo info = ClassInfo.getClassInfo(obj.getClass());
-            for (Map.Entry<String, Field> entry : info.getColumnFieldMap().entrySet()) {
-                Object dbValue = row.getValue(entry.getKey());
-                Field field = entry.getValue();
-                if (dbValue != null) {
-                    // JSON对象转换
-                    if (dbValue instanceof String && !field.isEnumConstant()) {
-                        Column column = field.getAnnotation(Column.class);
-                        String _dbValue = (String) dbValue;
-                        //内置 JSON 转为对象
-                        if (column != null && column.json()) {
-                            JsonSerializer jsonSerializer = Config.getConfig().getJsonSerializer();
-                            Object decodeValue = jsonSerializer.fromJson(_dbValue, field.getType());
-                            field.set(obj, decodeValue);
-                            continue;
-                        }
-                    }
-                    // 自定义转换器
-                    Convert convert = field.getAnnotation(Convert.class);
-                    if (convert != null && dbValue instanceof Serializable) {
-                        Serializable _dbValue = (Serializable) dbValue;
-                        Converter<?, Serializable> converter = Helper.getConverter(convert.converter());
-                        field.set(obj, converter.recover(_dbValue));
-                        continue;
-                    }
-                    // JDBC返回的数据类型与类属性类型一致, 直接设置属性值
-                    if (dbValue.getClass() == field.getType() || field.getType().isInstance(dbValue)) {
-                        field.set(obj, dbValue);
-                        continue;
-                    }
-                    // JDBC返回的数据类型是String
-                    if (field.getType() == String.class) {
-                        entry.getValue().set(obj, dbValue.toString());
-                        continue;
-                    }
-                    // 否则转换
-                    ConversionService conversionService = Config.getConfig().getConversionService();
-                    if (conversionService.canConvert(dbValue.getClass(), field.getType())) {
-                        field.set(obj, conversionService.convert(dbValue, field.getType()));
-                    } else {
-                        logger.error("Cannot convert type {} to {}", dbValue.getClass(), field.getType());
-                    }
-                }
+        ClassInfo info = ClassInfo.getClassInfo(obj.getClass());
+        // 查询结果中的行: 按列位置直接映射
+        MappingPlan plan = row.mappingPlan(info);
+        if (plan != null) {
+            return plan.apply(row, obj);
+        }
+        for (FieldAccessor accessor : info.getAccessors()) {
+            Object dbValue = row.getValue(accessor.getColumn());
+            if (dbValue != null) {
+                setValue(accessor, obj, dbValue);
             }
-            return obj;
-        } catch (ReflectiveOperationException e) {
-            throw new SqlteException(e);
+        }
+        return obj;
+    }
+
+    static void setValue(FieldAccessor accessor, Object obj, Object dbValue) throws SqlteException {
+        //内置 JSON 转为对象
+        if (accessor.isJson() && dbValue instanceof String) {
+            JsonSerializer jsonSerializer = Config.getConfig().getJsonSerializer();
+            Object decodeValue = jsonSerializer.fromJson((String) dbValue, accessor.getType());
+            accessor.set(obj, decodeValue);
+            return;
+        }
+        // 自定义转换器
+        Converter<Object, Serializable> converter = accessor.getConverter();
+        if (converter != null && dbValue instanceof Serializable) {
+            accessor.set(obj, converter.recover((Serializable) dbValue));
+            return;
+        }
+        // 否则按类型转换
+        FieldAccessor.Route route = accessor.route(dbValue.getClass());
+        if (route.canConvert()) {
+            accessor.set(obj, route.convert(dbValue));
+        } else {
+            logger.error("Cannot convert type {} to {}", dbValue.getClass(), accessor.getType());
         }
     }
 
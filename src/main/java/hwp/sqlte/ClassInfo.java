@@ -1,15 +1,27 @@
 package hwp.sqlte;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Zero
  * Created on 2018/11/13.
  */
 class ClassInfo {
-    private static final Map<Class<?>, ClassInfo> map = new HashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(ClassInfo.class);
+
+    // 创建后不再修改, 按类缓存且不加锁
+    private static final ClassValue<ClassInfo> CLASS_INFO = new ClassValue<ClassInfo>() {
+        @Override
+        protected ClassInfo computeValue(Class<?> type) {
+            return new ClassInfo(type);
+        }
+    };
 
     private final Class<?> clazz;
     private String schema;
@@ -22,21 +34,31 @@ class ClassInfo {
     private String[] insertColumns;//排除自动生成的列
     private String[] updateColumns;
 
+    private FieldAccessor[] accessors;
+
+    // sqlte-processor 生成的代码, 不存在时为 null
+    private EntityMapper<Object> entityMapper;
+    private EntityBinder<Object> entityBinder;
+
     private final Map<Field, String> fieldColumnMap = new HashMap<>();
     private final Map<String, Field> columnFieldMap = new LinkedHashMap<>();
+    private final Map<String, FieldAccessor> columnAccessorMap = new LinkedHashMap<>();
+    private final Map<String, FieldAccessor> fieldAccessorMap = new HashMap<>();
+    private final Map<String, Integer> columnIndexMap = new HashMap<>();
+
+    // 列布局 -> 映射计划
+    private static final int MAX_MAPPING_PLANS = 64;
+    private final Map<List<Object>, MappingPlan> mappingPlans = new ConcurrentHashMap<>();
+
+    // 表名 -> CRUD 语句
+    private static final int MAX_ENTITY_SQLS = 16;
+    private EntitySql entitySql;
+    private final Map<String, EntitySql> entitySqls = new ConcurrentHashMap<>();
 
 //    private Map<String, Class<?>> typeMap = new HashMap<>();
 
     static ClassInfo getClassInfo(Class<?> clazz) {
-        ClassInfo info = map.get(clazz);
-        if (info != null) {
-            return info;
-        }
-        synchronized (map) {
-            info = new ClassInfo(clazz);
-            map.put(clazz, info);
-        }
-        return info;
+        return CLASS_INFO.get(clazz);
     }
 
     private ClassInfo(Class<?> clazz) {
@@ -50,6 +72,15 @@ class ClassInfo {
         List<String> autoGenerateColumnList = new ArrayList<>(2);
         List<String> updateColumnList = new ArrayList<>();
         List<String> insertColumnList = new ArrayList<>();
+        this.entityMapper = loadGenerated(clazz, "_SqlteMapper");
+        this.entityBinder = entityMapper == null ? null : loadGenerated(clazz, "_SqlteBinder");
+        Map<String, Integer> generatedFields = new HashMap<>();
+        if (entityMapper != null && entityBinder != null) {
+            String[] names = entityMapper.fields();
+            for (int i = 0; i < names.length; i++) {
+                generatedFields.put(names[i], i);
+            }
+        }
         Field[] fields = clazz.getFields();
         for (Field field : fields) {
             if (isIgnore(field)) {
@@ -64,6 +95,13 @@ class ClassInfo {
             }
             this.columnFieldMap.put(columnName, field);
             this.fieldColumnMap.put(field, columnName);
+            Integer generated = generatedFields.get(field.getName());
+            if (generated != null && field.getDeclaringClass() == declaringClass(field.getName())) {
+                this.columnAccessorMap.put(columnName, new FieldAccessor(field, columnName, entityMapper, entityBinder, generated));
+            } else {
+                this.columnAccessorMap.put(columnName, new FieldAccessor(field, columnName));
+            }
+            this.fieldAccessorMap.put(field.getName(), columnAccessorMap.get(columnName));
             Id id = field.getAnnotation(Id.class);
             if (id != null) {
                 pkColumnList.add(columnName);
@@ -84,9 +122,12 @@ class ClassInfo {
         Counter index = new Counter();
         this.columns = new String[columnFieldMap.size()];
         this.fields = new Field[columnFieldMap.size()];
+        this.accessors = new FieldAccessor[columnFieldMap.size()];
         columnFieldMap.forEach((column, field) -> {
             this.columns[index.get()] = column;
             this.fields[index.get()] = field;
+            this.accessors[index.get()] = columnAccessorMap.get(column);
+            this.columnIndexMap.put(column, index.get());
             index.add(1);
         });
         this.pkColumns = pkColumnList.toArray(new String[0]);
@@ -104,6 +145,37 @@ class ClassInfo {
         } else {
             this.fullTableName = this.tableName;
         }
+        this.entitySql = new EntitySql(this, fullTableName);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T loadGenerated(Class<?> clazz, String suffix) {
+        String name = clazz.getName().replace('$', '_') + suffix;
+        try {
+            Class<?> generated = Class.forName(name, true, clazz.getClassLoader());
+            return (T) generated.getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            logger.warn("Cannot load generated class {}, fallback to reflection", name, e);
+            return null;
+        }
+    }
+
+    // 子类与父类存在同名属性时, 生成的代码访问的是子类的属性
+    private Class<?> declaringClass(String fieldName) {
+        try {
+            return clazz.getField(fieldName).getDeclaringClass();
+        } catch (NoSuchFieldException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return sqlte-processor 生成的映射器, 不存在时返回 null
+     */
+    EntityMapper<Object> getEntityMapper() {
+        return entityMapper;
     }
 
     String getPKColumn() {// getPrimaryKeyColumn
@@ -129,6 +201,36 @@ class ClassInfo {
         return columnFieldMap.get(column);
     }
 
+    FieldAccessor getAccessor(String column) {
+        return columnAccessorMap.get(column);
+    }
+
+    /**
+     * @param fieldName 字段名
+     */
+    FieldAccessor getAccessorByField(String fieldName) {
+        return fieldAccessorMap.get(fieldName);
+    }
+
+    /**
+     * @return 与 {@link #getColumns()} 顺序一致
+     */
+    FieldAccessor[] getAccessors() {
+        return accessors;
+    }
+
+    /**
+     * @return 列在 {@link #getColumns()} 中的位置, 不存在时返回 -1
+     */
+    int indexOf(String column) {
+        Integer index = columnIndexMap.get(column);
+        return index == null ? -1 : index;
+    }
+
+    Class<?> getType() {
+        return clazz;
+    }
+
     String getColumn(Field field) {
         return fieldColumnMap.get(field);
     }
@@ -157,6 +259,36 @@ class ClassInfo {
         return autoGenerateColumns;
     }
 
+    /**
+     * @param table 表名, 为 null 时使用实体映射的表
+     */
+    EntitySql getEntitySql(String table) {
+        if (table == null || table.equals(fullTableName)) {
+            return entitySql;
+        }
+        EntitySql sql = entitySqls.get(table);
+        if (sql == null) {
+            sql = new EntitySql(this, table);
+            if (entitySqls.size() < MAX_ENTITY_SQLS) {
+                entitySqls.putIfAbsent(table, sql);
+            }
+        }
+        return sql;
+    }
+
+    MappingPlan getMappingPlan(ColumnIndex index) {
+        List<Object> layout = index.layout();
+        MappingPlan plan = mappingPlans.get(layout);
+        if (plan == null) {
+            plan = MappingPlan.compile(this, index);
+            // 动态拼接的列可能有很多种布局, 超出后不再缓存
+            if (mappingPlans.size() < MAX_MAPPING_PLANS) {
+                mappingPlans.putIfAbsent(layout, plan);
+            }
+        }
+        return plan;
+    }
+
     private boolean isIgnore(Field field) {
         return Modifier.isStatic(field.getModifiers())
                 || Modifier.isFinal(field.getModifiers())
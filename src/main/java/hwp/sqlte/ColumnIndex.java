@@ -0,0 +1,123 @@
+package hwp.sqlte;
+
+import java.io.Serializable;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+
+/**
+ * 结果集的列名索引, 同一个结果集中的所有 {@link Row} 共享同一个实例
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+final class ColumnIndex implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String[] names;
+    private final Map<String, Integer> positions;
+    // 有效列的位置, 存在同名列时以最后一列为准(与 HashMap#put 行为一致)
+    private final int[] slots;
+    // 列的 JDBC 类型({@link Types}), 不是来自查询结果时为 null
+    private final int[] types;
+
+    // 最近使用的映射计划, 同一个结果集通常只映射为一种类型
+    private transient volatile MappingPlan plan;
+
+    ColumnIndex(String[] names) {
+        this(names, null);
+    }
+
+    ColumnIndex(String[] names, int[] types) {
+        this.names = names;
+        this.types = types;
+        this.positions = new HashMap<>(Math.max(4, names.length * 4 / 3 + 1));
+        for (int i = 0; i < names.length; i++) {
+            positions.put(names[i], i);
+        }
+        int[] slots = new int[positions.size()];
+        int n = 0;
+        for (int i = 0; i < names.length; i++) {
+            if (positions.get(names[i]) == i) {
+                slots[n++] = i;
+            }
+        }
+        this.slots = slots;
+    }
+
+    static ColumnIndex from(ResultSetMetaData metaData, boolean lowerCase) throws SQLException {
+        int cols = metaData.getColumnCount();
+        String[] names = new String[cols];
+        int[] types = new int[cols];
+        for (int i = 1; i <= cols; i++) {
+            String label = metaData.getColumnLabel(i);
+            names[i - 1] = (lowerCase ? label.toLowerCase() : label).intern();
+            types[i - 1] = metaData.getColumnType(i);
+        }
+        return new ColumnIndex(names, types);
+    }
+
+    MappingPlan mappingPlan(ClassInfo info) {
+        MappingPlan p = plan;
+        if (p == null || p.getClassInfo() != info) {
+            p = info.getMappingPlan(this);
+            plan = p;
+        }
+        return p;
+    }
+
+    int indexOf(Object name) {
+        Integer i = positions.get(name);
+        return i == null ? -1 : i;
+    }
+
+    /**
+     * @return 列数(包括同名列)
+     */
+    int width() {
+        return names.length;
+    }
+
+    /**
+     * @return 去重后的列数
+     */
+    int size() {
+        return slots.length;
+    }
+
+    int slot(int i) {
+        return slots[i];
+    }
+
+    String name(int position) {
+        return names[position];
+    }
+
+    /**
+     * @return 列的 JDBC 类型, 未知时为 {@link Types#OTHER}
+     */
+    int type(int position) {
+        return types == null ? Types.OTHER : types[position];
+    }
+
+    /**
+     * @return 列名和类型, 用于缓存映射计划, 同名不同类型的列使用不同的计划
+     */
+    List<Object> layout() {
+        List<Object> layout = new ArrayList<>(types == null ? names.length : names.length * 2);
+        Collections.addAll(layout, (Object[]) names);
+        if (types != null) {
+            for (int type : types) {
+                layout.add(type);
+            }
+        }
+        return layout;
+    }
+
+    List<String> names() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+}
@@ -104,6 +104,14 @@ public class Condition {
                 args.add(value);
             }
         }
+        // 按桶对齐, 重复最后一个值
+        int size = inListSize(args.size());
+        if (size > args.size()) {
+            Object last = args.get(args.size() - 1);
+            while (args.size() < size) {
+                args.add(last);
+            }
+        }
         // 构建sql
         StringBuilder builder = new StringBuilder(column);
         if (notIn) {
@@ -121,6 +129,51 @@ public class Condition {
         return new Condition(builder.toString(), args.toArray());
     }
 
+    /**
+     * @return 对齐到 {@link Config#setInListBuckets(int...)} 后的长度, 不超过方言的上限
+     */
+    static int inListSize(int size) {
+        int[] buckets = Config.getConfig().inListBuckets();
+        if (buckets == null || size == 0) {
+            return size;
+        }
+        int max = buckets[buckets.length - 1];
+        int bucket = size;
+        if (size > max) {
+            bucket = (size + max - 1) / max * max;
+        } else {
+            for (int b : buckets) {
+                if (b >= size) {
+                    bucket = b;
+                    break;
+                }
+            }
+        }
+        int limit = Config.getConfig().getDialect().maxInListSize();
+        return Math.max(size, Math.min(bucket, limit));
+    }
+
+    /**
+     * @return 不超过 limit 的最大的分批长度, 对齐到桶, 使每批的 SQL 相同
+     */
+    static int inListChunkSize(int limit) {
+        int[] buckets = Config.getConfig().inListBuckets();
+        if (buckets == null) {
+            return limit;
+        }
+        int max = buckets[buckets.length - 1];
+        if (limit >= max) {
+            return limit / max * max;
+        }
+        int chunk = limit;
+        for (int b : buckets) {
+            if (b <= limit) {
+                chunk = b;
+            }
+        }
+        return chunk;
+    }
+
     public String sql() {
         return sql;
     }
@@ -1,13 +1,18 @@
 package hwp.sqlte;
 
 import hwp.sqlte.cache.Cache;
-import hwp.sqlte.cache.LruCache;
+import hwp.sqlte.cache.TinyLfuCache;
+import hwp.sqlte.dialect.Dialect;
+import hwp.sqlte.dialect.Dialects;
+import hwp.sqlte.dialect.GenericDialect;
 
 import javax.sql.DataSource;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.TimeZone;
+import java.util.concurrent.Executor;
 
 /**
  * @author Zero
@@ -15,12 +20,18 @@ import java.util.TimeZone;
  */
 final public class Config {
     private static Config config = new Config();
-    private final Cache DEFAULT_CACHE = new LruCache(1024);
+    private final Cache<Object> DEFAULT_CACHE = new TinyLfuCache<>(1024);
     private SqlProvider sqlProvider = SqlProvider.Default();
     private JsonSerializer jsonSerializer = new GsonSerializer();
     private TimeZone databaseTimeZone = TimeZone.getDefault();//TODO from DB
 
-    private Cache cache;
+    private Cache<Object> cache;
+    private FetchPolicy fetchPolicy = FetchPolicy.DEFAULT;
+    private ResultBudget resultBudget = ResultBudget.UNLIMITED;
+    private Executor asyncExecutor;
+    private int statementCacheSize;
+    private Dialect dialect;
+    private int[] inListBuckets;
 
 
     private Map<String, DataSource> dataSourceMap = new HashMap<>();
@@ -75,14 +86,123 @@ final public class Config {
         return this;
     }
 
-    public Cache getCache() {
+    public FetchPolicy getFetchPolicy() {
+        return fetchPolicy;
+    }
+
+    /**
+     * 逐行处理的查询(stream, query(sql, handler))的默认读取策略, 一次读完全部结果的查询不受影响, 见 {@link Sql#fetchPolicy()}
+     */
+    public Config setFetchPolicy(FetchPolicy fetchPolicy) {
+        Objects.requireNonNull(fetchPolicy, "fetchPolicy can not be null");
+        this.fetchPolicy = fetchPolicy;
+        return this;
+    }
+
+    public ResultBudget getResultBudget() {
+        return resultBudget;
+    }
+
+    public Config setResultBudget(ResultBudget resultBudget) {
+        Objects.requireNonNull(resultBudget, "resultBudget can not be null");
+        this.resultBudget = resultBudget;
+        return this;
+    }
+
+    /**
+     * @return {@link SqlteTemplate#async()} 使用的 executor, 未设置时 JDK 21+ 使用虚拟线程, 否则使用守护线程的缓存线程池
+     */
+    public Executor getAsyncExecutor() {
+        return asyncExecutor == null ? AsyncSqlte.defaultExecutor() : asyncExecutor;
+    }
+
+    public Config setAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+        return this;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * 每个连接缓存的 PreparedStatement 数量, 按 LRU 淘汰, 连接关闭时关闭. 默认为 0, 不缓存
+     */
+    public Config setStatementCacheSize(int statementCacheSize) {
+        if (statementCacheSize < 0) {
+            throw new IllegalArgumentException("statementCacheSize must be >= 0: " + statementCacheSize);
+        }
+        this.statementCacheSize = statementCacheSize;
+        return this;
+    }
+
+    /**
+     * 没有指定方言的 {@link SqlBuilder}/{@link Query}/{@link PreparedQuery} 生成分页语句时使用的方言,
+     * 通过 {@link SqlConnection} 创建的 SqlBuilder 使用连接的方言.
+     * 未设置时使用默认 DataSource 已经识别出的方言(打开过连接之后), 不会为此获取连接; 还没有识别时使用 {@link GenericDialect}
+     */
+    public Dialect getDialect() {
+        if (dialect != null) {
+            return dialect;
+        }
+        Dialect detected = def == null ? null : Dialects.detected(def);
+        return detected == null ? GenericDialect.INSTANCE : detected;
+    }
+
+    public Config setDialect(Dialect dialect) {
+        this.dialect = dialect;
+        return this;
+    }
+
+    public int[] getInListBuckets() {
+        return inListBuckets == null ? new int[0] : inListBuckets.clone();
+    }
+
+    /**
+     * {@link Condition#in} 的值个数按桶对齐, 不足时重复最后一个值, 使 IN 列表只有几种长度,
+     * 驱动和数据库可以复用语句和执行计划. 例如 setInListBuckets(1, 4, 16, 64, 256),
+     * 超过最大的桶时按最大的桶的倍数对齐. 不传参数时关闭(默认)
+     */
+    public Config setInListBuckets(int... inListBuckets) {
+        Objects.requireNonNull(inListBuckets, "inListBuckets can not be null");
+        for (int i = 0; i < inListBuckets.length; i++) {
+            if (inListBuckets[i] < 1 || (i > 0 && inListBuckets[i] <= inListBuckets[i - 1])) {
+                throw new IllegalArgumentException("inListBuckets must be positive and ascending: " + Arrays.toString(inListBuckets));
+            }
+        }
+        this.inListBuckets = inListBuckets.length == 0 ? null : inListBuckets.clone();
+        return this;
+    }
+
+    int[] inListBuckets() {
+        return inListBuckets;
+    }
+
+    public Cache<Object> getCache() {
         return cache == null ? DEFAULT_CACHE : cache;
     }
 
-    public void setCache(Cache cache) {
+    /**
+     * 查询缓存, 默认按条目数(1024)限制. 结果大小差别很大时可以按估算的字节数限制, 见 {@link #setCacheMaximumBytes(long)}.
+     * 只有 {@link TinyLfuCache} 支持 {@link hwp.sqlte.cache.Weigher}, {@link hwp.sqlte.cache.LruCache} 和
+     * {@link hwp.sqlte.cache.FifoCache} 只按条目数限制
+     */
+    public void setCache(Cache<Object> cache) {
         this.cache = cache;
     }
 
+    /**
+     * 使用按估算的字节数({@link ResultSetWeigher})限制的 {@link TinyLfuCache} 作为查询缓存,
+     * 单个结果超过 maxBytes / 16 时不缓存. 需要其它配置(例如过期时间)时用 {@link TinyLfuCache#builder()} 创建后 {@link #setCache}
+     */
+    public Config setCacheMaximumBytes(long maxBytes) {
+        this.cache = TinyLfuCache.builder()
+                .maximumWeight(maxBytes, ResultSetWeigher.INSTANCE)
+                .maximumEntryWeight(Math.max(1, maxBytes / 16))
+                .build();
+        return this;
+    }
+
     public void setJsonSerializer(JsonSerializer jsonSerializer) {
         this.jsonSerializer = jsonSerializer;
     }
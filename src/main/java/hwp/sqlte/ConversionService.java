@@ -6,6 +6,18 @@ public interface ConversionService {
 
     <T> T convert(Object from, Class<T> to);
 
+    /**
+     * 解析 from -> to 的转换器, 可以缓存后重复使用
+     *
+     * @return 不支持时返回 null
+     */
+    default <T> TypeConverter<Object, T> getConverter(Class<?> from, Class<T> to) {
+        if (!canConvert(from, to)) {
+            return null;
+        }
+        return value -> convert(value, to);
+    }
+
     <F, T> void register(Class<F> from, Class<T> to, TypeConverter<F, T> converter);
 
     interface TypeConverter<F, T> {
@@ -0,0 +1,95 @@
+package hwp.sqlte;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 基于打开的游标逐行读取, 读取完毕或关闭流时释放 Statement
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+final class CursorSpliterator<T> extends Spliterators.AbstractSpliterator<T> implements AutoCloseable {
+
+    @FunctionalInterface
+    interface Reader<T> {
+        /**
+         * 读取当前行
+         */
+        T read(ResultSet rs) throws SQLException;
+    }
+
+    private final Statement statement;
+    private final ResultSet rs;
+    private final Reader<T> reader;
+    private boolean closed;
+
+    CursorSpliterator(Statement statement, ResultSet rs, Reader<T> reader) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED);
+        this.statement = statement;
+        this.rs = rs;
+        this.reader = reader;
+    }
+
+    static <T> Stream<T> stream(Statement statement, ResultSet rs, Reader<T> reader) {
+        CursorSpliterator<T> spliterator = new CursorSpliterator<>(statement, rs, reader);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (closed) {
+            return false;
+        }
+        T value;
+        try {
+            if (!rs.next()) {
+                close();
+                return false;
+            }
+            value = reader.read(rs);
+        } catch (SQLException e) {
+            close();
+            throw new UncheckedSQLException(e);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+        action.accept(value);
+        return true;
+    }
+
+    @Override
+    public void close() throws UncheckedSQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // 先关闭结果集, 即使失败也要关闭 Statement
+        SQLException error = null;
+        try {
+            rs.close();
+        } catch (SQLException e) {
+            error = e;
+        }
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            if (error == null) {
+                error = e;
+            } else {
+                error.addSuppressed(e);
+            }
+        }
+        if (error != null) {
+            throw new UncheckedSQLException(error);
+        }
+    }
+
+}
@@ -153,6 +153,21 @@ final class DefaultConversionService implements ConversionService {
         return map1.containsKey(to);
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeConverter<Object, T> getConverter(Class<?> from, Class<T> to) {
+        if (!canConvert(from, to)) {
+            return null;
+        }
+        Map<Class<?>, TypeConverter<Object, Object>> map1 = map.get(from);
+        TypeConverter<Object, Object> converter = map1 == null ? null : map1.get(to);
+        // 继承关系或枚举
+        if (converter == null || to.isAssignableFrom(from)) {
+            return value -> convert(value, to);
+        }
+        return (TypeConverter<Object, T>) (TypeConverter<?, ?>) converter;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public <T> T convert(Object from, Class<T> to) {
@@ -0,0 +1,19 @@
+package hwp.sqlte;
+
+/**
+ * 由 sqlte-processor 为 {@link Table} 类生成的绑定器(对象 -> SQL 参数), 类名为 <code>类名_SqlteBinder</code>,
+ * 存在时 {@link ClassInfo} 会自动使用, 否则使用反射.
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public interface EntityBinder<T> {
+
+    /**
+     * @return 属性名, 下标即属性编号, 与 {@link EntityMapper#fields()} 一致
+     */
+    String[] fields();
+
+    Object get(T bean, int field);
+
+}
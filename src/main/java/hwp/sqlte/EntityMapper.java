@@ -0,0 +1,38 @@
+package hwp.sqlte;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 由 sqlte-processor 为 {@link Table} 类生成的映射器(结果集 -> 对象), 类名为 <code>类名_SqlteMapper</code>,
+ * 存在时 {@link ClassInfo} 会自动使用, 否则使用反射.
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public interface EntityMapper<T> {
+
+    /**
+     * @return 属性名, 下标即属性编号
+     */
+    String[] fields();
+
+    /**
+     * @return 是否可以通过 {@link #newInstance()} 创建对象(非抽象类, 静态类, 有可以访问的无参构造方法), 否则使用反射创建
+     */
+    boolean canInstantiate();
+
+    T newInstance();
+
+    void set(T bean, int field, Object value);
+
+    /**
+     * 读取当前行的指定列并设置属性, 值为 NULL 时不设置.
+     * 只在列类型与属性类型一致时调用(见 {@link MappingPlan#isDirect(Class, int)}), 例如 TIMESTAMP 列到 long 属性仍由运行时转换
+     *
+     * @param column 列位置, 从 1 开始
+     * @return 需要转换(JSON, {@link Convert} 或其他类型)的属性返回 false
+     */
+    boolean read(ResultSet rs, int column, T bean, int field) throws SQLException;
+
+}
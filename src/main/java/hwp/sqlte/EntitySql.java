@@ -0,0 +1,229 @@
+package hwp.sqlte;
+
+import hwp.sqlte.dialect.Dialect;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 实体对应的 CRUD 语句, 按(类, 表名)创建一次.
+ * <p>
+ * 固定的语句(按主键查询/删除, 插入全部列, 按主键更新全部可更新列)在创建时生成;
+ * 随属性值变化的语句(忽略 null 的插入/更新, 按示例查询)按列的位掩码缓存, 同一形状返回同一个字符串,
+ * 因此 SQL 文本保持稳定, 可以被 Statement 缓存复用. 列的顺序与 {@link ClassInfo#getColumns()} 一致.
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+final class EntitySql {
+
+    private static final String INSERT = "INSERT INTO";
+
+    // 每种语句最多缓存的形状
+    private static final int MAX_SHAPES = 256;
+
+    private final ClassInfo info;
+    private final String table;
+    private final String[] columns;
+
+    // 没有主键时为 null
+    private final String pkWhere;
+    private final String selectById;
+    private final String selectByPks;
+    private final String deleteByPks;
+    private final String insertAll;
+
+    // INSERT 关键字 -> (位掩码 -> SQL)
+    private final ConcurrentHashMap<String, ConcurrentHashMap<Long, String>> inserts = new ConcurrentHashMap<>(4);
+    private final ConcurrentHashMap<Long, String> updates = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, String> updatesByPks = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, String> exampleWheres = new ConcurrentHashMap<>();
+
+    EntitySql(ClassInfo info, String table) {
+        this.info = info;
+        this.table = table;
+        this.columns = info.getColumns();
+        String[] pkColumns = info.getPkColumns();
+        if (pkColumns.length == 0) {
+            this.pkWhere = null;
+            this.selectById = null;
+            this.selectByPks = null;
+            this.deleteByPks = null;
+        } else {
+            StringBuilder where = new StringBuilder();
+            for (String pkColumn : pkColumns) {
+                if (where.length() > 0) {
+                    where.append(" AND ");
+                }
+                where.append(pkColumn).append("=?");
+            }
+            this.pkWhere = where.toString();
+            this.selectById = "SELECT * FROM " + table + " WHERE " + pkColumns[0] + "=?";
+            this.selectByPks = "SELECT * FROM " + table + " WHERE " + pkWhere;
+            this.deleteByPks = "DELETE FROM " + table + " WHERE " + pkWhere;
+            String[] updateColumns = info.getUpdateColumns();
+            if (updateColumns.length > 0 && columns.length <= Long.SIZE) {
+                updatesByPks.put(mask(present(updateColumns)), Helper.makeUpdateSql(table, updateColumns) + " WHERE " + pkWhere);
+            }
+        }
+        this.insertAll = Helper.makeInsertSql(table, info.getInsertColumns());
+        if (columns.length <= Long.SIZE) {
+            ConcurrentHashMap<Long, String> shapes = new ConcurrentHashMap<>();
+            shapes.put(mask(present(info.getInsertColumns())), insertAll);
+            inserts.put(INSERT, shapes);
+        }
+    }
+
+    /**
+     * SELECT * FROM table WHERE id=?, 只使用第一个主键
+     */
+    String selectById() {
+        requirePks();
+        return selectById;
+    }
+
+    /**
+     * SELECT * FROM table WHERE pk1=? AND pk2=?
+     */
+    String selectByPks() {
+        requirePks();
+        return selectByPks;
+    }
+
+    /**
+     * DELETE FROM table WHERE pk1=? AND pk2=?
+     */
+    String deleteByPks() {
+        requirePks();
+        return deleteByPks;
+    }
+
+    /**
+     * 插入除自动生成的列以外的所有列
+     */
+    String insertAll() {
+        return insertAll;
+    }
+
+    /**
+     * @param insert  INSERT 关键字, 为 null 时使用 INSERT INTO
+     * @param present 需要插入的列, 与 {@link ClassInfo#getColumns()} 对应
+     */
+    String insert(String insert, boolean[] present) {
+        String keyword = insert == null || insert.isEmpty() ? INSERT : insert;
+        if (columns.length > Long.SIZE) {
+            return Helper.makeInsertSql(keyword, table, select(present));
+        }
+        ConcurrentHashMap<Long, String> shapes = inserts.get(keyword);
+        if (shapes == null) {
+            shapes = inserts.computeIfAbsent(keyword, k -> new ConcurrentHashMap<>());
+        }
+        return shape(shapes, present, () -> Helper.makeInsertSql(keyword, table, select(present)));
+    }
+
+    /**
+     * 插入, 主键冲突时更新其它列, 语法由方言生成
+     *
+     * @param present 需要插入的列, 必须包含主键
+     */
+    String upsert(Dialect dialect, boolean[] present) {
+        requirePks();
+        return dialect.upsert(table, select(present), info.getPkColumns());
+    }
+
+    /**
+     * UPDATE table SET c1=?, c2=?, 条件由调用者拼接
+     */
+    String update(boolean[] present) {
+        if (columns.length > Long.SIZE) {
+            return Helper.makeUpdateSql(table, select(present));
+        }
+        return shape(updates, present, () -> Helper.makeUpdateSql(table, select(present)));
+    }
+
+    /**
+     * UPDATE table SET c1=?, c2=? WHERE pk1=? AND pk2=?
+     */
+    String updateByPks(boolean[] present) {
+        requirePks();
+        if (columns.length > Long.SIZE) {
+            return Helper.makeUpdateSql(table, select(present)) + " WHERE " + pkWhere;
+        }
+        return shape(updatesByPks, present, () -> Helper.makeUpdateSql(table, select(present)) + " WHERE " + pkWhere);
+    }
+
+    /**
+     * 按示例查询的条件: c1 = ? AND c2 = ?, 不包括 WHERE
+     */
+    String exampleWhere(boolean[] present) {
+        if (columns.length > Long.SIZE) {
+            return makeExampleWhere(present);
+        }
+        return shape(exampleWheres, present, () -> makeExampleWhere(present));
+    }
+
+    private String makeExampleWhere(boolean[] present) {
+        StringBuilder builder = new StringBuilder();
+        for (String column : select(present)) {
+            if (builder.length() > 0) {
+                builder.append(" AND ");
+            }
+            builder.append(column).append(" = ?");
+        }
+        return builder.toString();
+    }
+
+    private static String shape(ConcurrentHashMap<Long, String> shapes, boolean[] present, Supplier<String> builder) {
+        Long mask = mask(present);
+        String sql = shapes.get(mask);
+        if (sql == null) {
+            sql = builder.get();
+            // 形状太多时不再缓存
+            if (shapes.size() < MAX_SHAPES) {
+                shapes.putIfAbsent(mask, sql);
+            }
+        }
+        return sql;
+    }
+
+    private static long mask(boolean[] present) {
+        long mask = 0;
+        for (int i = 0; i < present.length; i++) {
+            if (present[i]) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    private boolean[] present(String[] selected) {
+        boolean[] present = new boolean[columns.length];
+        for (String column : selected) {
+            present[info.indexOf(column)] = true;
+        }
+        return present;
+    }
+
+    private String[] select(boolean[] present) {
+        int count = 0;
+        for (boolean b : present) {
+            if (b) {
+                count++;
+            }
+        }
+        String[] selected = new String[count];
+        for (int i = 0, j = 0; i < present.length; i++) {
+            if (present[i]) {
+                selected[j++] = columns[i];
+            }
+        }
+        return selected;
+    }
+
+    private void requirePks() {
+        if (pkWhere == null) {
+            throw new SqlteException("Undefined ID field: " + info.getType().getName());
+        }
+    }
+
+}
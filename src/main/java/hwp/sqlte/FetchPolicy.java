@@ -0,0 +1,85 @@
+package hwp.sqlte;
+
+/**
+ * 查询结果的读取策略: 每次从数据库读取的行数(fetch size), 是否流式读取, 以及最多读取的行数.
+ * <p>
+ * 逐行处理的查询的全局默认值见 {@link Config#setFetchPolicy(FetchPolicy)}, 一次读完全部结果的查询默认 {@link #buffered()}, 单次查询可以通过
+ * {@link SqlBuilder#fetch(FetchPolicy)} 或 {@link Query#fetch(FetchPolicy)} 覆盖.
+ * <ul>
+ * <li>MySQL: 流式读取时逐行读取(fetch size 为 Integer.MIN_VALUE), 否则一次读取全部结果</li>
+ * <li>PostgreSQL: 只有在流式读取且 fetch size &gt; 0 时才使用游标, 自动提交模式下查询期间会临时关闭自动提交</li>
+ * <li>其他数据库: fetch size &gt; 0 时设置给驱动</li>
+ * </ul>
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public final class FetchPolicy {
+
+    /**
+     * 流式读取, 使用驱动默认的 fetch size, 不限制行数
+     */
+    public static final FetchPolicy DEFAULT = new FetchPolicy(0, true, 0);
+
+    private final int fetchSize;
+    private final boolean streaming;
+    private final int maxRows;
+
+    private FetchPolicy(int fetchSize, boolean streaming, int maxRows) {
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("fetchSize must be >= 0: " + fetchSize);
+        }
+        if (maxRows < 0) {
+            throw new IllegalArgumentException("maxRows must be >= 0: " + maxRows);
+        }
+        this.fetchSize = fetchSize;
+        this.streaming = streaming;
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * @param fetchSize 每次从数据库读取的行数, 0 表示使用驱动默认值
+     */
+    public static FetchPolicy streaming(int fetchSize) {
+        return new FetchPolicy(fetchSize, true, 0);
+    }
+
+    /**
+     * 一次读取全部结果, 适合结果较少并且读取期间需要在同一连接上执行其他语句的场景
+     */
+    public static FetchPolicy buffered() {
+        return new FetchPolicy(0, false, 0);
+    }
+
+    public FetchPolicy fetchSize(int fetchSize) {
+        return new FetchPolicy(fetchSize, streaming, maxRows);
+    }
+
+    /**
+     * @param maxRows 最多读取的行数, 0 表示不限制
+     */
+    public FetchPolicy maxRows(int maxRows) {
+        return new FetchPolicy(fetchSize, streaming, maxRows);
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    @Override
+    public String toString() {
+        return "FetchPolicy{" +
+                "fetchSize=" + fetchSize +
+                ", streaming=" + streaming +
+                ", maxRows=" + maxRows +
+                '}';
+    }
+}
@@ -0,0 +1,298 @@
+package hwp.sqlte;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 基于 MethodHandle 的属性读写器, 每个属性只创建一次.
+ * <p>
+ * 创建时解析好注解(JSON, 转换器), 映射时不再读取注解;
+ * int/long/double 类型的属性提供了不装箱的读写方法.
+ * 存在 sqlte-processor 生成的 {@link EntityMapper}/{@link EntityBinder} 时, 直接调用生成的代码.
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+final class FieldAccessor {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final Field field;
+    private final String column;
+    private final Class<?> type;
+    private final boolean json;
+    private final Converter<Object, Serializable> converter;
+
+    // 最近一次数据库类型 -> 属性类型的转换, 同一列返回的类型通常不变
+    private volatile Route route;
+
+    // (Object)Object
+    private final MethodHandle getter;
+    // (Object,Object)void
+    private final MethodHandle setter;
+    // 基本类型: (Object)type, (Object,type)void
+    private final MethodHandle rawGetter;
+    private final MethodHandle rawSetter;
+
+    // 生成的代码
+    private final EntityMapper<Object> mapper;
+    private final EntityBinder<Object> binder;
+    private final int index;
+
+    FieldAccessor(Field field, String column) {
+        this.field = field;
+        this.column = column;
+        this.type = field.getType();
+        this.json = isJson(field);
+        this.converter = getConverter(field);
+        this.mapper = null;
+        this.binder = null;
+        this.index = -1;
+        try {
+            try {
+                field.setAccessible(true);
+            } catch (RuntimeException e) {
+                // 不能访问时, 由 unreflect 抛出异常
+            }
+            MethodHandle get = LOOKUP.unreflectGetter(field);
+            MethodHandle set = LOOKUP.unreflectSetter(field);
+            this.getter = get.asType(MethodType.methodType(Object.class, Object.class));
+            this.setter = set.asType(MethodType.methodType(void.class, Object.class, Object.class));
+            if (type.isPrimitive()) {
+                this.rawGetter = get.asType(MethodType.methodType(type, Object.class));
+                this.rawSetter = set.asType(MethodType.methodType(void.class, Object.class, type));
+            } else {
+                this.rawGetter = null;
+                this.rawSetter = null;
+            }
+        } catch (IllegalAccessException e) {
+            throw new SqlteException(e);
+        }
+    }
+
+    FieldAccessor(Field field, String column, EntityMapper<Object> mapper, EntityBinder<Object> binder, int index) {
+        this.field = field;
+        this.column = column;
+        this.type = field.getType();
+        this.json = isJson(field);
+        this.converter = getConverter(field);
+        this.getter = null;
+        this.setter = null;
+        this.rawGetter = null;
+        this.rawSetter = null;
+        this.mapper = mapper;
+        this.binder = binder;
+        this.index = index;
+    }
+
+    Field getField() {
+        return field;
+    }
+
+    String getColumn() {
+        return column;
+    }
+
+    Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @return 是否以 JSON 格式存储
+     */
+    boolean isJson() {
+        return json;
+    }
+
+    /**
+     * @return {@link Convert} 指定的转换器, 没有时返回 null
+     */
+    Converter<Object, Serializable> getConverter() {
+        return converter;
+    }
+
+    /**
+     * 数据库返回的类型转为属性类型的方式, 按最近一次的类型缓存
+     */
+    Route route(Class<?> dbType) {
+        ConversionService service = Config.getConfig().getConversionService();
+        Route r = route;
+        if (r == null || r.dbType != dbType || r.service != service) {
+            r = new Route(dbType, service, resolve(dbType, service));
+            route = r;
+        }
+        return r;
+    }
+
+    private ConversionService.TypeConverter<Object, ?> resolve(Class<?> dbType, ConversionService service) {
+        // JDBC返回的数据类型与类属性类型一致, 直接设置属性值
+        if (type.isAssignableFrom(dbType)) {
+            return value -> value;
+        }
+        // JDBC返回的数据类型是String
+        if (type == String.class) {
+            return Object::toString;
+        }
+        ConversionService.TypeConverter<Object, ?> converter = service.getConverter(dbType, type);
+        if (converter == null && type.isPrimitive()) {
+            // 很多转换只注册了包装类型, 例如 Timestamp -> Long
+            converter = service.getConverter(dbType, MethodType.methodType(type).wrap().returnType());
+        }
+        return converter;
+    }
+
+    Object get(Object obj) {
+        if (binder != null) {
+            return binder.get(obj, index);
+        }
+        try {
+            return (Object) getter.invokeExact(obj);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    void set(Object obj, Object value) {
+        if (mapper != null) {
+            mapper.set(obj, index, value);
+            return;
+        }
+        try {
+            setter.invokeExact(obj, value);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    int getInt(Object obj) {
+        if (type != int.class || rawGetter == null) {
+            return ((Number) get(obj)).intValue();
+        }
+        try {
+            return (int) rawGetter.invokeExact(obj);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    void setInt(Object obj, int value) {
+        if (type != int.class || rawSetter == null) {
+            set(obj, value);
+            return;
+        }
+        try {
+            rawSetter.invokeExact(obj, value);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    long getLong(Object obj) {
+        if (type != long.class || rawGetter == null) {
+            return ((Number) get(obj)).longValue();
+        }
+        try {
+            return (long) rawGetter.invokeExact(obj);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    void setLong(Object obj, long value) {
+        if (type != long.class || rawSetter == null) {
+            set(obj, value);
+            return;
+        }
+        try {
+            rawSetter.invokeExact(obj, value);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    double getDouble(Object obj) {
+        if (type != double.class || rawGetter == null) {
+            return ((Number) get(obj)).doubleValue();
+        }
+        try {
+            return (double) rawGetter.invokeExact(obj);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    void setDouble(Object obj, double value) {
+        if (type != double.class || rawSetter == null) {
+            set(obj, value);
+            return;
+        }
+        try {
+            rawSetter.invokeExact(obj, value);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * 使用生成的代码从当前行读取属性值
+     *
+     * @return 没有生成的代码或者需要转换时返回 false
+     */
+    boolean read(ResultSet rs, int column, Object obj) throws SQLException {
+        return mapper != null && mapper.read(rs, column, obj, index);
+    }
+
+    private static boolean isJson(Field field) {
+        Column column = field.getAnnotation(Column.class);
+        return column != null && column.json();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Converter<Object, Serializable> getConverter(Field field) {
+        Convert convert = field.getAnnotation(Convert.class);
+        return convert == null ? null : Helper.getConverter(convert.converter());
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new SqlteException(e);
+    }
+
+    @Override
+    public String toString() {
+        return field.toString();
+    }
+
+    static final class Route {
+        private final Class<?> dbType;
+        private final ConversionService service;
+        private final ConversionService.TypeConverter<Object, ?> converter;
+
+        private Route(Class<?> dbType, ConversionService service, ConversionService.TypeConverter<Object, ?> converter) {
+            this.dbType = dbType;
+            this.service = service;
+            this.converter = converter;
+        }
+
+        /**
+         * @return 不能转换时返回 false
+         */
+        boolean canConvert() {
+            return converter != null;
+        }
+
+        Object convert(Object dbValue) {
+            return converter.convert(dbValue);
+        }
+    }
+}
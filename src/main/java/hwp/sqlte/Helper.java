@@ -3,7 +3,7 @@ package hwp.sqlte;
 
 import hwp.sqlte.cache.FifoCache;
 
-import java.lang.reflect.Field;
+import java.io.Serializable;
 import java.sql.*;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -30,22 +30,31 @@ class Helper {
         }
     }
 
-    static SqlResultSet convert(java.sql.ResultSet rs) throws SQLException {
-        List<String> columnNames = new ArrayList<>();
-        ResultSetMetaData metaData = rs.getMetaData();
-        int cols = metaData.getColumnCount();
-        for (int i = 1; i <= cols; i++) {
-            columnNames.add(metaData.getColumnLabel(i).toLowerCase().intern());
-        }
+    static SqlResultSet convert(java.sql.ResultSet rs, ResultBudget budget) throws SQLException {
+        ColumnIndex index = ColumnIndex.from(rs.getMetaData(), true);
         List<Row> results = new ArrayList<>();
+        if (budget.isUnlimited()) {
+            while (rs.next()) {
+                results.add(Row.from(rs, index));
+            }
+            return new SqlResultSet(index, results);
+        }
+        boolean countBytes = budget.getMaxBytes() > 0;
+        long bytes = 0;
         while (rs.next()) {
-            Row row = new Row();
-            for (int i = 1; i <= cols; i++) {
-                row.put(columnNames.get(i - 1), rs.getObject(i));
+            Row row = Row.from(rs, index);
+            if (countBytes) {
+                bytes += SizeEstimator.estimate(row);
+            }
+            if (budget.exceeded(results.size() + 1, bytes)) {
+                if (budget.getOverflow() == ResultBudget.Overflow.FAIL) {
+                    throw new ResultTooLargeException("Query result exceeds " + budget);
+                }
+                return new SqlResultSet(index, SpillFile.spill(rs, index, results, row));
             }
             results.add(row);
         }
-        return new SqlResultSet(columnNames, results);
+        return new SqlResultSet(index, results);
     }
 
     static void fillStatement(PreparedStatement statement, Object[] args) throws UncheckedSQLException {
@@ -120,34 +129,26 @@ class Helper {
         return builder.toString();
     }
 
-    static Object getSerializedValue(Object obj, Field field) throws IllegalAccessException {
-        try {
-            Object value = field.get(obj);
-            if (value == null) {
-                return null;
-            }
-            Column column = field.getAnnotation(Column.class);
-            // 转成JSON存储
-            if (column != null && column.json()) {
-                JsonSerializer jsonSerializer = Config.getConfig().getJsonSerializer();
-                return jsonSerializer.toJson(value);
-            }
-            Convert convert = field.getAnnotation(Convert.class);
-            if (convert != null) {
-                Converter converter = Helper.getConverter(convert.converter());
-                return converter.convert(value);
-            }
-            // 枚举类型转成名称存储
-            if (value instanceof Enum) {
-                Enum<?> e = (Enum<?>) value;
-                return e.name();
-            }
-            return value;
-        } catch (RuntimeException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+    static Object getSerializedValue(Object obj, FieldAccessor accessor) {
+        Object value = accessor.get(obj);
+        if (value == null) {
+            return null;
+        }
+        // 转成JSON存储
+        if (accessor.isJson()) {
+            JsonSerializer jsonSerializer = Config.getConfig().getJsonSerializer();
+            return jsonSerializer.toJson(value);
+        }
+        Converter<Object, Serializable> converter = accessor.getConverter();
+        if (converter != null) {
+            return converter.convert(value);
+        }
+        // 枚举类型转成名称存储
+        if (value instanceof Enum) {
+            Enum<?> e = (Enum<?>) value;
+            return e.name();
         }
+        return value;
     }
 
 /*    static String[] columns(Field[] fields) {
@@ -0,0 +1,147 @@
+package hwp.sqlte;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 结果集列与对象属性的映射关系, 按(类, 列布局)编译一次后重复使用, 映射时不再按列名查找
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+final class MappingPlan {
+
+    private final ClassInfo info;
+    // 列位置, 从 0 开始
+    private final int[] positions;
+    private final FieldAccessor[] accessors;
+    // 列类型与属性类型一致, 可以用 getInt/getString 等直接读取(生成的代码或者基本类型), 否则需要 ConversionService 转换
+    private final boolean[] direct;
+    // 可以直接读取基本类型的属性: int/long/double, 且没有自定义转换
+    private final boolean[] primitives;
+
+    private MappingPlan(ClassInfo info, int[] positions, FieldAccessor[] accessors, int[] columnTypes) {
+        this.info = info;
+        this.positions = positions;
+        this.accessors = accessors;
+        this.direct = new boolean[accessors.length];
+        this.primitives = new boolean[accessors.length];
+        for (int i = 0; i < accessors.length; i++) {
+            FieldAccessor accessor = accessors[i];
+            Class<?> type = accessor.getType();
+            direct[i] = !accessor.isJson() && accessor.getConverter() == null && isDirect(type, columnTypes[i]);
+            primitives[i] = direct[i] && (type == int.class || type == long.class || type == double.class);
+        }
+    }
+
+    static MappingPlan compile(ClassInfo info, ColumnIndex index) {
+        List<Integer> positionList = new ArrayList<>();
+        List<FieldAccessor> accessorList = new ArrayList<>();
+        for (FieldAccessor accessor : info.getAccessors()) {
+            int position = index.indexOf(accessor.getColumn());
+            if (position != -1) {
+                positionList.add(position);
+                accessorList.add(accessor);
+            }
+        }
+        int[] positions = new int[positionList.size()];
+        int[] columnTypes = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = positionList.get(i);
+            columnTypes[i] = index.type(positions[i]);
+        }
+        return new MappingPlan(info, positions, accessorList.toArray(new FieldAccessor[0]), columnTypes);
+    }
+
+    /**
+     * 数值列读到数值属性, 字符列读到 String, 布尔或整数列读到 boolean 时不需要转换.
+     * 其它组合(例如 TIMESTAMP 到 long)以及未知的列类型交给 {@link ConversionService}
+     */
+    static boolean isDirect(Class<?> type, int columnType) {
+        if (type == String.class) {
+            return isCharacter(columnType);
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return columnType == Types.BOOLEAN || columnType == Types.BIT || isInteger(columnType);
+        }
+        if (type == int.class || type == long.class || type == short.class || type == byte.class
+                || type == Integer.class || type == Long.class || type == Short.class || type == Byte.class
+                || type == double.class || type == float.class || type == Double.class || type == Float.class) {
+            return isInteger(columnType) || columnType == Types.REAL || columnType == Types.FLOAT
+                    || columnType == Types.DOUBLE || columnType == Types.NUMERIC || columnType == Types.DECIMAL;
+        }
+        return false;
+    }
+
+    private static boolean isInteger(int columnType) {
+        return columnType == Types.TINYINT || columnType == Types.SMALLINT
+                || columnType == Types.INTEGER || columnType == Types.BIGINT;
+    }
+
+    private static boolean isCharacter(int columnType) {
+        return columnType == Types.CHAR || columnType == Types.VARCHAR || columnType == Types.LONGVARCHAR
+                || columnType == Types.NCHAR || columnType == Types.NVARCHAR || columnType == Types.LONGNVARCHAR;
+    }
+
+    ClassInfo getClassInfo() {
+        return info;
+    }
+
+    <T> T apply(Row row, T obj) throws SqlteException {
+        for (int i = 0; i < positions.length; i++) {
+            Object dbValue = row.valueAt(positions[i]);
+            if (dbValue != null) {
+                BeanMapper.setValue(accessors[i], obj, dbValue);
+            }
+        }
+        return obj;
+    }
+
+    /**
+     * 从 ResultSet 的当前行直接映射, 只读取映射到属性的列
+     */
+    <T> T read(ResultSet rs, T obj) throws SQLException, SqlteException {
+        for (int i = 0; i < positions.length; i++) {
+            int column = positions[i] + 1;
+            FieldAccessor accessor = accessors[i];
+            if (direct[i]) {
+                if (accessor.read(rs, column, obj)) {
+                    continue;
+                }
+                if (primitives[i]) {
+                    readPrimitive(rs, column, accessor, obj);
+                    continue;
+                }
+            }
+            Object dbValue = rs.getObject(column);
+            if (dbValue != null) {
+                BeanMapper.setValue(accessor, obj, dbValue);
+            }
+        }
+        return obj;
+    }
+
+    private static void readPrimitive(ResultSet rs, int column, FieldAccessor accessor, Object obj) throws SQLException {
+        Class<?> type = accessor.getType();
+        if (type == int.class) {
+            int v = rs.getInt(column);
+            if (!rs.wasNull()) {
+                accessor.setInt(obj, v);
+            }
+        } else if (type == long.class) {
+            long v = rs.getLong(column);
+            if (!rs.wasNull()) {
+                accessor.setLong(obj, v);
+            }
+        } else {
+            double v = rs.getDouble(column);
+            if (!rs.wasNull()) {
+                accessor.setDouble(obj, v);
+            }
+        }
+    }
+
+}
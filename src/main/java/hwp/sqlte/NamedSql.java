@@ -0,0 +1,291 @@
+package hwp.sqlte;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 命名参数的 SQL, 参数格式为 :name 或 :name.prop, 解析一次后按 SQL 文本缓存.
+ * <pre>
+ * conn.query(Sql.named("SELECT * FROM users WHERE username = :name AND id IN (:ids)", params));
+ * conn.executeUpdate(Sql.named("UPDATE users SET email = :user.email WHERE id = :user.id", params));
+ * </pre>
+ * 参数可以来自 Map(包括 {@link Row}) 或 JavaBean(public 字段, 按字段名或列名查找).
+ * 集合和数组展开为 IN 列表, 长度按 {@link Config#setInListBuckets(int...)} 对齐.
+ * 字符串, 带引号的标识符, 注释和 PostgreSQL 的 :: 类型转换中的冒号不会被当成参数.
+ * 以 # 开头时从 {@link SqlProvider} 读取 SQL.
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public final class NamedSql {
+
+    // SQL 文本 -> 解析结果
+    private static final int MAX_CACHED = 1024;
+    private static final Map<String, NamedSql> CACHE = new ConcurrentHashMap<>();
+
+    private static final Object MISSING = new Object();
+
+    // 参数之间的 SQL 片段, 比参数多一个
+    private final String[] texts;
+    // 参数名按 . 分开
+    private final String[][] paths;
+    // 参数前面是否已经有括号, 展开集合时不需要再加
+    private final boolean[] wrapped;
+    private final String sql;
+
+    private NamedSql(String[] texts, String[][] paths, boolean[] wrapped) {
+        this.texts = texts;
+        this.paths = paths;
+        this.wrapped = wrapped;
+        StringBuilder builder = new StringBuilder(texts[0]);
+        for (int i = 0; i < paths.length; i++) {
+            builder.append('?').append(texts[i + 1]);
+        }
+        this.sql = builder.toString();
+    }
+
+    public static NamedSql parse(String sql) {
+        Objects.requireNonNull(sql);
+        if (sql.isEmpty()) {
+            throw new IllegalArgumentException("SQL is empty");
+        }
+        if (sql.charAt(0) == '#') {
+            String key = sql;
+            sql = Config.getConfig().getSqlProvider().resolve(key);
+            if (sql == null) {
+                throw new SqlteException("SQL not found: " + key.substring(1));
+            }
+        }
+        NamedSql named = CACHE.get(sql);
+        if (named == null) {
+            named = doParse(sql);
+            if (CACHE.size() < MAX_CACHED) {
+                CACHE.putIfAbsent(sql, named);
+            }
+        }
+        return named;
+    }
+
+    /**
+     * @return 参数替换成 ? 后的 SQL, 不包括集合参数的展开
+     */
+    public String sql() {
+        return sql;
+    }
+
+    /**
+     * @return 参数名, 按出现的顺序, 可能重复
+     */
+    public List<String> names() {
+        List<String> names = new ArrayList<>(paths.length);
+        for (String[] path : paths) {
+            names.add(String.join(".", path));
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * @param params Map, {@link Row} 或 JavaBean
+     */
+    public Sql bind(Object params) {
+        Objects.requireNonNull(params, "params can not be null");
+        return bind(params, null);
+    }
+
+    /**
+     * @param params   参数, 按名称查找
+     * @param fallback 在 params 中找不到时查找, 可以为 null
+     */
+    Sql bind(Object params, Object fallback) {
+        Object[] args = new Object[paths.length];
+        int count = paths.length;
+        boolean expand = false;
+        for (int i = 0; i < paths.length; i++) {
+            Object value = resolve(params, fallback, paths[i]);
+            int size = size(value);
+            if (size >= 0) {
+                expand = true;
+                count += Math.max(Condition.inListSize(size), 1) - 1;
+            }
+            args[i] = value;
+        }
+        if (!expand) {
+            return new SimpleSql(sql, args);
+        }
+        // 展开集合和数组
+        StringBuilder builder = new StringBuilder(sql.length() + count * 3);
+        Object[] expanded = new Object[count];
+        int index = 0;
+        builder.append(texts[0]);
+        for (int i = 0; i < paths.length; i++) {
+            Object value = args[i];
+            int size = size(value);
+            if (size < 0) {
+                builder.append('?');
+                expanded[index++] = value;
+            } else if (size == 0) {
+                // 空集合绑定一个 NULL, IN (NULL) 不匹配任何行
+                builder.append(wrapped[i] ? "?" : "(?)");
+                expanded[index++] = null;
+            } else {
+                Object[] elements = elements(value);
+                int padded = Condition.inListSize(elements.length);
+                if (!wrapped[i]) {
+                    builder.append('(');
+                }
+                for (int j = 0; j < padded; j++) {
+                    if (j > 0) {
+                        builder.append(", ");
+                    }
+                    builder.append('?');
+                    // 对齐时重复最后一个值
+                    expanded[index++] = elements[Math.min(j, elements.length - 1)];
+                }
+                if (!wrapped[i]) {
+                    builder.append(')');
+                }
+            }
+            builder.append(texts[i + 1]);
+        }
+        return new SimpleSql(builder.toString(), expanded);
+    }
+
+    private static Object resolve(Object params, Object fallback, String[] path) {
+        boolean last = path.length == 1;
+        Object value = property(params, path[0], last);
+        if (value == MISSING && fallback != null) {
+            value = property(fallback, path[0], last);
+        }
+        for (int i = 1; i < path.length && value != MISSING; i++) {
+            if (value == null) {
+                return null;
+            }
+            value = property(value, path[i], i == path.length - 1);
+        }
+        if (value == MISSING) {
+            throw new SqlteException("Missing parameter: " + String.join(".", path));
+        }
+        return value;
+    }
+
+    /**
+     * @param serialize 是否按列的设置转换(JSON, Converter), 只用于最后一级
+     * @return 不存在时返回 MISSING
+     */
+    private static Object property(Object obj, String name, boolean serialize) {
+        if (obj instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) obj;
+            Object value = map.get(name);
+            return value != null || map.containsKey(name) ? value : MISSING;
+        }
+        ClassInfo info = ClassInfo.getClassInfo(obj.getClass());
+        FieldAccessor accessor = info.getAccessorByField(name);
+        if (accessor == null) {
+            accessor = info.getAccessor(name);
+        }
+        if (accessor == null) {
+            return MISSING;
+        }
+        return serialize ? Helper.getSerializedValue(obj, accessor) : accessor.get(obj);
+    }
+
+    /**
+     * @return 集合或数组的长度, 其它值返回 -1. byte[] 作为一个值
+     */
+    private static int size(Object value) {
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).size();
+        }
+        if (value != null && value.getClass().isArray() && !(value instanceof byte[])) {
+            return Array.getLength(value);
+        }
+        return -1;
+    }
+
+    private static Object[] elements(Object value) {
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).toArray();
+        }
+        if (value instanceof Object[]) {
+            return (Object[]) value;
+        }
+        Object[] elements = new Object[Array.getLength(value)];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = Array.get(value, i);
+        }
+        return elements;
+    }
+
+    private static NamedSql doParse(String sql) {
+        List<String> texts = new ArrayList<>();
+        List<String[]> paths = new ArrayList<>();
+        List<Boolean> wrapped = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        int len = sql.length();
+        int i = 0;
+        while (i < len) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                int end = sql.indexOf(c, i + 1);
+                end = end == -1 ? len : end + 1;
+                text.append(sql, i, end);
+                i = end;
+            } else if (c == '-' && i + 1 < len && sql.charAt(i + 1) == '-') {
+                int end = sql.indexOf('\n', i);
+                end = end == -1 ? len : end;
+                text.append(sql, i, end);
+                i = end;
+            } else if (c == '/' && i + 1 < len && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                end = end == -1 ? len : end + 2;
+                text.append(sql, i, end);
+                i = end;
+            } else if (c == ':' && i + 1 < len && sql.charAt(i + 1) == ':') {
+                text.append("::");
+                i += 2;
+            } else if (c == ':' && i + 1 < len && Character.isJavaIdentifierStart(sql.charAt(i + 1))) {
+                int end = i + 1;
+                while (end < len && (Character.isJavaIdentifierPart(sql.charAt(end))
+                        || (sql.charAt(end) == '.' && end + 1 < len && Character.isJavaIdentifierStart(sql.charAt(end + 1))))) {
+                    end++;
+                }
+                wrapped.add(endsWithParenthesis(text));
+                texts.add(text.toString());
+                paths.add(sql.substring(i + 1, end).split("\\."));
+                text.setLength(0);
+                i = end;
+            } else {
+                text.append(c);
+                i++;
+            }
+        }
+        texts.add(text.toString());
+        boolean[] wrappedArray = new boolean[wrapped.size()];
+        for (int j = 0; j < wrappedArray.length; j++) {
+            wrappedArray[j] = wrapped.get(j);
+        }
+        return new NamedSql(texts.toArray(new String[0]), paths.toArray(new String[0][]), wrappedArray);
+    }
+
+    private static boolean endsWithParenthesis(CharSequence text) {
+        for (int i = text.length() - 1; i >= 0; i--) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c == '(';
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return sql;
+    }
+
+}
@@ -0,0 +1,522 @@
+package hwp.sqlte;
+
+import hwp.sqlte.dialect.Dialect;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 编译好的查询模板, 不可变, 可以在多个线程中重复使用.
+ * <p>
+ * 查询的结构(SELECT, FROM, 条件片段, GROUP BY, ORDER BY)只在创建时处理一次, 执行时只需要绑定参数.
+ * 可选的条件片段按是否生效组成位掩码, 每种组合的 SQL 只生成一次, 所以同一组合总是得到同一个字符串.
+ * <pre>
+ * static final PreparedQuery FIND_USERS = PreparedQuery.builder()
+ *         .select("*").from("users")
+ *         .where("status = ?")
+ *         .andIf("username LIKE ?")
+ *         .andIf("age > ?")
+ *         .orderBy("id DESC")
+ *         .build();
+ *
+ * Sql sql = FIND_USERS.binder()
+ *         .bind(1)
+ *         .bindIf(name != null, name)
+ *         .bindIf(age != null, age)
+ *         .limit(0, 20)
+ *         .build();
+ * </pre>
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public final class PreparedQuery {
+
+    // 每个模板最多缓存的条件组合
+    private static final int MAX_SHAPES = 256;
+
+    private final String head;
+    private final String middle;
+    private final String tail;
+    private final Fragment[] fragments;
+    private final int whereCount;
+    // 固定的分页, 没有时 offset 为 -1
+    private final int offset;
+    private final int limit;
+    private final FetchPolicy fetchPolicy;
+    private final ResultBudget resultBudget;
+    private final Dialect dialect;
+
+    // 固定片段的掩码
+    private final long fixedMask;
+    private final int maxArgs;
+    private final int fixedArgs;
+    private final boolean optional;
+    private final String fixedSql;
+    private final ConcurrentHashMap<Long, String> shapes = new ConcurrentHashMap<>();
+
+    private PreparedQuery(String head, String middle, String tail, Fragment[] fragments, int whereCount, int offset, int limit,
+                          FetchPolicy fetchPolicy, ResultBudget resultBudget, Dialect dialect) {
+        this.head = head;
+        this.middle = middle;
+        this.tail = tail;
+        this.fragments = fragments;
+        this.whereCount = whereCount;
+        this.offset = offset;
+        this.limit = limit;
+        this.fetchPolicy = fetchPolicy;
+        this.resultBudget = resultBudget;
+        this.dialect = dialect;
+        long mask = 0;
+        int max = 0;
+        int fixed = 0;
+        boolean hasOptional = false;
+        for (int i = 0; i < fragments.length; i++) {
+            Fragment fragment = fragments[i];
+            max += fragment.params;
+            if (fragment.optional) {
+                hasOptional = true;
+            } else {
+                mask |= 1L << i;
+                fixed += fragment.params;
+            }
+        }
+        this.fixedMask = mask;
+        this.maxArgs = max;
+        this.fixedArgs = fixed;
+        this.optional = hasOptional;
+        this.fixedSql = render(mask);
+        this.shapes.put(mask, fixedSql);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 原样使用的 SQL, 参数个数为 SQL 中 ? 的个数(不包括字符串中的 ?)
+     */
+    public static PreparedQuery of(String sql) {
+        Objects.requireNonNull(sql);
+        return of(sql, countParams(sql), null, null, null);
+    }
+
+    static PreparedQuery of(String sql, int params, FetchPolicy fetchPolicy, ResultBudget resultBudget, Dialect dialect) {
+        // 整条 SQL 看作一个固定片段, 不参与拼接
+        Fragment[] fragments = params == 0 ? new Fragment[0] : new Fragment[]{new Fragment(null, sql, params, false)};
+        return new PreparedQuery(sql, "", "", fragments, -1, -1, 0, fetchPolicy, resultBudget, dialect);
+    }
+
+    /**
+     * 只有固定片段时使用, 参数按在 SQL 中出现的顺序传入
+     */
+    public Sql bind(Object... args) {
+        if (optional) {
+            throw new IllegalStateException("The query has optional fragments, use binder() instead");
+        }
+        if (args.length != fixedArgs) {
+            throw new IllegalArgumentException("Expected " + fixedArgs + " args, but got " + args.length + ": " + fixedSql);
+        }
+        return new BoundSql(withLimit(fixedSql, dialect, offset, limit), args, fetchPolicy, resultBudget);
+    }
+
+    public Binder binder() {
+        return new Binder();
+    }
+
+    /**
+     * 所有可选片段都不生效时的 SQL
+     */
+    public String sql() {
+        return withLimit(fixedSql, dialect, offset, limit);
+    }
+
+    private String sql(long mask) {
+        if (mask == fixedMask) {
+            return fixedSql;
+        }
+        String sql = shapes.get(mask);
+        if (sql == null) {
+            sql = render(mask);
+            // 组合太多时不再缓存
+            if (shapes.size() < MAX_SHAPES) {
+                shapes.putIfAbsent(mask, sql);
+            }
+        }
+        return sql;
+    }
+
+    private String render(long mask) {
+        if (whereCount < 0) {
+            return head;
+        }
+        StringBuilder sql = new StringBuilder(head.length() + middle.length() + tail.length() + 64);
+        sql.append(head);
+        appendFragments(sql, "WHERE ", 0, whereCount, mask);
+        sql.append(middle);
+        appendFragments(sql, "HAVING ", whereCount, fragments.length, mask);
+        sql.append(tail);
+        return sql.toString();
+    }
+
+    private void appendFragments(StringBuilder sql, String keyword, int from, int to, long mask) {
+        boolean first = true;
+        for (int i = from; i < to; i++) {
+            if ((mask & (1L << i)) == 0) {
+                continue;
+            }
+            Fragment fragment = fragments[i];
+            if (first) {
+                sql.append(' ').append(keyword);
+                first = false;
+            } else {
+                sql.append(' ').append(fragment.operator).append(' ');
+            }
+            sql.append(fragment.sql);
+        }
+    }
+
+    /**
+     * 分页在绑定时按方言生成, 模板可以在 {@link Config#setDialect} 之前创建(例如静态常量)
+     */
+    private static String withLimit(String sql, Dialect dialect, int offset, int limit) {
+        if (offset < 0) {
+            return sql;
+        }
+        StringBuilder builder = new StringBuilder(sql.length() + 24).append(sql).append(' ');
+        (dialect == null ? Config.getConfig().getDialect() : dialect).paging(builder, offset, limit);
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return sql();
+    }
+
+    /**
+     * 计算 ? 的个数, 忽略单引号中的内容
+     */
+    static int countParams(String sql) {
+        int count = 0;
+        boolean quoted = false;
+        for (int i = 0, len = sql.length(); i < len; i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (c == '?' && !quoted) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static final class Fragment {
+        private final String operator;
+        private final String sql;
+        private final int params;
+        private final boolean optional;
+
+        Fragment(String operator, String sql, int params, boolean optional) {
+            this.operator = operator;
+            this.sql = sql;
+            this.params = params;
+            this.optional = optional;
+        }
+    }
+
+    /**
+     * 按声明顺序绑定条件片段的参数, 不是线程安全的, 每次查询创建一个.
+     * <p>
+     * 没有参数的固定片段不需要绑定, 会自动跳过.
+     */
+    public final class Binder {
+
+        private final Object[] args;
+        private int argCount;
+        private int next;
+        private long mask = fixedMask;
+        private int offset = PreparedQuery.this.offset;
+        private int limit = PreparedQuery.this.limit;
+        private Dialect dialect = PreparedQuery.this.dialect;
+
+        private Binder() {
+            this.args = new Object[maxArgs];
+        }
+
+        /**
+         * 绑定下一个片段的参数, 可选片段视为生效
+         */
+        public Binder bind(Object... args) {
+            Fragment fragment = nextFragment();
+            if (fragment.optional) {
+                mask |= 1L << (next - 1);
+            }
+            return addArgs(fragment, args);
+        }
+
+        /**
+         * 绑定下一个可选片段, when 为 false 时忽略这个片段和它的参数
+         */
+        public Binder bindIf(boolean when, Object... args) {
+            Fragment fragment = nextFragment();
+            if (!fragment.optional) {
+                throw new IllegalStateException("Fragment is not optional: " + fragment.sql);
+            }
+            if (when) {
+                mask |= 1L << (next - 1);
+                addArgs(fragment, args);
+            }
+            return this;
+        }
+
+        /**
+         * 分页语法由 {@link #dialect(Dialect)} 决定, 不影响模板缓存
+         */
+        public Binder limit(int offset, int limit) {
+            if (PreparedQuery.this.offset >= 0) {
+                throw new IllegalStateException("The query already has a limit");
+            }
+            this.offset = offset;
+            this.limit = limit;
+            return this;
+        }
+
+        /**
+         * 本次分页使用的方言, 默认为模板的方言, 例如使用 {@link SqlConnection#dialect()}
+         */
+        public Binder dialect(Dialect dialect) {
+            this.dialect = dialect;
+            return this;
+        }
+
+        public Binder paging(int page, int size) {
+            return limit(Math.max(0, (page - 1) * size), Math.max(size, 1));
+        }
+
+        public Sql build() {
+            while (next < fragments.length) {
+                Fragment fragment = fragments[next++];
+                if (fragment.optional || fragment.params > 0) {
+                    throw new IllegalStateException("Unbound fragment: " + fragment.sql);
+                }
+            }
+            String sql = withLimit(PreparedQuery.this.sql(mask), dialect, offset, limit);
+            Object[] bound = argCount == args.length ? args : Arrays.copyOf(args, argCount);
+            return new BoundSql(sql, bound, fetchPolicy, resultBudget);
+        }
+
+        private Fragment nextFragment() {
+            while (next < fragments.length) {
+                Fragment fragment = fragments[next++];
+                if (fragment.optional || fragment.params > 0) {
+                    return fragment;
+                }
+            }
+            throw new IllegalStateException("No more fragments to bind");
+        }
+
+        private Binder addArgs(Fragment fragment, Object[] args) {
+            if (args.length != fragment.params) {
+                throw new IllegalArgumentException("Expected " + fragment.params + " args, but got " + args.length + ": " + fragment.sql);
+            }
+            System.arraycopy(args, 0, this.args, argCount, args.length);
+            argCount += args.length;
+            return this;
+        }
+    }
+
+    public static final class Builder {
+
+        private String select;
+        private String from;
+        private String groupBy;
+        private String orderBy;
+        private Integer offset;
+        private Integer limit;
+        private FetchPolicy fetchPolicy;
+        private ResultBudget resultBudget;
+        private Dialect dialect;
+        private final List<Fragment> where = new ArrayList<>();
+        private final List<Fragment> having = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder select(String columns) {
+            this.select = columns;
+            return this;
+        }
+
+        public Builder from(String from) {
+            this.from = from;
+            return this;
+        }
+
+        public Builder where(String sql) {
+            return and(sql);
+        }
+
+        public Builder and(String sql) {
+            where.add(fragment("AND", sql, false));
+            return this;
+        }
+
+        public Builder or(String sql) {
+            where.add(fragment("OR", sql, false));
+            return this;
+        }
+
+        /**
+         * 可选片段, 绑定时由 {@link Binder#bindIf(boolean, Object...)} 决定是否生效
+         */
+        public Builder andIf(String sql) {
+            where.add(fragment("AND", sql, true));
+            return this;
+        }
+
+        public Builder orIf(String sql) {
+            where.add(fragment("OR", sql, true));
+            return this;
+        }
+
+        public Builder groupBy(String groupBy) {
+            Objects.requireNonNull(groupBy);
+            this.groupBy = groupBy;
+            return this;
+        }
+
+        public Builder having(String sql) {
+            having.add(fragment("AND", sql, false));
+            return this;
+        }
+
+        public Builder havingIf(String sql) {
+            having.add(fragment("AND", sql, true));
+            return this;
+        }
+
+        public Builder orderBy(String orderBy) {
+            Objects.requireNonNull(orderBy);
+            this.orderBy = orderBy;
+            return this;
+        }
+
+        public Builder orderBy(Order order) {
+            if (order != null && !order.isEmpty()) {
+                this.orderBy = order.sql();
+            }
+            return this;
+        }
+
+        /**
+         * 固定的分页, 需要每次不同的分页时使用 {@link Binder#limit(int, int)}.
+         * 分页语法在绑定时按方言生成, 与 {@link Binder#limit(int, int)} 相同
+         */
+        public Builder limit(int offset, int limit) {
+            this.offset = offset;
+            this.limit = limit;
+            return this;
+        }
+
+        public Builder fetch(FetchPolicy fetchPolicy) {
+            this.fetchPolicy = fetchPolicy;
+            return this;
+        }
+
+        public Builder budget(ResultBudget resultBudget) {
+            this.resultBudget = resultBudget;
+            return this;
+        }
+
+        /**
+         * 分页使用的方言, 也是 {@link Binder} 的默认方言, 未设置时使用 {@link Config#getDialect()}
+         */
+        public Builder dialect(Dialect dialect) {
+            this.dialect = dialect;
+            return this;
+        }
+
+        public PreparedQuery build() {
+            Objects.requireNonNull(select);
+            Objects.requireNonNull(from);
+            if (where.size() + having.size() > Long.SIZE) {
+                throw new IllegalStateException("Too many fragments: " + (where.size() + having.size()));
+            }
+            if (!having.isEmpty() && StringUtils.isEmpty(groupBy)) {
+                throw new IllegalStateException("HAVING requires GROUP BY");
+            }
+            String head = "SELECT " + select + " FROM " + from;
+            String middle = StringUtils.isEmpty(groupBy) ? "" : " GROUP BY " + groupBy;
+            StringBuilder tail = new StringBuilder();
+            if (StringUtils.isNotEmpty(orderBy)) {
+                tail.append(" ORDER BY ").append(orderBy);
+            }
+            List<Fragment> fragments = new ArrayList<>(where.size() + having.size());
+            fragments.addAll(where);
+            fragments.addAll(having);
+            return new PreparedQuery(head, middle, tail.toString(), fragments.toArray(new Fragment[0]), where.size(),
+                    limit == null ? -1 : offset, limit == null ? 0 : limit, fetchPolicy, resultBudget, dialect);
+        }
+
+        private static Fragment fragment(String operator, String sql, boolean optional) {
+            Objects.requireNonNull(sql);
+            String _sql = sql.toUpperCase();
+            if (_sql.contains(" OR ") || _sql.contains(" AND ")) {
+                sql = '(' + sql + ')';
+            }
+            return new Fragment(operator, sql, countParams(sql), optional);
+        }
+    }
+
+    private static final class BoundSql implements Sql {
+        private final String sql;
+        private final Object[] args;
+        private final FetchPolicy fetchPolicy;
+        private final ResultBudget resultBudget;
+        private String id;
+
+        BoundSql(String sql, Object[] args, FetchPolicy fetchPolicy, ResultBudget resultBudget) {
+            this.sql = sql;
+            this.args = args;
+            this.fetchPolicy = fetchPolicy;
+            this.resultBudget = resultBudget;
+        }
+
+        @Override
+        public String sql() {
+            return sql;
+        }
+
+        @Override
+        public Object[] args() {
+            return args;
+        }
+
+        @Override
+        public FetchPolicy fetchPolicy() {
+            return fetchPolicy;
+        }
+
+        @Override
+        public ResultBudget resultBudget() {
+            return resultBudget;
+        }
+
+        @Override
+        public String id() {
+            if (id == null) {
+                id = Sql.super.id();
+            }
+            return id;
+        }
+
+        @Override
+        public String toString() {
+            return sql + ' ' + Arrays.toString(args);
+        }
+    }
+
+}
@@ -1,5 +1,7 @@
 package hwp.sqlte;
 
+import hwp.sqlte.dialect.Dialect;
+
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -21,6 +23,9 @@ public class Query implements Sql {//QueryDsl
     private String orderBy;
     private Integer offset;
     private Integer limit;
+    private FetchPolicy fetchPolicy;
+    private ResultBudget resultBudget;
+    private Dialect dialect;
 
     private Class<?> selectClass;
 
@@ -113,6 +118,30 @@ public class Query implements Sql {//QueryDsl
         return this;
     }
 
+    /**
+     * 分页使用的方言, 未设置时使用 {@link Config#getDialect()}
+     */
+    public Query dialect(Dialect dialect) {
+        this.dialect = dialect;
+        return this;
+    }
+
+    /**
+     * 覆盖本次查询的读取策略
+     */
+    public Query fetch(FetchPolicy fetchPolicy) {
+        this.fetchPolicy = fetchPolicy;
+        return this;
+    }
+
+    /**
+     * 覆盖本次查询结果在内存中的上限
+     */
+    public Query budget(ResultBudget resultBudget) {
+        this.resultBudget = resultBudget;
+        return this;
+    }
+
     public String toSql(char separator) {
         Objects.requireNonNull(select);
         Objects.requireNonNull(from);
@@ -131,15 +160,22 @@ public class Query implements Sql {//QueryDsl
         if (StringUtils.isNotEmpty(orderBy)) {
             sql.append("ORDER BY ").append(orderBy).append(separator);
         }
-        if (offset != null || limit != null) {
-            sql.append("LIMIT ").append(offset == null ? 0 : offset);
-            if (limit != null) {
-                sql.append(',').append(limit);
-            }
+        Dialect dialect = this.dialect == null ? Config.getConfig().getDialect() : this.dialect;
+        if (limit != null) {
+            dialect.paging(sql, offset == null ? 0 : offset, limit);
+        } else if (offset != null) {
+            dialect.paging(sql, offset, Integer.MAX_VALUE);
         }
         return sql.toString();
     }
 
+    /**
+     * 按当前的结构生成可以重复使用的模板, 之后修改这个 Query 不影响模板
+     */
+    public PreparedQuery compile() {
+        return PreparedQuery.of(toSql(' ').trim(), args().length, fetchPolicy, resultBudget, dialect);
+    }
+
     private static String format(Object date) {
         SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
         return format.format(date);
@@ -162,6 +198,16 @@ public class Query implements Sql {//QueryDsl
         return args.toArray();
     }
 
+    @Override
+    public FetchPolicy fetchPolicy() {
+        return fetchPolicy;
+    }
+
+    @Override
+    public ResultBudget resultBudget() {
+        return resultBudget;
+    }
+
     @Override
     public String toString() {
         String sql = toSql(' ');
@@ -0,0 +1,158 @@
+package hwp.sqlte;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * 按订阅者的需求(request(n))读取游标的发布者. 项目兼容 Java 8, 所以没有直接实现 java.util.concurrent.Flow,
+ * {@link Subscriber}/{@link Subscription} 的方法和语义与 Flow 及 Reactive Streams 一致, 可以直接适配.
+ * <p>
+ * 每次订阅都会重新执行查询. 在第一次 request 时打开游标, 读取完毕, 出错或 cancel 时关闭 Statement;
+ * 数据在调用 request 的线程上推送, 不会预读, 也不会缓存.
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public final class QueryPublisher<T> {
+
+    public interface Subscriber<T> {
+
+        void onSubscribe(Subscription subscription);
+
+        void onNext(T item);
+
+        void onError(Throwable throwable);
+
+        void onComplete();
+    }
+
+    public interface Subscription {
+
+        void request(long n);
+
+        void cancel();
+    }
+
+    private final Supplier<Stream<T>> source;
+
+    QueryPublisher(Supplier<Stream<T>> source) {
+        this.source = source;
+    }
+
+    public void subscribe(Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber can not be null");
+        subscriber.onSubscribe(new CursorSubscription<>(source, subscriber));
+    }
+
+    private static final class CursorSubscription<T> implements Subscription {
+        private final Supplier<Stream<T>> source;
+        private final Subscriber<? super T> subscriber;
+
+        private final AtomicLong requested = new AtomicLong();
+        // 保证同一时刻只有一个线程读取游标, request/cancel 可以在 onNext 中重入
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable badRequest;
+
+        // 只在 drain 中访问
+        private Stream<T> stream;
+        private Iterator<T> iterator;
+        private boolean done;
+
+        CursorSubscription(Supplier<Stream<T>> source, Subscriber<? super T> subscriber) {
+            this.source = source;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                badRequest = new IllegalArgumentException("non-positive request: " + n);
+            } else {
+                long r, u;
+                do {
+                    r = requested.get();
+                    u = r + n < 0 ? Long.MAX_VALUE : r + n;
+                } while (!requested.compareAndSet(r, u));
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (!done) {
+                    emit();
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void emit() {
+            try {
+                Throwable error = badRequest;
+                if (error != null) {
+                    done = true;
+                    close();
+                    subscriber.onError(error);
+                    return;
+                }
+                long r = requested.get();
+                long e = 0;
+                if (!cancelled && r > 0 && iterator == null) {
+                    stream = source.get();
+                    iterator = stream.iterator();
+                }
+                while (e != r && !cancelled) {
+                    if (!iterator.hasNext()) {
+                        done = true;
+                        close();
+                        subscriber.onComplete();
+                        return;
+                    }
+                    subscriber.onNext(iterator.next());
+                    e++;
+                }
+                if (cancelled) {
+                    done = true;
+                    close();
+                    return;
+                }
+                if (e != 0 && r != Long.MAX_VALUE) {
+                    requested.addAndGet(-e);
+                }
+            } catch (Throwable t) {
+                done = true;
+                try {
+                    close();
+                } catch (RuntimeException ex) {
+                    t.addSuppressed(ex);
+                }
+                subscriber.onError(t);
+            }
+        }
+
+        private void close() {
+            Stream<T> s = stream;
+            stream = null;
+            iterator = null;
+            if (s != null) {
+                s.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+package hwp.sqlte;
+
+/**
+ * 查询结果在内存中的上限(行数, 估算的字节数), 超出后按 {@link Overflow} 处理:
+ * <pre>
+ * Sql.config().setResultBudget(ResultBudget.ofRows(100_000).maxBytes(256L &lt;&lt; 20));
+ * conn.query(sql -&gt; sql.select("*").from("orders").budget(ResultBudget.ofRows(10_000).spillToDisk()));
+ * </pre>
+ * 全局默认值见 {@link Config#setResultBudget(ResultBudget)}, 单次查询可以通过
+ * {@link SqlBuilder#budget(ResultBudget)} 或 {@link Query#budget(ResultBudget)} 覆盖.
+ * <p>
+ * 直接映射为对象的查询(list, tryGet 等)不经过 {@link Row}, 只限制行数, 超出时总是抛出异常.
+ * 写入了临时文件的结果可以多次读取, 只在 {@link SqlResultSet#close()} 时删除临时文件.
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public final class ResultBudget {
+
+    public enum Overflow {
+        /**
+         * 抛出 {@link ResultTooLargeException}
+         */
+        FAIL,
+        /**
+         * 超出的行写入临时文件, 读取时通过内存映射读回, 使用完毕后应调用 {@link SqlResultSet#close()} 删除临时文件
+         */
+        SPILL
+    }
+
+    /**
+     * 不限制
+     */
+    public static final ResultBudget UNLIMITED = new ResultBudget(0, 0, Overflow.FAIL);
+
+    private final int maxRows;
+    private final long maxBytes;
+    private final Overflow overflow;
+
+    private ResultBudget(int maxRows, long maxBytes, Overflow overflow) {
+        if (maxRows < 0) {
+            throw new IllegalArgumentException("maxRows must be >= 0: " + maxRows);
+        }
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must be >= 0: " + maxBytes);
+        }
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+        this.overflow = overflow;
+    }
+
+    /**
+     * @param maxRows 内存中最多保留的行数, 0 表示不限制
+     */
+    public static ResultBudget ofRows(int maxRows) {
+        return new ResultBudget(maxRows, 0, Overflow.FAIL);
+    }
+
+    /**
+     * @param maxBytes 内存中最多保留的字节数(估算), 0 表示不限制
+     */
+    public static ResultBudget ofBytes(long maxBytes) {
+        return new ResultBudget(0, maxBytes, Overflow.FAIL);
+    }
+
+    public ResultBudget maxRows(int maxRows) {
+        return new ResultBudget(maxRows, maxBytes, overflow);
+    }
+
+    public ResultBudget maxBytes(long maxBytes) {
+        return new ResultBudget(maxRows, maxBytes, overflow);
+    }
+
+    public ResultBudget failFast() {
+        return new ResultBudget(maxRows, maxBytes, Overflow.FAIL);
+    }
+
+    public ResultBudget spillToDisk() {
+        return new ResultBudget(maxRows, maxBytes, Overflow.SPILL);
+    }
+
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public Overflow getOverflow() {
+        return overflow;
+    }
+
+    boolean isUnlimited() {
+        return maxRows == 0 && maxBytes == 0;
+    }
+
+    /**
+     * @return 加入该行后是否超出
+     */
+    boolean exceeded(int rows, long bytes) {
+        return (maxRows > 0 && rows > maxRows) || (maxBytes > 0 && bytes > maxBytes);
+    }
+
+    @Override
+    public String toString() {
+        return "ResultBudget{" +
+                "maxRows=" + maxRows +
+                ", maxBytes=" + maxBytes +
+                ", overflow=" + overflow +
+                '}';
+    }
+}
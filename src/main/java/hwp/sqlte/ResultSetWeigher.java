@@ -0,0 +1,42 @@
+package hwp.sqlte;
+
+import hwp.sqlte.cache.Weigher;
+
+/**
+ * 按估算的字节数计算查询缓存条目的权重, 配合 {@link hwp.sqlte.cache.TinyLfuCache.Builder#maximumWeight} 按内存限制缓存:
+ * <pre>{@code
+ * Config.getConfig().setCache(TinyLfuCache.builder()
+ *         .maximumWeight(64L << 20, ResultSetWeigher.INSTANCE)
+ *         .maximumEntryWeight(4L << 20)
+ *         .build());
+ * }</pre>
+ * {@link SqlResultSet} 按 {@link SqlResultSet#estimatedSize()} 计算, 其它值粗略估算.
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public final class ResultSetWeigher implements Weigher<Object> {
+
+    public static final ResultSetWeigher INSTANCE = new ResultSetWeigher();
+
+    // 缓存中的节点和 ConcurrentHashMap 的节点
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private ResultSetWeigher() {
+    }
+
+    @Override
+    public long weigh(Object key, Object value) {
+        long size = ENTRY_OVERHEAD + SizeEstimator.estimate(key);
+        if (value instanceof SqlConnectionCacheWrapper.Cached) {
+            SqlConnectionCacheWrapper.Cached cached = (SqlConnectionCacheWrapper.Cached) value;
+            size += 32 + 16 + 4L * cached.tables.length;
+            value = cached.rs;
+        }
+        if (value instanceof SqlResultSet) {
+            return size + 24 + ((SqlResultSet) value).estimatedSize();
+        }
+        return size + SizeEstimator.estimate(value);
+    }
+
+}
@@ -0,0 +1,15 @@
+package hwp.sqlte;
+
+/**
+ * 查询结果超出 {@link ResultBudget}
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public class ResultTooLargeException extends SqlteException {
+    private static final long serialVersionUID = 1L;
+
+    public ResultTooLargeException(String msg) {
+        super(msg);
+    }
+}
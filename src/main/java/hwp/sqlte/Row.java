@@ -1,18 +1,42 @@
 package hwp.sqlte;
 
 
+import java.io.Serializable;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.Optional;
+import java.util.*;
 import java.util.function.Supplier;
 
 /**
+ * 一行数据.
+ * <p>
+ * 查询结果中的行只持有一个值数组, 列名索引由同一个结果集中的所有行共享;
+ * 当添加不存在的列或删除列时, 会自动转换为普通的 Map 存储.
+ *
  * @author Zero
  * Created on 2017/3/20.
  */
-public class Row extends HashMap<String, Object> {
+public class Row extends AbstractMap<String, Object> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // 紧凑存储: 共享列索引 + 值数组
+    private ColumnIndex index;
+    private Object[] values;
+
+    // 普通存储
+    private Map<String, Object> map;
+
+    private transient Set<Map.Entry<String, Object>> entrySet;
+
+    public Row() {
+        this.map = new HashMap<>();
+    }
+
+    Row(ColumnIndex index, Object[] values) {
+        this.index = index;
+        this.values = values;
+    }
 
     public String getString(String name) {
         return (String) get(name);
@@ -24,13 +48,13 @@ public class Row extends HashMap<String, Object> {
 
     @SuppressWarnings("unchecked")
     public <T> T getValue(String name, T defValue) {
-        T v = (T) super.get(name);
+        T v = (T) get(name);
         return v == null ? defValue : v;
     }
 
     @SuppressWarnings("unchecked")
     public <T> T getValue(String name) {
-        return (T) super.get(name);
+        return (T) get(name);
     }
 
     @SuppressWarnings("unchecked")
@@ -47,7 +71,7 @@ public class Row extends HashMap<String, Object> {
 
     @SuppressWarnings("unchecked")
     public <T> Optional<T> getOptValue(String name) {
-        return Optional.ofNullable((T) super.get(name));
+        return Optional.ofNullable((T) get(name));
     }
 
     public <T> T map(RowMapper<T> mapper) {
@@ -60,11 +84,7 @@ public class Row extends HashMap<String, Object> {
     }
 
     public <T> T map(Class<T> clazz) {
-        try {
-            return copyTo(clazz.getDeclaredConstructor().newInstance());
-        } catch (Exception e) {
-            throw new SqlteException(e);
-        }
+        return copyTo(BeanMapper.supplier(clazz).get());
     }
 
     public <T> T copyTo(T bean) {
@@ -76,19 +96,229 @@ public class Row extends HashMap<String, Object> {
         return this;
     }
 
+    /**
+     * 第一列的值
+     */
+    Object firstValue() {
+        if (map == null) {
+            return index.size() == 0 ? null : values[index.slot(0)];
+        }
+        return map.isEmpty() ? null : map.values().iterator().next();
+    }
+
+    /**
+     * @return 查询结果中的行返回按列位置映射的计划, 否则返回 null
+     */
+    MappingPlan mappingPlan(ClassInfo info) {
+        return map == null ? index.mappingPlan(info) : null;
+    }
+
+    Object valueAt(int position) {
+        return values[position];
+    }
+
+    /**
+     * @return 紧凑存储的值数组(按列位置), 普通存储时返回 null
+     */
+    Object[] valueArray() {
+        return map == null ? values : null;
+    }
+
+    ColumnIndex columnIndex() {
+        return map == null ? index : null;
+    }
+
+    @Override
+    public int size() {
+        return map == null ? index.size() : map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return map == null ? index.indexOf(key) != -1 : map.containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (map == null) {
+            int i = index.indexOf(key);
+            return i == -1 ? null : values[i];
+        }
+        return map.get(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        if (map == null) {
+            int i = index.indexOf(key);
+            if (i != -1) {
+                Object old = values[i];
+                values[i] = value;
+                return old;
+            }
+            inflate();
+        }
+        return map.put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        if (map == null) {
+            if (index.indexOf(key) == -1) {
+                return null;
+            }
+            inflate();
+        }
+        return map.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        if (map == null) {
+            this.index = null;
+            this.values = null;
+            this.map = new HashMap<>();
+        } else {
+            map.clear();
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        Set<Map.Entry<String, Object>> es = entrySet;
+        if (es == null) {
+            es = entrySet = new EntrySet();
+        }
+        return es;
+    }
+
+    private void inflate() {
+        Map<String, Object> m = new LinkedHashMap<>(Math.max(16, index.size() * 2));
+        for (int i = 0, size = index.size(); i < size; i++) {
+            int slot = index.slot(i);
+            m.put(index.name(slot), values[slot]);
+        }
+        this.map = m;
+        this.index = null;
+        this.values = null;
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<String, Object>> {
+
+        @Override
+        public Iterator<Map.Entry<String, Object>> iterator() {
+            if (map != null) {
+                return map.entrySet().iterator();
+            }
+            return new Iterator<Map.Entry<String, Object>>() {
+                private final ColumnIndex _index = index;
+                private int cursor;
+                private int last = -1;
+
+                @Override
+                public boolean hasNext() {
+                    return cursor < _index.size();
+                }
+
+                @Override
+                public Map.Entry<String, Object> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    int slot = _index.slot(cursor++);
+                    last = slot;
+                    return new CompactEntry(_index.name(slot), slot);
+                }
+
+                @Override
+                public void remove() {
+                    if (last == -1) {
+                        throw new IllegalStateException();
+                    }
+                    // 删除后转换为普通存储, 此后迭代器不可再使用
+                    Row.this.remove(_index.name(last));
+                    last = -1;
+                    cursor = Integer.MAX_VALUE;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return Row.this.size();
+        }
+
+        @Override
+        public void clear() {
+            Row.this.clear();
+        }
+    }
+
+    private final class CompactEntry implements Map.Entry<String, Object> {
+        private final String key;
+        private final int position;
+
+        CompactEntry(String key, int position) {
+            this.key = key;
+            this.position = position;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public Object getValue() {
+            return map == null ? values[position] : map.get(key);
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            return Row.this.put(key, value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return key.equals(e.getKey()) && Objects.equals(getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+
     public static Row from(ResultSet rs) {
         try {
-            Row row = new Row();
-            ResultSetMetaData metaData = rs.getMetaData();
-            int cols = metaData.getColumnCount();
-            for (int i = 1; i <= cols; i++) {
-                row.put(metaData.getColumnLabel(i).intern(), rs.getObject(i));
-            }
-            return row;
+            return from(rs, ColumnIndex.from(rs.getMetaData(), false));
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
         }
     }
 
+    static Row from(ResultSet rs, ColumnIndex index) throws SQLException {
+        int cols = index.width();
+        Object[] values = new Object[cols];
+        for (int i = 0; i < cols; i++) {
+            values[i] = rs.getObject(i + 1);
+        }
+        return new Row(index, values);
+    }
+
 
 }
@@ -36,7 +36,7 @@ public interface RowMapper<T> extends Function<Row, T> {
 
         @Override
         public Float map(Row row) {
-            Object v = row.values().iterator().next();
+            Object v = row.firstValue();
             if (v instanceof Float) {
                 return (Float) v;
             }
@@ -50,7 +50,7 @@ public interface RowMapper<T> extends Function<Row, T> {
 
         @Override
         public Double map(Row row) {
-            Object v = row.values().iterator().next();
+            Object v = row.firstValue();
             if (v instanceof Double) {
                 return (Double) v;
             }
@@ -67,7 +67,7 @@ public interface RowMapper<T> extends Function<Row, T> {
 
         @Override
         public Integer map(Row row) {
-            Object v = row.values().iterator().next();
+            Object v = row.firstValue();
             if (v instanceof Integer) {
                 return (Integer) v;
             }
@@ -84,7 +84,7 @@ public interface RowMapper<T> extends Function<Row, T> {
 
         @Override
         public Short map(Row row) {
-            Object v = row.values().iterator().next();
+            Object v = row.firstValue();
             if (v instanceof Short) {
                 return (Short) v;
             }
@@ -102,7 +102,7 @@ public interface RowMapper<T> extends Function<Row, T> {
 
         @Override
         public Long map(Row row) {
-            Object v = row.values().iterator().next();
+            Object v = row.firstValue();
             if (v instanceof Long) {
                 return (Long) v;
             }
@@ -116,7 +116,7 @@ public interface RowMapper<T> extends Function<Row, T> {
 
         @Override
         public Number map(Row row) {
-            return (Number) row.values().iterator().next();
+            return (Number) row.firstValue();
         }
     }
 
@@ -125,7 +125,7 @@ public interface RowMapper<T> extends Function<Row, T> {
 
         @Override
         public BigDecimal map(Row row) {
-            Object v = row.values().iterator().next();
+            Object v = row.firstValue();
             if (v instanceof BigDecimal) {
                 return (BigDecimal) v;
             }
@@ -142,7 +142,7 @@ public interface RowMapper<T> extends Function<Row, T> {
 
         @Override
         public String map(Row row) {
-            return Objects.toString(row.values().iterator().next());
+            return Objects.toString(row.firstValue());
         }
     }
 
@@ -5,12 +5,29 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
 
-class ScriptRunner {
+/**
+ * 流式执行 SQL 脚本, 适合导入大的 dump 文件.
+ * <ul>
+ * <li>逐行读取, 按分隔符切分语句, 字符串, 带引号的标识符, 注释和 PostgreSQL 的 $$ 中的分隔符不会切分;
+ * 支持 MySQL 客户端的 DELIMITER 指令, 保留 MySQL 的条件注释 /*! ... *&#47;</li>
+ * <li>可以把连续的 INSERT/UPDATE/DELETE/REPLACE/MERGE 合并为一个 JDBC 批处理, 见 {@link #setBatchSize(int)}</li>
+ * <li>可以每 N 条语句提交一次, 限制事务的大小</li>
+ * <li>按间隔报告进度和速度</li>
+ * </ul>
+ */
+public class ScriptRunner {
 
-    private final Logger logger = LoggerFactory.getLogger(ScriptRunner.class);
+    private static final Logger logger = LoggerFactory.getLogger(ScriptRunner.class);
     private static final String DEFAULT_DELIMITER = ";";
+    private static final String[] DML = {"INSERT", "UPDATE", "DELETE", "REPLACE", "MERGE", "UPSERT"};
 
     private boolean stopOnError;
     private boolean autoCommit;
@@ -18,6 +35,12 @@ class ScriptRunner {
     private String delimiter = DEFAULT_DELIMITER;
 
     private boolean fullLineDelimiter = false;
+    private boolean backslashEscapes = false;
+
+    private int batchSize = 1;
+    private int commitInterval;
+    private int progressInterval = 10000;
+    private Consumer<Progress> progressListener = progress -> logger.info("{}", progress);
 
 
     public ScriptRunner(boolean stopOnError, boolean autoCommit) {
@@ -30,12 +53,58 @@ class ScriptRunner {
         this.fullLineDelimiter = fullLineDelimiter;
     }
 
+    /**
+     * 单引号字符串中的反斜杠是否为转义字符, MySQL 导出的脚本(mysqldump)需要开启. 默认关闭, 按 SQL 标准只有 '' 表示单引号
+     */
+    public ScriptRunner setBackslashEscapes(boolean backslashEscapes) {
+        this.backslashEscapes = backslashEscapes;
+        return this;
+    }
+
+    /**
+     * 连续的 DML 语句每批最多的条数, 1 表示不使用批处理. 默认 1
+     * <p>
+     * 不在出错时停止时, 批处理失败后逐条执行驱动没有执行的语句, 并记录失败的语句.
+     * PostgreSQL 等数据库在事务中出错后会拒绝后续的语句, 这时需要开启自动提交
+     */
+    public ScriptRunner setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be >= 1: " + batchSize);
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * 每执行 N 条语句提交一次, 执行期间关闭连接的自动提交, 结束后恢复. 默认为 0, 使用构造函数的 autoCommit
+     */
+    public ScriptRunner setCommitInterval(int commitInterval) {
+        if (commitInterval < 0) {
+            throw new IllegalArgumentException("commitInterval must be >= 0: " + commitInterval);
+        }
+        this.commitInterval = commitInterval;
+        return this;
+    }
+
+    /**
+     * @param interval 每执行多少条语句报告一次, 结束时总会报告一次
+     * @param listener 默认输出到日志
+     */
+    public ScriptRunner setProgressListener(int interval, Consumer<Progress> listener) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("interval must be >= 1: " + interval);
+        }
+        this.progressInterval = interval;
+        this.progressListener = Objects.requireNonNull(listener, "listener can not be null");
+        return this;
+    }
+
     public void runScript(Connection conn, InputStream in) throws UncheckedSQLException {
-        runScript(conn, new InputStreamReader(in));
+        runScript(conn, new InputStreamReader(in, StandardCharsets.UTF_8));
     }
 
     public void runScript(Connection conn, URL in) throws UncheckedSQLException {
-        try (Reader reader = new InputStreamReader(in.openStream())) {
+        try (Reader reader = new InputStreamReader(in.openStream(), StandardCharsets.UTF_8)) {
             runScript(conn, reader);
         } catch (IOException e) {
             throw new UncheckedSQLException(e);
@@ -51,66 +120,23 @@ class ScriptRunner {
      * @throws UncheckedSQLException if any SQL errors occur
      */
     public void runScript(Connection conn, Reader reader) throws UncheckedSQLException {
-        StringBuffer command = null;
+        boolean restoreAutoCommit = false;
         try {
-            LineNumberReader lineReader = new LineNumberReader(reader);
-            String line;
-            while ((line = lineReader.readLine()) != null) {
-                if (command == null) {
-                    command = new StringBuffer();
-                }
-                String trimmedLine = line.trim();
-                if (trimmedLine.startsWith("--") || trimmedLine.length() < 1) {
-                    continue;
-                }
-                if (!fullLineDelimiter && trimmedLine.endsWith(getDelimiter())
-                        || fullLineDelimiter && trimmedLine.equals(getDelimiter())) {
-                    command.append(line, 0, line.lastIndexOf(getDelimiter()));
-                    command.append(" ");
-                    try (Statement statement = conn.createStatement()) {
-                        boolean hasResults = false;
-                        if (stopOnError) {
-                            hasResults = statement.execute(command.toString());
-                        } else {
-                            try {
-                                statement.execute(command.toString());
-                            } catch (SQLException e) {
-                                logger.error(e.getMessage());
-                            }
-                        }
-                        if (autoCommit && !conn.getAutoCommit()) {
-                            conn.commit();
-                        }
-                        try (ResultSet rs = statement.getResultSet()) {
-                            if (hasResults && rs != null) {
-                                StringBuilder builder = new StringBuilder();
-                                ResultSetMetaData md = rs.getMetaData();
-                                int cols = md.getColumnCount();
-                                for (int i = 0; i < cols; i++) {
-                                    String name = md.getColumnLabel(i);
-                                    builder.append(name).append("\t");
-                                }
-                                builder.append('\n');
-                                while (rs.next()) {
-                                    for (int i = 0; i < cols; i++) {
-                                        String value = rs.getString(i);
-                                        builder.append(value).append("\t");
-                                    }
-                                    builder.append('\n');
-                                }
-                                logger.info("Result:\n{}", builder);
-                            }
-                        }
-                        command = null;
+            if (commitInterval > 0 && conn.getAutoCommit()) {
+                conn.setAutoCommit(false);
+                restoreAutoCommit = true;
+            }
+            try (Execution execution = new Execution(conn)) {
+                Tokenizer tokenizer = new Tokenizer(reader);
+                String sql;
+                while ((sql = tokenizer.next()) != null) {
+                    execution.execute(sql);
+                    if (execution.statements % progressInterval == 0) {
+                        progressListener.accept(execution.progress(tokenizer.chars, false));
                     }
-                    Thread.yield();
-                } else {
-                    command.append(line);
-                    command.append(" ");
                 }
-            }
-            if (!autoCommit) {
-                conn.commit();
+                execution.finish();
+                progressListener.accept(execution.progress(tokenizer.chars, true));
             }
         } catch (SQLException | IOException e) {
             throw new UncheckedSQLException(e);
@@ -119,14 +145,411 @@ class ScriptRunner {
                 if (!conn.getAutoCommit()) {
                     conn.rollback();
                 }
+                if (restoreAutoCommit) {
+                    conn.setAutoCommit(true);
+                }
             } catch (SQLException e) {
                 logger.error(e.getMessage());
             }
         }
     }
 
-    private String getDelimiter() {
-        return delimiter;
+    private static boolean isDml(String sql) {
+        for (String keyword : DML) {
+            if (sql.regionMatches(true, 0, keyword, 0, keyword.length())
+                    && (sql.length() == keyword.length() || !Character.isJavaIdentifierPart(sql.charAt(keyword.length())))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 一次执行的状态
+     */
+    private class Execution implements AutoCloseable {
+        private final Connection conn;
+        private final boolean connAutoCommit;
+        private final long start = System.nanoTime();
+        private Statement batch;
+        private final List<String> pending = new ArrayList<>();
+        private long statements;
+        private long batches;
+        private long uncommitted;
+
+        Execution(Connection conn) throws SQLException {
+            this.conn = conn;
+            this.connAutoCommit = conn.getAutoCommit();
+        }
+
+        void execute(String sql) throws SQLException {
+            if (batchSize > 1 && isDml(sql)) {
+                if (batch == null) {
+                    batch = conn.createStatement();
+                }
+                batch.addBatch(sql);
+                pending.add(sql);
+                if (pending.size() >= batchSize) {
+                    flush();
+                }
+            } else {
+                flush();
+                executeSingle(sql);
+                committed(1);
+            }
+            statements++;
+        }
+
+        void finish() throws SQLException {
+            flush();
+            if (!connAutoCommit && (commitInterval == 0 || uncommitted > 0)) {
+                conn.commit();
+            }
+        }
+
+        private void flush() throws SQLException {
+            if (pending.isEmpty()) {
+                return;
+            }
+            int count = pending.size();
+            batches++;
+            try {
+                batch.executeBatch();
+            } catch (BatchUpdateException e) {
+                if (stopOnError) {
+                    throw e;
+                }
+                replay(e);
+            } catch (SQLException e) {
+                if (stopOnError) {
+                    throw e;
+                }
+                logger.error("batch of {} statements failed: {}\t first sql: {}", count, e.getMessage(), pending.get(0));
+            } finally {
+                batch.clearBatch();
+                pending.clear();
+            }
+            committed(count);
+        }
+
+        /**
+         * 驱动执行了全部语句时记录失败的语句, 在第一个失败的语句处停止时逐条执行剩下的语句
+         */
+        private void replay(BatchUpdateException e) throws SQLException {
+            int[] counts = e.getUpdateCounts() == null ? new int[0] : e.getUpdateCounts();
+            if (counts.length >= pending.size()) {
+                for (int i = 0; i < pending.size(); i++) {
+                    if (counts[i] == Statement.EXECUTE_FAILED) {
+                        logger.error("{}\t sql: {}", e.getMessage(), pending.get(i));
+                    }
+                }
+                return;
+            }
+            logger.error("{}\t sql: {}", e.getMessage(), pending.get(counts.length));
+            for (int i = counts.length + 1; i < pending.size(); i++) {
+                executeSingle(pending.get(i));
+            }
+        }
+
+        private void executeSingle(String sql) throws SQLException {
+            try (Statement statement = conn.createStatement()) {
+                boolean hasResults;
+                try {
+                    hasResults = statement.execute(sql);
+                } catch (SQLException e) {
+                    if (stopOnError) {
+                        throw e;
+                    }
+                    logger.error("{}\t sql: {}", e.getMessage(), sql);
+                    return;
+                }
+                if (hasResults && logger.isInfoEnabled()) {
+                    try (ResultSet rs = statement.getResultSet()) {
+                        logResult(rs);
+                    }
+                }
+            }
+        }
+
+        private void committed(int count) throws SQLException {
+            if (connAutoCommit) {
+                return;
+            }
+            if (commitInterval > 0) {
+                uncommitted += count;
+                if (uncommitted >= commitInterval) {
+                    conn.commit();
+                    uncommitted = 0;
+                }
+            } else if (autoCommit) {
+                conn.commit();
+            }
+        }
+
+        Progress progress(long chars, boolean finished) {
+            return new Progress(statements, batches, chars, (System.nanoTime() - start) / 1000000, finished);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (batch != null) {
+                batch.close();
+            }
+        }
+    }
+
+    private static void logResult(ResultSet rs) throws SQLException {
+        if (rs == null) {
+            return;
+        }
+        StringBuilder builder = new StringBuilder();
+        ResultSetMetaData md = rs.getMetaData();
+        int cols = md.getColumnCount();
+        for (int i = 1; i <= cols; i++) {
+            builder.append(md.getColumnLabel(i)).append("\t");
+        }
+        builder.append('\n');
+        while (rs.next()) {
+            for (int i = 1; i <= cols; i++) {
+                builder.append(rs.getString(i)).append("\t");
+            }
+            builder.append('\n');
+        }
+        logger.info("Result:\n{}", builder);
+    }
+
+    /**
+     * 按行读取, 切分出完整的语句, 状态可以跨行
+     */
+    private class Tokenizer {
+        private static final int NORMAL = 0;
+        private static final int SINGLE_QUOTE = 1;
+        private static final int DOUBLE_QUOTE = 2;
+        private static final int BACKTICK = 3;
+        private static final int COMMENT = 4;
+        private static final int KEPT_COMMENT = 5;
+        private static final int DOLLAR_QUOTE = 6;
+
+        private final BufferedReader reader;
+        private final ArrayDeque<String> statements = new ArrayDeque<>();
+        private final StringBuilder command = new StringBuilder();
+        private String delimiter = ScriptRunner.this.delimiter;
+        private int state = NORMAL;
+        private String dollarTag;
+        private long chars;
+        private boolean eof;
+
+        Tokenizer(Reader reader) {
+            this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader, 64 * 1024);
+        }
+
+        String next() throws IOException {
+            while (statements.isEmpty() && !eof) {
+                String line = reader.readLine();
+                if (line == null) {
+                    eof = true;
+                    emit();
+                } else {
+                    chars += line.length() + 1;
+                    scan(line);
+                }
+            }
+            return statements.poll();
+        }
+
+        private void scan(String line) {
+            if (state == NORMAL && isBlank(command)) {
+                String trimmed = line.trim();
+                if (trimmed.regionMatches(true, 0, "DELIMITER ", 0, 10)) {
+                    delimiter = trimmed.substring(10).trim();
+                    return;
+                }
+            }
+            if (fullLineDelimiter && state == NORMAL && line.trim().equals(delimiter)) {
+                emit();
+                return;
+            }
+            int len = line.length();
+            int i = 0;
+            while (i < len) {
+                char c = line.charAt(i);
+                switch (state) {
+                    case NORMAL:
+                        if (c == '-' && line.startsWith("--", i)) {
+                            i = len;
+                            continue;
+                        }
+                        if (c == '/' && line.startsWith("/*", i)) {
+                            // MySQL 的条件注释和优化器提示需要保留
+                            boolean keep = line.startsWith("/*!", i) || line.startsWith("/*+", i);
+                            state = keep ? KEPT_COMMENT : COMMENT;
+                            if (keep) {
+                                command.append("/*");
+                            }
+                            i += 2;
+                            continue;
+                        }
+                        if (!fullLineDelimiter && line.startsWith(delimiter, i)) {
+                            emit();
+                            i += delimiter.length();
+                            continue;
+                        }
+                        if (c == '\'') {
+                            state = SINGLE_QUOTE;
+                        } else if (c == '"') {
+                            state = DOUBLE_QUOTE;
+                        } else if (c == '`') {
+                            state = BACKTICK;
+                        } else if (c == '$') {
+                            String tag = dollarTag(line, i);
+                            if (tag != null) {
+                                state = DOLLAR_QUOTE;
+                                dollarTag = tag;
+                                command.append(tag);
+                                i += tag.length();
+                                continue;
+                            }
+                        }
+                        command.append(c);
+                        i++;
+                        break;
+                    case SINGLE_QUOTE:
+                        command.append(c);
+                        if (backslashEscapes && c == '\\' && i + 1 < len) {
+                            command.append(line.charAt(++i));
+                        } else if (c == '\'') {
+                            state = NORMAL;
+                        }
+                        i++;
+                        break;
+                    case DOUBLE_QUOTE:
+                    case BACKTICK:
+                        command.append(c);
+                        if (c == (state == DOUBLE_QUOTE ? '"' : '`')) {
+                            state = NORMAL;
+                        }
+                        i++;
+                        break;
+                    case COMMENT:
+                    case KEPT_COMMENT:
+                        if (c == '*' && line.startsWith("*/", i)) {
+                            if (state == KEPT_COMMENT) {
+                                command.append("*/");
+                            } else {
+                                command.append(' ');
+                            }
+                            state = NORMAL;
+                            i += 2;
+                            continue;
+                        }
+                        if (state == KEPT_COMMENT) {
+                            command.append(c);
+                        }
+                        i++;
+                        break;
+                    default:
+                        if (c == '$' && line.startsWith(dollarTag, i)) {
+                            command.append(dollarTag);
+                            i += dollarTag.length();
+                            state = NORMAL;
+                            continue;
+                        }
+                        command.append(c);
+                        i++;
+                }
+            }
+            if (command.length() > 0 && state != COMMENT) {
+                command.append('\n');
+            }
+        }
+
+        /**
+         * @return $$ 或 $tag$, 不是时返回 null
+         */
+        private String dollarTag(String line, int start) {
+            if (start > 0 && Character.isJavaIdentifierPart(line.charAt(start - 1))) {
+                return null;
+            }
+            int end = line.indexOf('$', start + 1);
+            if (end == -1) {
+                return null;
+            }
+            for (int i = start + 1; i < end; i++) {
+                char c = line.charAt(i);
+                if (!(Character.isLetter(c) || c == '_' || (i > start + 1 && Character.isDigit(c)))) {
+                    return null;
+                }
+            }
+            return line.substring(start, end + 1);
+        }
+
+        private void emit() {
+            if (!isBlank(command)) {
+                statements.add(command.toString().trim());
+            }
+            command.setLength(0);
+        }
+
+        private boolean isBlank(CharSequence s) {
+            for (int i = 0, len = s.length(); i < len; i++) {
+                if (!Character.isWhitespace(s.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 执行进度
+     */
+    public static final class Progress {
+        private final long statements;
+        private final long batches;
+        private final long chars;
+        private final long elapsedMillis;
+        private final boolean finished;
+
+        Progress(long statements, long batches, long chars, long elapsedMillis, boolean finished) {
+            this.statements = statements;
+            this.batches = batches;
+            this.chars = chars;
+            this.elapsedMillis = elapsedMillis;
+            this.finished = finished;
+        }
+
+        public long getStatements() {
+            return statements;
+        }
+
+        public long getBatches() {
+            return batches;
+        }
+
+        /**
+         * @return 已经读取的字符数
+         */
+        public long getChars() {
+            return chars;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public boolean isFinished() {
+            return finished;
+        }
+
+        public double getStatementsPerSecond() {
+            return elapsedMillis == 0 ? statements : statements * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return (finished ? "Script finished: " : "Script running: ") + statements + " statements, "
+                    + batches + " batches, " + elapsedMillis + " ms, " + (long) getStatementsPerSecond() + " statements/s";
+        }
     }
 
-}
\ No newline at end of file
+}
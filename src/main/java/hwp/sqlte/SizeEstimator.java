@@ -0,0 +1,76 @@
+package hwp.sqlte;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Map;
+
+/**
+ * 估算查询结果占用的堆内存(按 64 位 JVM, 开启压缩指针), 只用于限制内存, 不追求精确
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+final class SizeEstimator {
+
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+
+    private SizeEstimator() {
+    }
+
+    /**
+     * @return 行对象, 值数组和所有值的大小, 不包括共享的列索引
+     */
+    static long estimate(Row row) {
+        long size = align(OBJECT_HEADER + 4 * REFERENCE);
+        Object[] values = row.valueArray();
+        if (values == null) {
+            // 普通存储, 每列按一个 HashMap.Node 估算
+            for (Map.Entry<String, Object> entry : row.entrySet()) {
+                size += 32 + REFERENCE + estimate(entry.getKey()) + estimate(entry.getValue());
+            }
+            return size;
+        }
+        size += align(ARRAY_HEADER + (long) REFERENCE * values.length);
+        for (Object value : values) {
+            size += estimate(value);
+        }
+        return size;
+    }
+
+    static long estimate(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String) {
+            // Java 8: char[]; Java 9+: 大多数为 Latin-1 byte[], 按 char 估算
+            return align(OBJECT_HEADER + 8) + align(ARRAY_HEADER + 2L * ((String) value).length());
+        }
+        if (value instanceof Integer || value instanceof Float || value instanceof Short
+                || value instanceof Byte || value instanceof Boolean || value instanceof Character) {
+            return 16;
+        }
+        if (value instanceof Long || value instanceof Double) {
+            return 24;
+        }
+        if (value instanceof byte[]) {
+            return align(ARRAY_HEADER + ((byte[]) value).length);
+        }
+        if (value instanceof BigDecimal) {
+            return 40 + estimate(((BigDecimal) value).unscaledValue());
+        }
+        if (value instanceof BigInteger) {
+            return align(OBJECT_HEADER + 24) + align(ARRAY_HEADER + (((BigInteger) value).bitLength() + 31) / 32 * 4L);
+        }
+        if (value instanceof java.util.Date) {
+            return 32;
+        }
+        return 64;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+}
@@ -0,0 +1,469 @@
+package hwp.sqlte;
+
+import java.io.*;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 超出 {@link ResultBudget} 的行写入临时文件, 读取时通过内存映射按需解码.
+ * <p>
+ * 文件以 DELETE_ON_CLOSE 打开, 关闭后(或 JVM 退出时)删除, 关闭时解除内存映射.
+ * 没有关闭就被 GC 回收的结果, 在下一次写入临时文件时关闭.
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+final class SpillFile implements Closeable {
+
+    // 每个映射段的大小, 一行不会跨段
+    private static final int SEGMENT_SIZE = 1 << 30;
+    // 不支持时为 null
+    private static final Consumer<ByteBuffer> UNMAPPER = unmapper();
+
+    // 没有关闭就被回收的 RowList
+    private static final ReferenceQueue<RowList> LEAKED = new ReferenceQueue<>();
+    // 保持 Leak 本身可达, 否则不会进入队列
+    private static final Set<Leak> LEAKS = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte FLOAT = 5;
+    private static final byte SHORT = 6;
+    private static final byte BYTE = 7;
+    private static final byte BOOLEAN = 8;
+    private static final byte BIG_DECIMAL = 9;
+    private static final byte BIG_INTEGER = 10;
+    private static final byte BYTES = 11;
+    private static final byte TIMESTAMP = 12;
+    private static final byte SQL_DATE = 13;
+    private static final byte SQL_TIME = 14;
+    private static final byte DATE = 15;
+    private static final byte OBJECT = 16;
+
+    private final ColumnIndex index;
+    private final FileChannel channel;
+
+    // 写入
+    private OutputStream out;
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private long position;
+
+    // 每行的起始位置
+    private long[] offsets = new long[1024];
+    private int size;
+    private MappedByteBuffer[] segments;
+    private volatile boolean closed;
+
+    private SpillFile(ColumnIndex index, FileChannel channel) {
+        this.index = index;
+        this.channel = channel;
+        this.out = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+    }
+
+    /**
+     * 将当前行及之后的所有行写入临时文件
+     *
+     * @param head  已经读取到内存的行
+     * @param first 当前行
+     */
+    static List<Row> spill(ResultSet rs, ColumnIndex index, List<Row> head, Row first) throws SQLException {
+        closeLeaked();
+        SpillFile file = null;
+        try {
+            Path path = Files.createTempFile("sqlte-", ".spill");
+            file = new SpillFile(index, FileChannel.open(path, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE));
+            file.write(first.valueArray());
+            Object[] values = new Object[index.width()];
+            while (rs.next()) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = rs.getObject(i + 1);
+                }
+                file.write(values);
+            }
+            file.finish();
+            return new RowList(head, file);
+        } catch (IOException e) {
+            closeQuietly(file);
+            throw new SqlteException(e);
+        } catch (SQLException | RuntimeException e) {
+            closeQuietly(file);
+            throw e;
+        }
+    }
+
+    private void write(Object[] values) throws IOException, SQLException {
+        record.reset();
+        for (Object value : values) {
+            writeValue(recordOut, materialize(value));
+        }
+        int length = record.size();
+        if (length > SEGMENT_SIZE) {
+            throw new ResultTooLargeException("Row too large to spill: " + length + " bytes");
+        }
+        // 不能跨段, 填充到下一段
+        long remaining = SEGMENT_SIZE - position % SEGMENT_SIZE;
+        if (length > remaining) {
+            byte[] zeros = new byte[8192];
+            for (long n = remaining; n > 0; n -= zeros.length) {
+                out.write(zeros, 0, (int) Math.min(n, zeros.length));
+            }
+            position += remaining;
+        }
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+        }
+        offsets[size++] = position;
+        record.writeTo(out);
+        position += length;
+    }
+
+    private void finish() throws IOException {
+        out.flush();
+        out = null;
+        int count = (int) ((position + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        MappedByteBuffer[] segments = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long start = (long) i * SEGMENT_SIZE;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, position - start));
+        }
+        this.segments = segments;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Row get(int i) {
+        MappedByteBuffer[] segments = this.segments;
+        if (closed || segments == null) {
+            throw new IllegalStateException("Result set closed");
+        }
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+        long offset = offsets[i];
+        // duplicate 后的位置互不影响, 可以多线程读取
+        ByteBuffer buf = segments[(int) (offset / SEGMENT_SIZE)].duplicate();
+        buf.position((int) (offset % SEGMENT_SIZE));
+        Object[] values = new Object[index.width()];
+        for (int c = 0; c < values.length; c++) {
+            values[c] = readValue(buf);
+        }
+        return new Row(index, values);
+    }
+
+    /**
+     * 关闭时不能有其它线程正在读取
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        MappedByteBuffer[] mapped = segments;
+        segments = null;
+        if (mapped != null) {
+            for (MappedByteBuffer segment : mapped) {
+                unmap(segment);
+            }
+        }
+        channel.close();
+    }
+
+    /**
+     * 立即解除映射, 否则要等到 GC 时才释放, Windows 上在此之前也不能删除文件
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if (UNMAPPER == null) {
+            return;
+        }
+        try {
+            UNMAPPER.accept(buffer);
+        } catch (RuntimeException e) {
+            // 交给 GC 释放
+        }
+    }
+
+    private static Consumer<ByteBuffer> unmapper() {
+        try {
+            // Java 9+
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            return buffer -> invoke(invokeCleaner, unsafe, buffer);
+        } catch (NoSuchMethodException e) {
+            // Java 8
+            try {
+                Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+                return buffer -> invoke(clean, invoke(cleaner, buffer));
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                return null;
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void closeLeaked() {
+        Reference<? extends RowList> ref;
+        while ((ref = LEAKED.poll()) != null) {
+            Leak leak = (Leak) ref;
+            LEAKS.remove(leak);
+            closeQuietly(leak.file);
+        }
+    }
+
+    private static void closeQuietly(SpillFile file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            file.close();
+        } catch (IOException e) {
+            //
+        }
+    }
+
+    /**
+     * 驱动返回的 LOB 在连接上读取, 关闭结果集后不能再读, 写入前读到内存: CLOB, SQLXML -> String, BLOB -> byte[]
+     */
+    private static Object materialize(Object value) throws SQLException {
+        if (value instanceof Clob) {
+            Clob clob = (Clob) value;
+            try {
+                return clob.getSubString(1, lobLength(clob.length()));
+            } finally {
+                clob.free();
+            }
+        }
+        if (value instanceof Blob) {
+            Blob blob = (Blob) value;
+            try {
+                return blob.getBytes(1, lobLength(blob.length()));
+            } finally {
+                blob.free();
+            }
+        }
+        if (value instanceof SQLXML) {
+            SQLXML xml = (SQLXML) value;
+            try {
+                return xml.getString();
+            } finally {
+                xml.free();
+            }
+        }
+        return value;
+    }
+
+    private static int lobLength(long length) {
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new ResultTooLargeException("LOB too large to spill: " + length);
+        }
+        return (int) length;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeBytes(out, ((String) value).getBytes(StandardCharsets.UTF_8));
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) value;
+            out.writeByte(BIG_DECIMAL);
+            out.writeInt(decimal.scale());
+            writeBytes(out, decimal.unscaledValue().toByteArray());
+        } else if (value instanceof BigInteger) {
+            out.writeByte(BIG_INTEGER);
+            writeBytes(out, ((BigInteger) value).toByteArray());
+        } else if (value instanceof byte[]) {
+            out.writeByte(BYTES);
+            writeBytes(out, (byte[]) value);
+        } else if (value instanceof Timestamp) {
+            Timestamp timestamp = (Timestamp) value;
+            out.writeByte(TIMESTAMP);
+            out.writeLong(timestamp.getTime());
+            out.writeInt(timestamp.getNanos());
+        } else if (value instanceof java.sql.Date) {
+            out.writeByte(SQL_DATE);
+            out.writeLong(((java.sql.Date) value).getTime());
+        } else if (value instanceof Time) {
+            out.writeByte(SQL_TIME);
+            out.writeLong(((Time) value).getTime());
+        } else if (value.getClass() == java.util.Date.class) {
+            out.writeByte(DATE);
+            out.writeLong(((java.util.Date) value).getTime());
+        } else if (value instanceof Serializable) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(value);
+            }
+            out.writeByte(OBJECT);
+            writeBytes(out, bytes.toByteArray());
+        } else {
+            throw new ResultTooLargeException("Cannot spill value of type: " + value.getClass().getName());
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static Object readValue(ByteBuffer buf) {
+        byte type = buf.get();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return new String(readBytes(buf), StandardCharsets.UTF_8);
+            case INT:
+                return buf.getInt();
+            case LONG:
+                return buf.getLong();
+            case DOUBLE:
+                return buf.getDouble();
+            case FLOAT:
+                return buf.getFloat();
+            case SHORT:
+                return buf.getShort();
+            case BYTE:
+                return buf.get();
+            case BOOLEAN:
+                return buf.get() != 0;
+            case BIG_DECIMAL:
+                int scale = buf.getInt();
+                return new BigDecimal(new BigInteger(readBytes(buf)), scale);
+            case BIG_INTEGER:
+                return new BigInteger(readBytes(buf));
+            case BYTES:
+                return readBytes(buf);
+            case TIMESTAMP:
+                Timestamp timestamp = new Timestamp(buf.getLong());
+                timestamp.setNanos(buf.getInt());
+                return timestamp;
+            case SQL_DATE:
+                return new java.sql.Date(buf.getLong());
+            case SQL_TIME:
+                return new Time(buf.getLong());
+            case DATE:
+                return new java.util.Date(buf.getLong());
+            case OBJECT:
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(readBytes(buf)))) {
+                    return in.readObject();
+                } catch (IOException | ClassNotFoundException e) {
+                    throw new SqlteException(e);
+                }
+            default:
+                throw new IllegalStateException("Unknown value type: " + type);
+        }
+    }
+
+    private static byte[] readBytes(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * 内存中的行 + 临时文件中的行, 只读
+     */
+    static final class RowList extends AbstractList<Row> implements RandomAccess, Closeable {
+        private final List<Row> head;
+        private final SpillFile tail;
+        private final Leak leak;
+
+        RowList(List<Row> head, SpillFile tail) {
+            this.head = head;
+            this.tail = tail;
+            this.leak = new Leak(this, tail);
+            LEAKS.add(leak);
+        }
+
+        @Override
+        public Row get(int i) {
+            int headSize = head.size();
+            return i < headSize ? head.get(i) : tail.get(i - headSize);
+        }
+
+        @Override
+        public int size() {
+            return head.size() + tail.size();
+        }
+
+        @Override
+        public void close() throws IOException {
+            LEAKS.remove(leak);
+            leak.clear();
+            tail.close();
+        }
+    }
+
+    /**
+     * 不能引用 RowList, 否则 RowList 不会被回收
+     */
+    private static final class Leak extends PhantomReference<RowList> {
+        private final SpillFile file;
+
+        Leak(RowList list, SpillFile file) {
+            super(list, LEAKED);
+            this.file = file;
+        }
+    }
+
+}
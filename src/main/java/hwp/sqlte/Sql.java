@@ -30,6 +30,25 @@ public interface Sql {
      */
     Object[] args();
 
+    /**
+     * 读取策略
+     *
+     * @return null 时逐行处理的查询(stream, query(sql, handler))使用 {@link Config#getFetchPolicy()},
+     * 一次读完全部结果的查询(query(sql), list)使用 {@link FetchPolicy#buffered()}
+     */
+    default FetchPolicy fetchPolicy() {
+        return null;
+    }
+
+    /**
+     * 查询结果在内存中的上限
+     *
+     * @return null 时使用 {@link Config#getResultBudget()}
+     */
+    default ResultBudget resultBudget() {
+        return null;
+    }
+
     default String id() {
         if (args() == null || args().length == 0) {
             return sql();
@@ -42,6 +61,15 @@ public interface Sql {
         return new SimpleSql(sql, args);
     }
 
+    /**
+     * 命名参数的 SQL, 见 {@link NamedSql}
+     *
+     * @param params Map, {@link Row} 或 JavaBean
+     */
+    static Sql named(String sql, Object params) {
+        return NamedSql.parse(sql).bind(params);
+    }
+
     static Config config() {
         return Config.getConfig();
     }
@@ -52,7 +80,8 @@ public interface Sql {
 
     static SqlConnection open() throws UncheckedSQLException {
         try {
-            return SqlConnectionImpl.use(config().getDataSource().getConnection());
+            DataSource dataSource = config().getDataSource();
+            return SqlConnectionImpl.use(dataSource, dataSource.getConnection());
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
         }
@@ -60,7 +89,8 @@ public interface Sql {
 
     static SqlConnection open(String dsName) throws UncheckedSQLException {
         try {
-            return SqlConnectionImpl.use(config().getDataSource(dsName).getConnection());
+            DataSource dataSource = config().getDataSource(dsName);
+            return SqlConnectionImpl.use(dataSource, dataSource.getConnection());
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
         }
@@ -68,14 +98,14 @@ public interface Sql {
 
     static SqlConnection open(DataSource dataSource) throws UncheckedSQLException {
         try {
-            return SqlConnectionImpl.use(dataSource.getConnection());
+            return SqlConnectionImpl.use(dataSource, dataSource.getConnection());
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
         }
     }
 
     static void use(DataSource dataSource, Consumer<SqlConnection> consumer) throws UncheckedSQLException {
-        try (SqlConnection conn = SqlConnectionImpl.use(dataSource.getConnection())) {
+        try (SqlConnection conn = SqlConnectionImpl.use(dataSource, dataSource.getConnection())) {
             consumer.accept(conn);
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
@@ -1,7 +1,8 @@
 package hwp.sqlte;
 
+import hwp.sqlte.dialect.Dialect;
+
 import java.lang.reflect.Array;
-import java.lang.reflect.Field;
 import java.util.*;
 import java.util.function.Consumer;
 
@@ -14,6 +15,9 @@ public class SqlBuilder implements Builder, Sql {
 
     private final List<Object> args = new ArrayList<>();
     private final StringBuilder sql = new StringBuilder();
+    private FetchPolicy fetchPolicy;
+    private ResultBudget resultBudget;
+    private Dialect dialect;
 
     public SqlBuilder() {
     }
@@ -36,6 +40,44 @@ public class SqlBuilder implements Builder, Sql {
         return this.args.toArray();
     }
 
+    @Override
+    public FetchPolicy fetchPolicy() {
+        return fetchPolicy;
+    }
+
+    @Override
+    public ResultBudget resultBudget() {
+        return resultBudget;
+    }
+
+    /**
+     * 分页使用的方言, 未设置时使用 {@link Config#getDialect()}. 通过 {@link SqlConnection} 创建的使用连接的方言
+     */
+    public SqlBuilder dialect(Dialect dialect) {
+        this.dialect = dialect;
+        return this;
+    }
+
+    private Dialect dialect() {
+        return dialect == null ? Config.getConfig().getDialect() : dialect;
+    }
+
+    /**
+     * 覆盖本次查询的读取策略
+     */
+    public SqlBuilder fetch(FetchPolicy fetchPolicy) {
+        this.fetchPolicy = fetchPolicy;
+        return this;
+    }
+
+    /**
+     * 覆盖本次查询结果在内存中的上限
+     */
+    public SqlBuilder budget(ResultBudget resultBudget) {
+        this.resultBudget = resultBudget;
+        return this;
+    }
+
 
     public SqlBuilder select(String columns) {
         Objects.requireNonNull(columns);
@@ -154,38 +196,43 @@ public class SqlBuilder implements Builder, Sql {
     }
 
     public SqlBuilder where(Object example) {
-        Class<?> clazz = example.getClass();
-        Field[] fields = clazz.getFields();
-        Where where = new Where();
-        ClassInfo info = ClassInfo.getClassInfo(clazz);
-        try {
-            for (Field field : fields) {
-                Object value = Helper.getSerializedValue(example, field);
-                if (value != null) {
-                    if (value instanceof String && ((String) value).trim().isEmpty()) {
-                        continue;
-                    }
-                    String column = info.getColumn(field);
-                    where.and(column + " = ?", value);
+        ClassInfo info = ClassInfo.getClassInfo(example.getClass());
+        FieldAccessor[] accessors = info.getAccessors();
+        boolean[] present = new boolean[accessors.length];
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < accessors.length; i++) {
+            Object value = Helper.getSerializedValue(example, accessors[i]);
+            if (value != null) {
+                if (value instanceof String && ((String) value).trim().isEmpty()) {
+                    continue;
                 }
+                present[i] = true;
+                values.add(value);
             }
-        } catch (IllegalAccessException e) {
-            //
         }
-        return this.where(where);
+        if (!values.isEmpty()) {
+            this.sql.append("WHERE ").append(info.getEntitySql(null).exampleWhere(present)).append(separator);
+            this.args.addAll(values);
+        }
+        return this;
     }
 
     public SqlBuilder paging(int page, int size) {
         return this.limit(Math.max(0, (page - 1) * size), Math.max(size, 1));
     }
 
+    /**
+     * 分页语法由 {@link #dialect(Dialect)} 决定
+     */
     public SqlBuilder limit(int first, int size) {
-        this.sql.append("LIMIT ").append(first).append(", ").append(size).append(separator);
+        dialect().paging(this.sql, first, size);
+        this.sql.append(separator);
         return this;
     }
 
     public SqlBuilder limit(int size) {
-        this.sql.append("LIMIT ").append(size).append(separator);
+        dialect().limit(this.sql, size);
+        this.sql.append(separator);
         return this;
     }
 
@@ -262,6 +309,13 @@ public class SqlBuilder implements Builder, Sql {
         return new SimpleSql(sql(), args());
     }
 
+    /**
+     * 按当前的 SQL 和参数个数生成可以重复使用的模板, 数组和集合参数按当前的长度展开
+     */
+    public PreparedQuery compile() {
+        return PreparedQuery.of(sql(), args.size(), fetchPolicy, resultBudget, dialect);
+    }
+
 
     private void addSeparator() {
         if (sql.length() > 0 && Character.isSpaceChar(sql.charAt(sql.length() - 1))) {
@@ -1,14 +1,21 @@
 package hwp.sqlte;
 
+import hwp.sqlte.dialect.Dialect;
+
 import java.io.Reader;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.function.BiConsumer;
-import java.util.function.Consumer;
-import java.util.function.Function;
-import java.util.function.Supplier;
+import java.util.concurrent.TimeUnit;
+import java.util.function.*;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 /**
  * @author Zero
@@ -19,6 +26,19 @@ public interface SqlConnection extends AutoCloseable {
     //    Query query() throws UncheckedSQLException;
     SqlConnection cacheable();
 
+    /**
+     * 缓存查询结果 ttl 时间, 见 {@link hwp.sqlte.cache.Cache#put(Object, Object, long, TimeUnit)}.
+     * 不支持过期的实现忽略 ttl, 和 {@link #cacheable()} 相同
+     *
+     * @throws IllegalArgumentException ttl &lt;= 0
+     */
+    default SqlConnection cacheable(long ttl, TimeUnit unit) {
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("ttl must be > 0: " + ttl);
+        }
+        return cacheable();
+    }
+
     SqlResultSet query(String sql, Object... args) throws UncheckedSQLException;
 
     default <T> SqlResultSet query(Class<T> returnType, Consumer<Where> where) throws UncheckedSQLException {
@@ -30,25 +50,36 @@ public interface SqlConnection extends AutoCloseable {
         return query(sql, (Object[]) null);
     }
 
+    /**
+     * 结果超出 {@link ResultBudget} 且写入了临时文件时, 使用完毕后需要关闭:
+     * <pre>
+     * try (SqlResultSet rs = conn.query(sql)) {
+     *     Row first = rs.first();
+     *     List&lt;User&gt; users = rs.list(User.class);
+     * }
+     * </pre>
+     *
+     * @see SqlResultSet#close()
+     */
     default SqlResultSet query(Sql sql) throws UncheckedSQLException {
         return query(sql.sql(), sql.args());
     }
 
     default SqlResultSet query(Consumer<SqlBuilder> consumer) throws UncheckedSQLException {
-        SqlBuilder sb = new SqlBuilder();
+        SqlBuilder sb = new SqlBuilder().dialect(dialect());
         consumer.accept(sb);
         return query(sb.sql(), sb.args());
     }
 
     default <T> Page<T> queryPage(Consumer<SqlBuilder> consumer, Supplier<T> supplier) throws UncheckedSQLException {
-        SqlBuilder sb = new SqlBuilder();
+        SqlBuilder sb = new SqlBuilder().dialect(dialect());
         consumer.accept(sb);
         String sql = sb.sql();
         int form = sql.lastIndexOf("LIMIT ");
         if (form == -1) {
             throw new IllegalArgumentException("Limit clause not found: " + sql);
         }
-        List<T> list = query(sql, sb.args()).list(supplier);
+        List<T> list = list(new SimpleSql(sql, sb.args()), supplier);
         String countSql = "SELECT COUNT(*) FROM (" + sql.substring(0, form) + ") AS _t";
         Long count = query(countSql, sb.args()).first(Long.class);
         return new Page<>(list, count);
@@ -67,7 +98,7 @@ public interface SqlConnection extends AutoCloseable {
      * @throws UncheckedSQLException
      */
     default void query(Consumer<SqlBuilder> consumer, RowHandler rowHandler) throws UncheckedSQLException {
-        SqlBuilder builder = new SqlBuilder();
+        SqlBuilder builder = new SqlBuilder().dialect(dialect());
         consumer.accept(builder);
         query(builder, rowHandler);
     }
@@ -76,17 +107,115 @@ public interface SqlConnection extends AutoCloseable {
     void query(Sql sql, ResultSetHandler rowHandler) throws UncheckedSQLException;
 
     default void query(Consumer<SqlBuilder> consumer, ResultSetHandler rowHandler) throws UncheckedSQLException {
-        SqlBuilder sb = new SqlBuilder();
+        SqlBuilder sb = new SqlBuilder().dialect(dialect());
         consumer.accept(sb);
         query(sb, rowHandler);
     }
 
+    /**
+     * 基于游标的惰性查询, 不会把结果全部加载到内存. 使用完毕后必须关闭流:
+     * <pre>
+     * try (Stream&lt;Row&gt; rows = conn.stream(Sql.create("SELECT * FROM users"))) {
+     *     rows.forEach(System.out::println);
+     * }
+     * </pre>
+     * MySQL 使用流式读取, 在流关闭之前该连接不能执行其他语句.
+     *
+     * @param sql sql
+     * @return 游标读取到末尾或关闭流时, 会释放 Statement
+     * @throws UncheckedSQLException if a database access error occurs
+     */
+    Stream<Row> stream(Sql sql) throws UncheckedSQLException;
+
+    default <T> Stream<T> stream(Sql sql, RowMapper<T> mapper) throws UncheckedSQLException {
+        return stream(sql).map(mapper);
+    }
+
+    default <T> Stream<T> stream(Sql sql, Class<T> clazz) throws UncheckedSQLException {
+        return stream(sql, new BeanMapper<>(clazz));
+    }
+
+    default Stream<Row> stream(Consumer<SqlBuilder> consumer) throws UncheckedSQLException {
+        SqlBuilder sb = new SqlBuilder().dialect(dialect());
+        consumer.accept(sb);
+        return stream(sb);
+    }
+
+    /**
+     * 基于 {@link #stream(Sql)} 的发布者, 按订阅者的 request(n) 读取游标, cancel 时关闭 Statement.
+     * 每次订阅都会重新执行查询, 在订阅结束之前该连接不能并发执行其他语句.
+     *
+     * @param sql    sql
+     * @param mapper 行映射
+     * @return 订阅且第一次 request 时才执行查询
+     */
+    default <T> QueryPublisher<T> publish(Sql sql, RowMapper<T> mapper) {
+        Objects.requireNonNull(sql, "sql can not be null");
+        Objects.requireNonNull(mapper, "mapper can not be null");
+        return new QueryPublisher<>(() -> stream(sql, mapper));
+    }
+
+    default <T> QueryPublisher<T> publish(Sql sql, Class<T> clazz) {
+        return publish(sql, new BeanMapper<>(clazz));
+    }
+
+    /**
+     * 读取第一列为 long, 不装箱. NULL 读取为 0
+     *
+     * @param sql sql
+     * @return 所有行第一列的值
+     * @throws UncheckedSQLException if a database access error occurs
+     */
+    default long[] queryLongs(Sql sql) throws UncheckedSQLException {
+        LongStream.Builder builder = LongStream.builder();
+        queryLongs(sql, builder);
+        return builder.build().toArray();
+    }
+
+    default void queryLongs(Sql sql, LongConsumer consumer) throws UncheckedSQLException {
+        query(sql, (ResultSetHandler) rs -> consumer.accept(rs.getLong(1)));
+    }
+
+    /**
+     * 读取第一列为 int, 不装箱. NULL 读取为 0
+     *
+     * @param sql sql
+     * @return 所有行第一列的值
+     * @throws UncheckedSQLException if a database access error occurs
+     */
+    default int[] queryInts(Sql sql) throws UncheckedSQLException {
+        IntStream.Builder builder = IntStream.builder();
+        queryInts(sql, builder);
+        return builder.build().toArray();
+    }
+
+    default void queryInts(Sql sql, IntConsumer consumer) throws UncheckedSQLException {
+        query(sql, (ResultSetHandler) rs -> consumer.accept(rs.getInt(1)));
+    }
+
+    /**
+     * 读取第一列为 double, 不装箱. NULL 读取为 0
+     *
+     * @param sql sql
+     * @return 所有行第一列的值
+     * @throws UncheckedSQLException if a database access error occurs
+     */
+    default double[] queryDoubles(Sql sql) throws UncheckedSQLException {
+        DoubleStream.Builder builder = DoubleStream.builder();
+        queryDoubles(sql, builder);
+        return builder.build().toArray();
+    }
+
+    default void queryDoubles(Sql sql, DoubleConsumer consumer) throws UncheckedSQLException {
+        query(sql, (ResultSetHandler) rs -> consumer.accept(rs.getDouble(1)));
+    }
+
     default long selectCount(String table, Where where) throws UncheckedSQLException {
         return query(sql -> sql.selectCount(table).where(where)).first(Long.class);
     }
 
     default boolean selectExists(Consumer<SqlBuilder> consumer) throws UncheckedSQLException {
-        SqlBuilder sql = new SqlBuilder();
+        SqlBuilder sql = new SqlBuilder().dialect(dialect());
         consumer.accept(sql);
         StringBuilder builder = new StringBuilder();
         builder.append("SELECT EXISTS(");
@@ -95,19 +224,66 @@ public interface SqlConnection extends AutoCloseable {
         return query(builder.toString(), sql.args()).first(Long.class) == 1;
     }
 
+    /**
+     * 直接从 ResultSet 映射为对象, 不生成中间的 Row
+     *
+     * @param sql      sql
+     * @param supplier 对象工厂
+     * @return 对象列表
+     * @throws UncheckedSQLException if a database access error occurs
+     */
+    <T> List<T> list(Sql sql, Supplier<T> supplier) throws UncheckedSQLException;
+
+    default <T> List<T> list(Sql sql, Class<T> clazz) throws UncheckedSQLException {
+        return list(sql, BeanMapper.supplier(clazz));
+    }
+
+    /**
+     * 按 IN 列表查询, 值的个数超过 {@link Dialect#maxInListSize()} 时分成几条语句查询, 结果按顺序合并.
+     * <pre>
+     * List&lt;User&gt; users = conn.listIn(ids, in -&gt; new SqlBuilder().from("users")
+     *         .where(where -&gt; where.and(Condition.in("id", in))), User.class);
+     * </pre>
+     *
+     * @param values IN 列表的值
+     * @param query  根据一批值生成语句
+     */
+    default <T> List<T> listIn(Collection<?> values, Function<Object[], Sql> query, Supplier<T> supplier) throws UncheckedSQLException {
+        Object[] all = values.toArray();
+        int chunk = Condition.inListChunkSize(dialect().maxInListSize());
+        if (all.length <= chunk) {
+            return list(query.apply(all), supplier);
+        }
+        List<T> list = new ArrayList<>(all.length);
+        for (int from = 0; from < all.length; from += chunk) {
+            Object[] part = Arrays.copyOfRange(all, from, Math.min(all.length, from + chunk));
+            list.addAll(list(query.apply(part), supplier));
+        }
+        return list;
+    }
+
+    default <T> List<T> listIn(Collection<?> values, Function<Object[], Sql> query, Class<T> clazz) throws UncheckedSQLException {
+        return listIn(values, query, BeanMapper.supplier(clazz));
+    }
+
     default <T> List<T> listAll(Class<T> clazz) {
         return list(clazz, null);
     }
 
     default <T> List<T> list(Class<T> clazz, Consumer<Where> consumer) {
         ClassInfo info = ClassInfo.getClassInfo(clazz);
-        return query(sql -> sql.from(info.getTableName()).where(consumer)).list(clazz);
+        SqlBuilder sb = new SqlBuilder().dialect(dialect());
+        sb.from(info.getTableName()).where(consumer);
+        return list(sb, clazz);
     }
 
     default <T> T firstExample(T example) {
         Class<T> clazz = (Class<T>) example.getClass();
         ClassInfo info = ClassInfo.getClassInfo(clazz);
-        return query(sql -> sql.from(info.getTableName()).where(example).limit(1)).first(clazz);
+        SqlBuilder sb = new SqlBuilder().dialect(dialect());
+        sb.from(info.getTableName()).where(example).limit(1);
+        List<T> list = list(sb, clazz);
+        return list.isEmpty() ? null : list.get(0);
     }
 
     int insert(String table, String columns, Object... args) throws UncheckedSQLException;
@@ -135,8 +311,12 @@ public interface SqlConnection extends AutoCloseable {
 
     int executeUpdate(String sql, Object... args) throws UncheckedSQLException;//execute
 
+    default int executeUpdate(Sql sql) throws UncheckedSQLException {
+        return this.executeUpdate(sql.sql(), sql.args());
+    }
+
     default int executeUpdate(Consumer<SqlBuilder> consumer) throws UncheckedSQLException {
-        SqlBuilder builder = new SqlBuilder();
+        SqlBuilder builder = new SqlBuilder().dialect(dialect());
         consumer.accept(builder);
         return this.executeUpdate(builder.sql(), builder.args());
     }
@@ -194,6 +374,16 @@ public interface SqlConnection extends AutoCloseable {
 
     void insertIgnore(Object bean, String table) throws UncheckedSQLException;
 
+    default void upsert(Object bean) throws UncheckedSQLException {
+        upsert(bean, null);
+    }
+
+    /**
+     * 插入, 主键冲突时更新其它列(值为 null 的属性不插入也不更新), 语法由 {@link hwp.sqlte.dialect.Dialect#upsert} 生成.
+     * 主键不能为 null, 不读取自动生成的键
+     */
+    void upsert(Object bean, String table) throws UncheckedSQLException;
+
     boolean update(Object bean, String table, String columns, boolean ignoreNullValue, Consumer<Where> where) throws UncheckedSQLException;
 
     default boolean update(Object bean, String table, Consumer<Where> where) throws UncheckedSQLException {
@@ -312,6 +502,13 @@ public interface SqlConnection extends AutoCloseable {
 
     void executeSqlScript(Reader reader, boolean ignoreError);
 
+    /**
+     * 使用自定义的 {@link ScriptRunner} 执行脚本, 例如设置批处理大小, 提交间隔和进度报告
+     */
+    default void executeSqlScript(Reader reader, ScriptRunner runner) throws UncheckedSQLException {
+        runner.runScript(connection(), reader);
+    }
+
     void statement(Consumer<Statement> consumer) throws UncheckedSQLException;
 
     void prepareStatement(String sql, Consumer<PreparedStatement> consumer) throws UncheckedSQLException;
@@ -364,4 +561,19 @@ public interface SqlConnection extends AutoCloseable {
     CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws UncheckedSQLException;
 
     Connection connection();
+
+    /**
+     * @return 连接对应的数据库方言, 按 DataSource 识别并缓存
+     */
+    Dialect dialect();
+
+    /**
+     * 内部使用的 PreparedStatement 缓存的统计, 见 {@link Config#setStatementCacheSize(int)}.
+     * 通过 {@link #prepareStatement(String)} 等方法直接创建的 Statement 不会缓存
+     *
+     * @return 没有开启缓存时返回 {@link StatementCacheStats#EMPTY}
+     */
+    default StatementCacheStats statementCacheStats() {
+        return StatementCacheStats.EMPTY;
+    }
 }
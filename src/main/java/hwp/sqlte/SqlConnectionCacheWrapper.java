@@ -1,27 +1,45 @@
 package hwp.sqlte;
 
 import hwp.sqlte.cache.Cache;
+import hwp.sqlte.cache.SingleFlight;
+import hwp.sqlte.dialect.Dialect;
 
 import java.io.Reader;
 import java.sql.*;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * @author Zero
  * Created on 2019/9/12.
  */
 class SqlConnectionCacheWrapper implements SqlConnection {
-    private Cache cache;
+    private static final SingleFlight<Object, Cached> LOADS = new SingleFlight<>();
+
+    private Cache<Object> cache;
     private SqlConnection delegate;
+    // 0 表示使用缓存自己的过期设置
+    private final long ttlNanos;
+
+    public SqlConnectionCacheWrapper(SqlConnection delegate, Cache<Object> cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.ttlNanos = 0;
+    }
 
-    public SqlConnectionCacheWrapper(SqlConnection delegate, Cache cache) {
+    SqlConnectionCacheWrapper(SqlConnection delegate, Cache<Object> cache, long ttlNanos) {
+        if (ttlNanos <= 0) {
+            throw new IllegalArgumentException("ttl must be > 0: " + ttlNanos);
+        }
         this.delegate = delegate;
         this.cache = cache;
+        this.ttlNanos = ttlNanos;
     }
 
     @Override
@@ -29,6 +47,11 @@ class SqlConnectionCacheWrapper implements SqlConnection {
         return this;
     }
 
+    @Override
+    public SqlConnection cacheable(long ttl, TimeUnit unit) {
+        return new SqlConnectionCacheWrapper(delegate, cache, unit.toNanos(ttl));
+    }
+
     @Override
     public SqlResultSet query(String sql) throws UncheckedSQLException {
         return this.query(new SimpleSql(sql));
@@ -41,12 +64,64 @@ class SqlConnectionCacheWrapper implements SqlConnection {
 
     @Override
     public SqlResultSet query(Sql sql) throws UncheckedSQLException {
-        SqlResultSet rs = (SqlResultSet) cache.get(sql.id());
-        if (rs == null) {
-            rs = delegate.query(sql);
-            cache.put(sql.id(), rs);
+        Object key = sql.id();
+        Cached cached = (Cached) cache.get(key);
+        if (cached != null && cached.isCurrent()) {
+            return cached.rs;
+        }
+        if (!shareable()) {
+            // 事务中读到的可能是未提交的数据, 不能给其它连接用
+            return delegate.query(sql);
+        }
+        // 同一个查询的并发未命中只有一个去查数据库, 其它的等待结果
+        SqlResultSet[] loaded = new SqlResultSet[1];
+        cached = LOADS.load(key, () -> {
+            Cached c = (Cached) cache.get(key);
+            if (c != null && c.isCurrent()) {
+                return c;
+            }
+            c = load(sql);
+            loaded[0] = c.rs;
+            return c;
+        });
+        if (loaded[0] != null) {
+            return loaded[0];
         }
-        return rs;
+        // 写入临时文件的结果需要调用者关闭, 不能共享
+        return cached.rs.isSpilled() ? delegate.query(sql) : cached.rs;
+    }
+
+    private boolean shareable() {
+        if (delegate instanceof SqlConnectionImpl) {
+            return !((SqlConnectionImpl) delegate).inTransaction();
+        }
+        return delegate.getAutoCommit();
+    }
+
+    private Cached load(Sql sql) {
+        // 先取快照, 查询期间的写入也会使结果失效
+        long version = TableVersions.snapshot();
+        SqlResultSet rs = delegate.query(sql);
+        String _sql = sql.sql();
+        if (_sql.charAt(0) == '#') {
+            _sql = Config.getConfig().getSqlProvider().resolve(_sql);
+        }
+        Cached cached = new Cached(rs, TableVersions.tablesOf(_sql), version);
+        // 写入临时文件的结果需要关闭, 不缓存
+        if (rs.isSpilled()) {
+            return cached;
+        }
+        if (ttlNanos > 0) {
+            cache.put(sql.id(), cached, ttlNanos, TimeUnit.NANOSECONDS);
+        } else {
+            cache.put(sql.id(), cached);
+        }
+        return cached;
+    }
+
+    @Override
+    public <T> List<T> list(Sql sql, Supplier<T> supplier) throws UncheckedSQLException {
+        return this.query(sql).list(supplier);
     }
 
     // ---------------------------
@@ -66,6 +141,11 @@ class SqlConnectionCacheWrapper implements SqlConnection {
         delegate.query(consumer, rowHandler);
     }
 
+    @Override
+    public Stream<Row> stream(Sql sql) throws UncheckedSQLException {
+        return delegate.stream(sql);
+    }
+
     @Override
     public void query(Sql sql, ResultSetHandler rowHandler) throws UncheckedSQLException {
         delegate.query(sql, rowHandler);
@@ -191,6 +271,11 @@ class SqlConnectionCacheWrapper implements SqlConnection {
         delegate.insertIgnore(bean, table);
     }
 
+    @Override
+    public void upsert(Object bean, String table) throws UncheckedSQLException {
+        delegate.upsert(bean, table);
+    }
+
     @Override
     public boolean update(Object bean, String table, String columns, boolean ignoreNullValue, Consumer<Where> where) throws UncheckedSQLException {
         return delegate.update(bean, table, columns, ignoreNullValue, where);
@@ -311,6 +396,11 @@ class SqlConnectionCacheWrapper implements SqlConnection {
         delegate.executeSqlScript(reader, ignoreError);
     }
 
+    @Override
+    public void executeSqlScript(Reader reader, ScriptRunner runner) {
+        delegate.executeSqlScript(reader, runner);
+    }
+
     @Override
     public void statement(Consumer<Statement> consumer) throws UncheckedSQLException {
         delegate.statement(consumer);
@@ -441,5 +531,33 @@ class SqlConnectionCacheWrapper implements SqlConnection {
         return delegate.connection();
     }
 
+    @Override
+    public Dialect dialect() {
+        return delegate.dialect();
+    }
+
+    @Override
+    public StatementCacheStats statementCacheStats() {
+        return delegate.statementCacheStats();
+    }
+
+    /**
+     * 缓存的查询结果和读取的表, version 之后这些表被写入时失效
+     */
+    static final class Cached {
+        final SqlResultSet rs;
+        final String[] tables;
+        final long version;
+
+        Cached(SqlResultSet rs, String[] tables, long version) {
+            this.rs = rs;
+            this.tables = tables;
+            this.version = version;
+        }
+
+        boolean isCurrent() {
+            return TableVersions.isCurrent(tables, version);
+        }
+    }
 
 }
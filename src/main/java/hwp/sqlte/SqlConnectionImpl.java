@@ -1,18 +1,22 @@
 package hwp.sqlte;
 
 
+import hwp.sqlte.dialect.Dialect;
+import hwp.sqlte.dialect.Dialects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.sql.DataSource;
 import java.io.Reader;
-import java.lang.reflect.Field;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * @author Zero
@@ -23,13 +27,36 @@ class SqlConnectionImpl implements SqlConnection {
     private static final Logger logger = LoggerFactory.getLogger(SqlConnection.class);
 
     private final Connection conn;
+    // 不知道 DataSource 时, 第一次使用时按连接识别
+    private Dialect dialect;
+    // 没有开启时为 null
+    private final StatementCache statements;
 
-    SqlConnectionImpl(Connection conn) {
+    // 事务中写入过的表, 提交或回滚时再使它们的查询缓存失效一次
+    private Set<String> writtenTables;
+
+    SqlConnectionImpl(Connection conn, Dialect dialect) {
         this.conn = conn;
+        this.dialect = dialect;
+        int cacheSize = Config.getConfig().getStatementCacheSize();
+        this.statements = cacheSize > 0 ? new StatementCache(conn, cacheSize) : null;
     }
 
     static SqlConnection use(Connection conn) {
-        return new SqlConnectionImpl(conn);
+        return new SqlConnectionImpl(conn, null);
+    }
+
+    static SqlConnectionImpl use(DataSource dataSource, Connection conn) {
+        try {
+            return new SqlConnectionImpl(conn, Dialects.of(dataSource, conn));
+        } catch (RuntimeException e) {
+            try {
+                conn.close();
+            } catch (SQLException ex) {
+                e.addSuppressed(ex);
+            }
+            throw e;
+        }
     }
 
     @Override
@@ -37,10 +64,25 @@ class SqlConnectionImpl implements SqlConnection {
         return new SqlConnectionCacheWrapper(this, Config.getConfig().getCache());
     }
 
+    @Override
+    public SqlConnection cacheable(long ttl, TimeUnit unit) {
+        return new SqlConnectionCacheWrapper(this, Config.getConfig().getCache(), unit.toNanos(ttl));
+    }
+
     @Override
     public void executeSqlScript(Reader reader, boolean ignoreError) {
         ScriptRunner runner = new ScriptRunner(!ignoreError, getAutoCommit());
-        runner.runScript(connection(), reader);
+        executeSqlScript(reader, runner);
+    }
+
+    @Override
+    public void executeSqlScript(Reader reader, ScriptRunner runner) throws UncheckedSQLException {
+        try {
+            runner.runScript(connection(), reader);
+        } finally {
+            // 脚本可能修改任意表
+            TableVersions.bumpAll();
+        }
     }
 
     @Override
@@ -49,16 +91,23 @@ class SqlConnectionImpl implements SqlConnection {
             consumer.accept(stat);
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
+        } finally {
+            // 不知道执行了什么语句
+            written();
         }
     }
 
     @Override
     public void prepareStatement(String sql, Consumer<PreparedStatement> consumer) throws UncheckedSQLException {
-        try (PreparedStatement stat = connection().prepareStatement(toSql(sql))) {
+        sql = toSql(sql);
+        try (PreparedStatement stat = prepare(sql)) {
             consumer.accept(stat);
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
         }
+        if (!isQuery(sql)) {
+            written(TableVersions.tablesOf(sql));
+        }
     }
 
 
@@ -70,7 +119,7 @@ class SqlConnectionImpl implements SqlConnection {
                 logger.debug("sql: {}", sql);
             }
             try (java.sql.ResultSet rs = stat.executeQuery(sql)) {
-                return Helper.convert(rs);
+                return Helper.convert(rs, Config.getConfig().getResultBudget());
             }
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
@@ -79,49 +128,105 @@ class SqlConnectionImpl implements SqlConnection {
 
     @Override
     public SqlResultSet query(String sql, Object... args) throws UncheckedSQLException {
-        sql = toSql(sql);
-        try (PreparedStatement stat = conn.prepareStatement(sql)) {
-            if (args.length > 0) {
+        return query(new SimpleSql(sql, args));
+    }
+
+    @Override
+    public SqlResultSet query(Sql sql) throws UncheckedSQLException {
+        String _sql = toSql(sql.sql());
+        Object[] args = sql.args();
+        FetchPolicy policy = materializedPolicy(sql);
+        boolean cursor = beginCursor(policy);
+        boolean completed = false;
+        try (PreparedStatement stat = createQueryStatement(_sql, policy)) {
+            if (args != null && args.length > 0) {
                 Helper.fillStatement(stat, args);
             }
             if (logger.isDebugEnabled()) {
-                logger.debug("sql: {}\t args: {}", sql, Arrays.toString(args));
+                logger.debug("sql: {}\t args: {}", _sql, Arrays.toString(args));
             }
+            SqlResultSet result;
             try (java.sql.ResultSet rs = stat.executeQuery()) {
-                return Helper.convert(rs);
+                result = Helper.convert(rs, resultBudget(sql));
             }
+            completed = true;
+            return result;
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
+        } finally {
+            endCursor(cursor, completed);
         }
     }
 
 
+    @Override
+    public <T> List<T> list(Sql sql, Supplier<T> supplier) throws UncheckedSQLException {
+        List<T> list = new ArrayList<>();
+        read(sql, supplier, Integer.MAX_VALUE, list::add);
+        return list;
+    }
+
+    /**
+     * 按映射计划把 ResultSet 的每一行直接写入对象
+     */
+    private <T> void read(Sql sql, Supplier<T> supplier, int maxRows, Consumer<T> consumer) throws UncheckedSQLException {
+        String _sql = toSql(sql.sql());
+        Object[] args = sql.args();
+        FetchPolicy policy = materializedPolicy(sql);
+        boolean cursor = beginCursor(policy);
+        boolean completed = false;
+        try (PreparedStatement stat = createQueryStatement(_sql, policy)) {
+            if (args != null && args.length > 0) {
+                Helper.fillStatement(stat, args);
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("sql: {}\t args: {}", _sql, Arrays.toString(args));
+            }
+            // 直接映射为对象, 不能写入临时文件, 只限制行数
+            ResultBudget budget = resultBudget(sql);
+            int budgetRows = budget.getMaxRows();
+            try (java.sql.ResultSet rs = stat.executeQuery()) {
+                ColumnIndex index = ColumnIndex.from(rs.getMetaData(), true);
+                Class<?> lastClass = null;
+                MappingPlan plan = null;
+                int count = 0;
+                while (count++ < maxRows && rs.next()) {
+                    if (budgetRows > 0 && count > budgetRows) {
+                        throw new ResultTooLargeException("Query result exceeds " + budget);
+                    }
+                    T bean = supplier.get();
+                    if (bean.getClass() != lastClass) {
+                        lastClass = bean.getClass();
+                        plan = index.mappingPlan(ClassInfo.getClassInfo(lastClass));
+                    }
+                    consumer.accept(plan.read(rs, bean));
+                }
+            }
+            completed = true;
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        } finally {
+            endCursor(cursor, completed);
+        }
+    }
+
     @Override
     public <T> T tryGet(Supplier<T> supplier, Object id) throws UncheckedSQLException {
         T bean = supplier.get();
-        ClassInfo info = ClassInfo.getClassInfo(bean.getClass());
-        String pkColumn = info.getPKColumn();
-        Row first = query("SELECT * FROM " + info.getTableName() + " WHERE " + pkColumn + "=?", id).first();
-        if (first == null) {
-            return null;
-        }
-        return first.copyTo(bean);
+        return load(bean, id);
     }
 
     @Override
     public <T> T tryGet(Class<T> clazz, Object id) throws SqlteException {
-        ClassInfo info = ClassInfo.getClassInfo(clazz);
-        String pkColumn = info.getPKColumn();
-        Row first = query("SELECT * FROM " + info.getTableName() + " WHERE " + pkColumn + "=?", id).first();
-        if (first == null) {
-            return null;
-        }
-        try {
-            T obj = clazz.getDeclaredConstructor().newInstance();
-            return first.copyTo(obj);
-        } catch (ReflectiveOperationException e) {
-            throw new SqlteException(e);
-        }
+        return load(BeanMapper.supplier(clazz).get(), id);
+    }
+
+    private <T> T load(T bean, Object id) throws UncheckedSQLException {
+        ClassInfo info = ClassInfo.getClassInfo(bean.getClass());
+        Sql sql = new SimpleSql(info.getEntitySql(null).selectById(), id);
+        Counter found = new Counter();
+        read(sql, () -> bean, 1, obj -> found.incrementAndGet());
+        return found.get() == 0 ? null : bean;
     }
 
     @Override
@@ -135,13 +240,13 @@ class SqlConnectionImpl implements SqlConnection {
         if (map.isEmpty()) {
             throw new IllegalArgumentException("map is empty");
         }
-        List<T> list = query(sql -> {
-            sql.from(info.getTableName()).where(where -> {
-                map.forEach((name, value) -> {
-                    where.and(name + " =?", value);
-                });
-            }).limit(2);
-        }).list(clazz);
+        SqlBuilder sql = new SqlBuilder().dialect(dialect());
+        sql.from(info.getTableName()).where(where -> {
+            map.forEach((name, value) -> {
+                where.and(name + " =?", value);
+            });
+        }).limit(2);
+        List<T> list = list(sql, clazz);
         if (list.isEmpty()) {
             return null;
         }
@@ -153,27 +258,25 @@ class SqlConnectionImpl implements SqlConnection {
 
     @Override
     public <T> T reload(T bean) throws UncheckedSQLException {
-        try {
-            ClassInfo info = ClassInfo.getClassInfo(bean.getClass());
-            String[] pkColumns = info.getPkColumns();
-            Where where = new Where();
-            for (String k : pkColumns) {
-                where.and(k + "=?", info.getField(k).get(bean));
-            }
-            Row first = query(sql -> sql.from(info.getTableName()).where(where)).first();
-            if (first == null) {
-                return null;
-            }
-            return first.copyTo(bean);
-        } catch (IllegalAccessException e) {
-            return bean;
+        ClassInfo info = ClassInfo.getClassInfo(bean.getClass());
+        String[] pkColumns = info.getPkColumns();
+        Object[] args = new Object[pkColumns.length];
+        for (int i = 0; i < pkColumns.length; i++) {
+            args[i] = info.getAccessor(pkColumns[i]).get(bean);
         }
+        Sql sql = new SimpleSql(info.getEntitySql(null).selectByPks(), args);
+        Counter found = new Counter();
+        read(sql, () -> bean, 1, obj -> found.incrementAndGet());
+        return found.get() == 0 ? null : bean;
     }
 
 
     @Override
     public void query(Sql sql, ResultSetHandler rowHandler) throws UncheckedSQLException {
-        try (PreparedStatement stat = createQueryStatement(sql.sql())) {
+        FetchPolicy policy = fetchPolicy(sql);
+        boolean cursor = beginCursor(policy);
+        boolean completed = false;
+        try (PreparedStatement stat = createQueryStatement(sql.sql(), policy)) {
             if (sql.args().length > 0) {
                 Helper.fillStatement(stat, sql.args());
             }
@@ -185,8 +288,11 @@ class SqlConnectionImpl implements SqlConnection {
                     rowHandler.accept(rs);
                 }
             }
+            completed = true;
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
+        } finally {
+            endCursor(cursor, completed);
         }
     }
 
@@ -194,7 +300,10 @@ class SqlConnectionImpl implements SqlConnection {
     @Override
     public void query(Sql sql, RowHandler rowHandler) throws UncheckedSQLException {
         String _sql = toSql(sql.sql());
-        try (PreparedStatement stat = createQueryStatement(_sql)) {
+        FetchPolicy policy = fetchPolicy(sql);
+        boolean cursor = beginCursor(policy);
+        boolean completed = false;
+        try (PreparedStatement stat = createQueryStatement(_sql, policy)) {
             if (sql.args().length > 0) {
                 Helper.fillStatement(stat, sql.args());
             }
@@ -202,23 +311,88 @@ class SqlConnectionImpl implements SqlConnection {
                 logger.debug("sql: {}\t args: {}", _sql, Arrays.toString(sql.args()));
             }
             try (java.sql.ResultSet rs = stat.executeQuery()) {
-                while (rs.next() && rowHandler.handle(Row.from(rs))) {
+                ColumnIndex index = ColumnIndex.from(rs.getMetaData(), false);
+                while (rs.next() && rowHandler.handle(Row.from(rs, index))) {
 
                 }
             }
+            completed = true;
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
+        } finally {
+            endCursor(cursor, completed);
         }
     }
 
 
-    private PreparedStatement createQueryStatement(String sql) throws UncheckedSQLException {
+    @Override
+    public Stream<Row> stream(Sql sql) throws UncheckedSQLException {
+        String _sql = toSql(sql.sql());
+        FetchPolicy policy = fetchPolicy(sql);
+        boolean cursor = beginCursor(policy);
+        PreparedStatement stat = null;
+        try {
+            stat = createQueryStatement(_sql, policy);
+            if (sql.args().length > 0) {
+                Helper.fillStatement(stat, sql.args());
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("sql: {}\t args: {}", _sql, Arrays.toString(sql.args()));
+            }
+            java.sql.ResultSet rs = stat.executeQuery();
+            ColumnIndex index = ColumnIndex.from(rs.getMetaData(), true);
+            return CursorSpliterator.stream(stat, rs, _rs -> Row.from(_rs, index))
+                    .onClose(() -> endCursor(cursor, true));
+        } catch (SQLException e) {
+            closeQuietly(stat);
+            endCursor(cursor, false);
+            throw new UncheckedSQLException(e);
+        } catch (RuntimeException e) {
+            closeQuietly(stat);
+            endCursor(cursor, false);
+            throw e;
+        }
+    }
+
+    private static void closeQuietly(Statement stat) {
+        if (stat == null) {
+            return;
+        }
+        try {
+            stat.close();
+        } catch (SQLException e) {
+            logger.error(e.getMessage());
+        }
+    }
+
+    private FetchPolicy fetchPolicy(Sql sql) {
+        FetchPolicy policy = sql.fetchPolicy();
+        return policy == null ? Config.getConfig().getFetchPolicy() : policy;
+    }
+
+    /**
+     * 一次读完全部结果的查询(query, list, tryGet 等)默认一次读取, 和以前一样; 只有单次查询指定了策略时才使用它
+     */
+    private FetchPolicy materializedPolicy(Sql sql) {
+        FetchPolicy policy = sql.fetchPolicy();
+        return policy == null ? FetchPolicy.buffered() : policy;
+    }
+
+    private ResultBudget resultBudget(Sql sql) {
+        ResultBudget budget = sql.resultBudget();
+        return budget == null ? Config.getConfig().getResultBudget() : budget;
+    }
+
+    private PreparedStatement createQueryStatement(String sql, FetchPolicy policy) throws UncheckedSQLException {
         try {
             sql = toSql(sql);
-            PreparedStatement stat = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-            if (isMySQL()) {
-                //jdbc规范: rows >= 0. MySQL有个例外, 可以是Integer.MIN_VALUE
-                stat.setFetchSize(Integer.MIN_VALUE);//防止查询大数据时MySQL OOM
+            PreparedStatement stat = prepare(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            int fetchSize = policy.isStreaming() ? dialect().streamingFetchSize(policy.getFetchSize()) : policy.getFetchSize();
+            if (fetchSize != 0) {
+                stat.setFetchSize(fetchSize);//防止查询大数据时OOM
+            }
+            if (policy.getMaxRows() > 0) {
+                stat.setMaxRows(policy.getMaxRows());
             }
             stat.setFetchDirection(ResultSet.FETCH_FORWARD);
             return stat;
@@ -227,6 +401,46 @@ class SqlConnectionImpl implements SqlConnection {
         }
     }
 
+    /**
+     * PostgreSQL 只有在非自动提交模式下才使用游标读取, 否则会把结果全部读取到内存
+     *
+     * @return 是否临时关闭了自动提交
+     */
+    private boolean beginCursor(FetchPolicy policy) throws UncheckedSQLException {
+        if (!policy.isStreaming() || policy.getFetchSize() <= 0) {
+            return false;
+        }
+        try {
+            if (dialect().cursorRequiresTransaction() && conn.getAutoCommit()) {
+                conn.setAutoCommit(false);
+                return true;
+            }
+            return false;
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * 恢复自动提交, 查询失败时回滚
+     */
+    private void endCursor(boolean cursor, boolean completed) throws UncheckedSQLException {
+        if (!cursor) {
+            return;
+        }
+        try {
+            if (!completed) {
+                conn.rollback();
+            }
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            if (completed) {
+                throw new UncheckedSQLException(e);
+            }
+            logger.error(e.getMessage());
+        }
+    }
+
     /////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
     @Override
@@ -237,7 +451,7 @@ class SqlConnectionImpl implements SqlConnection {
     @Override
     public void insert(Sql sql, ResultSetHandler resultHandler) throws UncheckedSQLException {
         String _sql = toSql(sql.sql());
-        try (PreparedStatement stat = conn.prepareStatement(_sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement stat = prepare(_sql, Statement.RETURN_GENERATED_KEYS)) {
             if (sql.args().length > 0) {
                 Helper.fillStatement(stat, sql.args());
             }
@@ -245,6 +459,7 @@ class SqlConnectionImpl implements SqlConnection {
                 logger.debug("sql: {}\t args: {}", _sql, Arrays.toString(sql.args()));
             }
             stat.executeUpdate();
+            written(TableVersions.tablesOf(_sql));
             try (ResultSet rs = stat.getGeneratedKeys()) {
                 if (rs != null && rs.next()) {
                     resultHandler.accept(rs);
@@ -258,7 +473,7 @@ class SqlConnectionImpl implements SqlConnection {
     @Override
     public Long insertAndReturnKey(String sql, String idColumn, Object... args) throws UncheckedSQLException {
         sql = toSql(sql);
-        try (PreparedStatement stat = conn.prepareStatement(sql, new String[]{idColumn})) {
+        try (PreparedStatement stat = prepare(sql, new String[]{idColumn})) {
             if (args.length > 0) {
                 Helper.fillStatement(stat, args);
             }
@@ -266,6 +481,7 @@ class SqlConnectionImpl implements SqlConnection {
                 logger.debug("sql: {}\t args: {}", sql, Arrays.toString(args));
             }
             int i = stat.executeUpdate();
+            written(TableVersions.tablesOf(sql));
             if (i > 0) {
                 try (ResultSet rs = stat.getGeneratedKeys()) {
                     if (rs != null && rs.next()) {
@@ -299,44 +515,68 @@ class SqlConnectionImpl implements SqlConnection {
         this.insert("INSERT IGNORE INTO", bean, table);
     }
 
-    private void insert(String insert, Object bean, String table) throws UncheckedSQLException {
+    @Override
+    public void upsert(Object bean, String table) throws UncheckedSQLException {
         ClassInfo info = ClassInfo.getClassInfo(bean.getClass());
-        if (table == null) {
-            table = info.getTableName();
+        FieldAccessor[] accessors = info.getAccessors();
+        boolean[] present = new boolean[accessors.length];
+        List<Object> values = new ArrayList<>(accessors.length);
+        for (int i = 0; i < accessors.length; i++) {
+            Object v = Helper.getSerializedValue(bean, accessors[i]);
+            if (v != null) {
+                present[i] = true;
+                values.add(v);
+            }
+        }
+        for (String pkColumn : info.getPkColumns()) {
+            if (!present[info.indexOf(pkColumn)]) {
+                throw new IllegalArgumentException("The ID field must not be null: " + pkColumn);
+            }
+        }
+        String sql = info.getEntitySql(table).upsert(dialect(), present);
+        try (PreparedStatement stat = prepare(sql)) {
+            Helper.fillStatement(stat, values.toArray(new Object[0]));
+            if (logger.isDebugEnabled()) {
+                logger.debug("sql: {}\t args: {}", sql, values);
+            }
+            stat.executeUpdate();
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
         }
-        Map<String, Field> columnFieldMap = info.getColumnFieldMap();
-        if (columnFieldMap.size() == 0) {
+        written(table == null ? info.getTableName() : table);
+    }
+
+    private void insert(String insert, Object bean, String table) throws UncheckedSQLException {
+        ClassInfo info = ClassInfo.getClassInfo(bean.getClass());
+        FieldAccessor[] accessors = info.getAccessors();
+        if (accessors.length == 0) {
             throw new IllegalArgumentException("The bean must contain public fields");
         }
-        List<String> columns = new ArrayList<>(columnFieldMap.size());
-        List<Object> values = new ArrayList<>(columnFieldMap.size());
-        try {
-            for (Map.Entry<String, Field> entry : columnFieldMap.entrySet()) {
-                Field field = entry.getValue();
-                Object v = Helper.getSerializedValue(bean, field);
-                if (v != null) {
-                    columns.add(entry.getKey());
-                    values.add(v);//enum->int
-                }
+        boolean[] present = new boolean[accessors.length];
+        List<Object> values = new ArrayList<>(accessors.length);
+        for (int i = 0; i < accessors.length; i++) {
+            Object v = Helper.getSerializedValue(bean, accessors[i]);
+            if (v != null) {
+                present[i] = true;
+                values.add(v);//enum->int
             }
-        } catch (Exception e) {
-            throw new SqlteException(e);
         }
-        if (columns.isEmpty()) {
+        if (values.isEmpty()) {
             throw new IllegalArgumentException("The bean must contain public fields and value is not null");
         }
 
         String[] returnColumns = info.getAutoGenerateColumns();
 
-        String sql = Helper.makeInsertSql(insert, table, columns.toArray(new String[0]));
+        String sql = info.getEntitySql(table).insert(insert, present);
         //Statement.RETURN_GENERATED_KEYS
-        try (PreparedStatement stat = returnColumns == null || returnColumns.length == 0 ? conn.prepareStatement(sql)
-                : conn.prepareStatement(sql, returnColumns)) {// new String[]{"id"}
+        try (PreparedStatement stat = returnColumns == null || returnColumns.length == 0 ? prepare(sql)
+                : prepare(sql, returnColumns)) {// new String[]{"id"}
             Helper.fillStatement(stat, values.toArray(new Object[0]));
             if (logger.isDebugEnabled()) {
                 logger.debug("sql: {}\t args: {}", sql, values);
             }
             int c = stat.executeUpdate();
+            written(table == null ? info.getTableName() : table);
             if (c == 0) {
                 return;
             }
@@ -348,39 +588,33 @@ class SqlConnectionImpl implements SqlConnection {
                     //Field field = bean.getClass().getField(idName);/
                     //Modifier.isFinal(field.getModifiers())
                     //MySQL: BigInteger
+                    //SQLite:last_insert_rowid()
+                    //MySQL:GENERATED_KEY
+                    if (dialect().generatedKeysByPosition()) {
+                        FieldAccessor accessor = info.getAccessor(returnColumns[0]);
+                        if (accessor != null) {
+                            Object id = keys.getObject(1, accessor.getType());//bug: MySQL driver 5.1.6 is not support
+                            accessor.set(bean, id);
+                        }
+                        return;
+                    }
                     ResultSetMetaData metaData = keys.getMetaData();
                     int cols = metaData.getColumnCount();
 //                    ConversionService conversion = Config.getConfig().getConversionService();
                     for (int i = 1; i <= cols; i++) {
                         String name = metaData.getColumnLabel(i);
-//                    System.out.println(name + " --> " + keys.getObject(name));
-                        //SQLite:last_insert_rowid()
-                        //MySQL:GENERATED_KEY
-                        String driverName = conn.getMetaData().getDriverName().toLowerCase();
-                        if (driverName.contains("sqlite") || driverName.contains("mysql")) {
-                            String idColumn = returnColumns[0];
-                            Field f = info.getField(idColumn);
-                            if (f != null) {
-                                Object id = keys.getObject(1, f.getType());//bug: MySQL driver 5.1.6 is not support
-                                f.set(bean, id);
-                                break;
-                            }
-                            break;
-                        }
                         for (String column : info.getColumns()) {
                             if (column.equalsIgnoreCase(name)) {
-                                Field f = info.getField(column);
-                                if (f != null) {
-                                    Object id = keys.getObject(i, f.getType());
-                                    f.set(bean, id);
+                                FieldAccessor accessor = info.getAccessor(column);
+                                if (accessor != null) {
+                                    Object id = keys.getObject(i, accessor.getType());
+                                    accessor.set(bean, id);
                                 }
                                 break;
                             }
                         }
                     }
                 }
-            } catch (IllegalAccessException e) {
-                throw new SqlteException(e);
             }
         } catch (SQLException e) {
 //            e.printStackTrace();
@@ -425,23 +659,24 @@ class SqlConnectionImpl implements SqlConnection {
     @Override
     public <T> BatchUpdateResult batchInsert(Consumer<Consumer<T>> consumer, Class<T> clazz, String table, Function<String, String> sqlProcessor, BiConsumer<PreparedStatement, int[]> psConsumer) throws UncheckedSQLException {
         ClassInfo info = ClassInfo.getClassInfo(clazz);
-        if (table == null) {
-            table = info.getTableName();
-        }
         String[] columns = info.getInsertColumns();
-        String sql = sqlProcessor == null ? Helper.makeInsertSql(table, columns) : sqlProcessor.apply(Helper.makeInsertSql(table, columns));
-        try (PreparedStatement stat = conn.prepareStatement(sql, info.getAutoGenerateColumns())) {
-            return batchUpdate(stat, 500, executor -> {
+        FieldAccessor[] accessors = new FieldAccessor[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            accessors[i] = info.getAccessor(columns[i]);
+        }
+        String insertSql = info.getEntitySql(table).insertAll();
+        String sql = sqlProcessor == null ? insertSql : sqlProcessor.apply(insertSql);
+        try (PreparedStatement stat = prepare(sql, info.getAutoGenerateColumns())) {
+            BatchUpdateResult result = batchUpdate(stat, 500, executor -> {
                 AtomicBoolean b = new AtomicBoolean(true);
                 consumer.accept(bean -> {
                     try {
-                        Object[] args = new Object[columns.length];
-                        for (int i = 0; i < columns.length; i++) {
-                            Field field = info.getField(columns[i]);
-                            args[i] = Helper.getSerializedValue(bean, field);
+                        Object[] args = new Object[accessors.length];
+                        for (int i = 0; i < accessors.length; i++) {
+                            args[i] = Helper.getSerializedValue(bean, accessors[i]);
                         }
                         executor.exec(args);
-                    } catch (IllegalArgumentException | IllegalAccessException e) {
+                    } catch (IllegalArgumentException | ClassCastException e) {
                         if (b.get()) {
                             logger.error("batchUpdate error: {} \t sql: {}", e.getMessage(), sql);
                             b.set(false);
@@ -449,6 +684,8 @@ class SqlConnectionImpl implements SqlConnection {
                     }
                 });
             }, psConsumer);
+            written(table == null ? info.getTableName() : table);
+            return result;
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
         }
@@ -484,26 +721,27 @@ class SqlConnectionImpl implements SqlConnection {
     private int insertMap(String insert, String table, Map<String, Object> row, String... returnColumns) throws UncheckedSQLException {
         String sql = Helper.makeInsertSql(insert, table, row.keySet().toArray(new String[0]));
 //      insert(sql, row.values().toArray());
-        try (PreparedStatement stat = (returnColumns == null ? conn.prepareStatement(sql)
-                : conn.prepareStatement(sql, returnColumns))) {//Statement.RETURN_GENERATED_KEYS
+        try (PreparedStatement stat = (returnColumns == null ? prepare(sql)
+                : prepare(sql, returnColumns))) {//Statement.RETURN_GENERATED_KEYS
             if (logger.isDebugEnabled()) {
                 logger.debug("sql: {}\t args: {}", sql, row.values());
             }
             Helper.fillStatement(stat, row.values().toArray());
             int uc = stat.executeUpdate();
+            written(table);
             if (uc == 0) {
                 return 0;
             }
             if (returnColumns != null && returnColumns.length > 0) {
                 try (ResultSet keys = stat.getGeneratedKeys()) {
-                    boolean isMysql = isMySQL();
+                    boolean byPosition = dialect().generatedKeysByPosition();
                     if (keys != null && keys.next()) {
                         ResultSetMetaData metaData = keys.getMetaData();
                         int cols = metaData.getColumnCount();
                         for (int i = 1; i <= cols; i++) {
                             String name = metaData.getColumnLabel(i);
-                            //mysql会返回GENERATED_KEY, 没有实现JDBC规范
-                            if ("GENERATED_KEY".equals(name) && isMysql) {
+                            //mysql会返回GENERATED_KEY, sqlite会返回last_insert_rowid(), 没有实现JDBC规范
+                            if (byPosition) {
                                 row.put(returnColumns[0].toLowerCase(), keys.getObject(i));
                                 break;
                             }
@@ -524,12 +762,14 @@ class SqlConnectionImpl implements SqlConnection {
     @Override
     public int executeUpdate(String sql, Object... args) throws UncheckedSQLException {
         sql = toSql(sql);
-        try (PreparedStatement statement = conn.prepareStatement(sql)) {
+        try (PreparedStatement statement = prepare(sql)) {
             if (logger.isDebugEnabled()) {
                 logger.debug("sql: {}\t args: {}", sql, Arrays.toString(args));
             }
             Helper.fillStatement(statement, args);
-            return statement.executeUpdate();
+            int count = statement.executeUpdate();
+            written(TableVersions.tablesOf(sql));
+            return count;
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
         }
@@ -537,15 +777,17 @@ class SqlConnectionImpl implements SqlConnection {
 
     @Override
     public int update(Consumer<SqlBuilder> consumer) throws UncheckedSQLException {
-        SqlBuilder builder = new SqlBuilder();
+        SqlBuilder builder = new SqlBuilder().dialect(dialect());
         consumer.accept(builder);
         String sql = toSql(builder.sql());
         if (logger.isDebugEnabled()) {
             logger.debug("sql: {}\t args: {}", sql, Arrays.toString(builder.args()));
         }
-        try (PreparedStatement statement = conn.prepareStatement(sql)) {
+        try (PreparedStatement statement = prepare(sql)) {
             Helper.fillStatement(statement, builder.args());
-            return statement.executeUpdate();
+            int count = statement.executeUpdate();
+            written(TableVersions.tablesOf(sql));
+            return count;
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
         }
@@ -553,82 +795,75 @@ class SqlConnectionImpl implements SqlConnection {
 
     @Override
     public boolean update(Object bean, String table, String columns, boolean ignoreNullValue, Consumer<Where> where) throws UncheckedSQLException {
-        try {
-            ClassInfo info = ClassInfo.getClassInfo(bean.getClass());
+        ClassInfo info = ClassInfo.getClassInfo(bean.getClass());
 
-            String[] _columns;
-            if (columns == null) {
-                _columns = info.getUpdateColumns();
-            } else {
-                _columns = columns.trim().split("\\s*,\\s*");
-            }
+        String[] _columns;
+        if (columns == null) {
+            _columns = info.getUpdateColumns();
+        } else {
+            _columns = columns.trim().split("\\s*,\\s*");
+        }
 
-            if (_columns.length == 0) {
-                throw new IllegalArgumentException("No fields to modify: " + columns);
-            }
+        if (_columns.length == 0) {
+            throw new IllegalArgumentException("No fields to modify: " + columns);
+        }
 
-            Object[] args = new Object[_columns.length];
-            int nullCount = 0;
-            for (int i = 0; i < _columns.length; i++) {
-                String column = _columns[i];
-                Field field = info.getField(column);
-                if (field == null) {
-                    throw new IllegalArgumentException("No field mapping: " + column);
-                }
-                args[i] = Helper.getSerializedValue(bean, field);
-                if (args[i] == null) {
-                    nullCount++;
-                }
+        FieldAccessor[] accessors = info.getAccessors();
+        boolean[] present = new boolean[accessors.length];
+        Object[] values = new Object[accessors.length];
+        int count = 0;
+        for (String column : _columns) {
+            int i = info.indexOf(column);
+            if (i == -1) {
+                throw new IllegalArgumentException("No field mapping: " + column);
             }
-            if (ignoreNullValue && nullCount > 0) {
-                int updateColumnCount = _columns.length - nullCount;
-                if (updateColumnCount < 1) {
-//                    throw new UncheckedException("No fields to update");
-                    return false;
-                }
-                String[] newColumns = new String[updateColumnCount];
-                Object[] newArgs = new Object[updateColumnCount];
-                for (int i = 0, ci = 0; i < args.length; i++) {
-                    Object v = args[i];
-                    if (v != null) {
-                        newColumns[ci] = _columns[i];
-                        newArgs[ci] = v;
-                        ci++;
-                    }
-                }
-                args = newArgs;
-                _columns = newColumns;
+            Object v = Helper.getSerializedValue(bean, accessors[i]);
+            if (v == null && ignoreNullValue) {
+                continue;
             }
-            if (table == null) {
-                table = info.getTableName();
+            if (!present[i]) {
+                present[i] = true;
+                values[i] = v;
+                count++;
             }
-            String sql = Helper.makeUpdateSql(table, _columns);
-            SqlBuilder builder = new SqlBuilder();
-            builder.append(sql, args);
+        }
+        if (count == 0) {
+//                    throw new UncheckedException("No fields to update");
+            return false;
+        }
+        List<Object> args = new ArrayList<>(count + 2);
+        for (int i = 0; i < present.length; i++) {
+            if (present[i]) {
+                args.add(values[i]);
+            }
+        }
 
-            Where where0 = new Where();
-            if (where == null) {
-                String[] pkColumns = info.getPkColumns();
-                if (pkColumns.length == 0) {
-                    throw new IllegalArgumentException("No key field mapping for " + bean.getClass().getName());
-                }
-                for (String k : pkColumns) {
-                    Field field = info.getField(k);
-                    Object idValue = field.get(bean);
-                    if (idValue == null) {
-                        throw new IllegalArgumentException("Key field value is null: " + field.getName());
-                    }
-                    where0.and(k + "=?", idValue);
+        EntitySql entitySql = info.getEntitySql(table);
+        String sql;
+        if (where == null) {
+            String[] pkColumns = info.getPkColumns();
+            if (pkColumns.length == 0) {
+                throw new IllegalArgumentException("No key field mapping for " + bean.getClass().getName());
+            }
+            for (String k : pkColumns) {
+                FieldAccessor accessor = info.getAccessor(k);
+                Object idValue = accessor.get(bean);
+                if (idValue == null) {
+                    throw new IllegalArgumentException("Key field value is null: " + accessor.getField().getName());
                 }
-            } else {
-                where.accept(where0);
+                args.add(idValue);
+            }
+            sql = entitySql.updateByPks(present);
+        } else {
+            Where where0 = new Where();
+            where.accept(where0);
+            sql = entitySql.update(present);
+            if (!where0.isEmpty()) {
+                sql = sql + " WHERE " + where0.sql();
+                args.addAll(where0.args());
             }
-            builder.where(where0);
-            return executeUpdate(builder.sql(), builder.args()) == 1;
-        } catch (IllegalAccessException e) {
-            //Never happen
-            return false;
         }
+        return executeUpdate(sql, args.toArray()) == 1;
     }
 
 
@@ -667,8 +902,9 @@ class SqlConnectionImpl implements SqlConnection {
     @Override
     public BatchUpdateResult batchInsert(String table, String columns, Consumer<BatchExecutor> consumer)
             throws UncheckedSQLException {
-        String sql = Helper.makeInsertSql(table, columns);
-        return this.batchUpdate(sql, consumer);
+        String[] columnNames = columns.split(",");
+        String sql = Helper.makeInsertSql(table, columnNames);
+        return this.batchUpdate(sql, 1000, consumer);
     }
 
     @Override
@@ -678,8 +914,10 @@ class SqlConnectionImpl implements SqlConnection {
         if (logger.isDebugEnabled()) {
             logger.debug("sql: {}", sql);
         }
-        try (PreparedStatement statement = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
-            return batchUpdate(statement, batchSize, consumer, null);
+        try (PreparedStatement statement = prepare(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            BatchUpdateResult result = batchUpdate(statement, batchSize, consumer, null);
+            written(TableVersions.tablesOf(sql));
+            return result;
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
         }
@@ -789,30 +1027,19 @@ class SqlConnectionImpl implements SqlConnection {
 
     @Override
     public boolean delete(Object bean, String table) throws UncheckedSQLException {
-        try {
-            ClassInfo info = ClassInfo.getClassInfo(bean.getClass());
-            if (table == null) {
-                table = info.getTableName();
-            }
-            String[] pkColumns = info.getPkColumns();
-            if (pkColumns.length == 0) {
-                throw new IllegalArgumentException("The class unspecified ID field: " + bean.getClass().getName());
-            }
-            SqlBuilder builder = new SqlBuilder();
-            builder.append("DELETE FROM ").append(table);
-
-            Where where = new Where();
-            for (String pkColumn : pkColumns) {
-                Field field = info.getField(pkColumn);
-                Object value = Helper.getSerializedValue(bean, field);
-                Objects.requireNonNull(value, "ID field value is NULL: " + bean.getClass().getName() + "." + field.getName());
-                where.and(pkColumn + "=?", value);
-            }
-            builder.where(where);
-            return executeUpdate(builder.sql(), builder.args()) == 1;
-        } catch (IllegalAccessException e) {
-            throw new UncheckedSQLException(e);
+        ClassInfo info = ClassInfo.getClassInfo(bean.getClass());
+        String[] pkColumns = info.getPkColumns();
+        if (pkColumns.length == 0) {
+            throw new IllegalArgumentException("The class unspecified ID field: " + bean.getClass().getName());
         }
+        Object[] args = new Object[pkColumns.length];
+        for (int i = 0; i < pkColumns.length; i++) {
+            FieldAccessor accessor = info.getAccessor(pkColumns[i]);
+            Object value = Helper.getSerializedValue(bean, accessor);
+            Objects.requireNonNull(value, "ID field value is NULL: " + bean.getClass().getName() + "." + accessor.getField().getName());
+            args[i] = value;
+        }
+        return executeUpdate(info.getEntitySql(table).deleteByPks(), args) == 1;
     }
 
 
@@ -829,12 +1056,14 @@ class SqlConnectionImpl implements SqlConnection {
             }
         }
         builder.where(where);
-        try (PreparedStatement statement = conn.prepareStatement(builder.sql())) {
+        try (PreparedStatement statement = prepare(builder.sql())) {
             if (logger.isDebugEnabled()) {
                 logger.debug("update: {}\t args: {}", builder.sql(), Arrays.toString(builder.args()));
             }
             Helper.fillStatement(statement, builder.args());
-            return statement.executeUpdate();
+            int count = statement.executeUpdate();
+            written(table);
+            return count;
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
         }
@@ -901,6 +1130,10 @@ class SqlConnectionImpl implements SqlConnection {
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
         }
+        if (autoCommit) {
+            // 打开自动提交时会提交当前事务
+            endTransaction(true);
+        }
     }
 
     @Override
@@ -918,6 +1151,8 @@ class SqlConnectionImpl implements SqlConnection {
             conn.commit();
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
+        } finally {
+            endTransaction(true);
         }
     }
 
@@ -927,13 +1162,19 @@ class SqlConnectionImpl implements SqlConnection {
             conn.rollback();
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
+        } finally {
+            endTransaction(true);
         }
     }
 
     @Override
     public void close() throws UncheckedSQLException {
         try {
+            if (statements != null) {
+                statements.close();
+            }
             conn.setAutoCommit(true);
+            endTransaction(true);
             conn.close();
             if (logger.isDebugEnabled()) {
                 logger.debug("SqlConnection closed");
@@ -943,6 +1184,20 @@ class SqlConnectionImpl implements SqlConnection {
         }
     }
 
+    /**
+     * 连接由 {@link SqlteTemplate} 归还时调用: 关闭缓存的语句并结束写入记录, 但不关闭连接.
+     * 连接的事务可能由外部管理, 不会经过 {@link #commit()}, 所以在这里使写入过的表再失效一次
+     */
+    void release() {
+        try {
+            if (statements != null) {
+                statements.close();
+            }
+        } finally {
+            endTransaction(true);
+        }
+    }
+
     @Override
     public boolean isClosed() throws UncheckedSQLException {
         try {
@@ -1034,6 +1289,9 @@ class SqlConnectionImpl implements SqlConnection {
             conn.rollback(savepoint);
         } catch (SQLException e) {
             throw new UncheckedSQLException(e);
+        } finally {
+            // 事务还没有结束, 保留记录
+            endTransaction(false);
         }
     }
 
@@ -1117,16 +1375,96 @@ class SqlConnectionImpl implements SqlConnection {
         return this.conn;
     }
 
+    @Override
+    public StatementCacheStats statementCacheStats() {
+        return statements == null ? StatementCacheStats.EMPTY : statements.stats();
+    }
+
+    /////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // 内部使用的 Statement, 开启缓存时 close() 会放回缓存
+
+    private PreparedStatement prepare(String sql) throws SQLException {
+        return statements == null ? conn.prepareStatement(sql) : statements.prepare(sql);
+    }
+
+    private PreparedStatement prepare(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        return statements == null ? conn.prepareStatement(sql, resultSetType, resultSetConcurrency)
+                : statements.prepare(sql, resultSetType, resultSetConcurrency);
+    }
+
+    private PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        return statements == null ? conn.prepareStatement(sql, autoGeneratedKeys) : statements.prepare(sql, autoGeneratedKeys);
+    }
+
+    private PreparedStatement prepare(String sql, String[] columnNames) throws SQLException {
+        return statements == null ? conn.prepareStatement(sql, columnNames) : statements.prepare(sql, columnNames);
+    }
+
+    /**
+     * 写入后使这些表上缓存的查询结果失效, 没有表名时全部失效.
+     * 事务中的写入在提交前对其它连接不可见, 其它连接在这期间可能缓存旧数据, 所以结束事务时再失效一次
+     */
+    private void written(String... tables) {
+        TableVersions.bump(tables);
+        try {
+            if (!conn.getAutoCommit()) {
+                if (writtenTables == null) {
+                    writtenTables = new HashSet<>();
+                }
+                if (tables.length == 0) {
+                    // 空集合表示全部
+                    writtenTables.add("");
+                } else {
+                    Collections.addAll(writtenTables, tables);
+                }
+            }
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * @return 关闭了自动提交或者有还没有结束的写入, 这时读到的数据其它连接不一定能看到
+     */
+    boolean inTransaction() {
+        return (writtenTables != null && !writtenTables.isEmpty()) || !getAutoCommit();
+    }
+
+    private void endTransaction(boolean clear) {
+        if (writtenTables == null || writtenTables.isEmpty()) {
+            return;
+        }
+        if (writtenTables.contains("")) {
+            TableVersions.bumpAll();
+        } else {
+            TableVersions.bump(writtenTables.toArray(new String[0]));
+        }
+        if (clear) {
+            writtenTables.clear();
+        }
+    }
+
+    private static boolean isQuery(String sql) {
+        int i = 0;
+        while (i < sql.length() && (Character.isWhitespace(sql.charAt(i)) || sql.charAt(i) == '(')) {
+            i++;
+        }
+        return sql.regionMatches(true, i, "SELECT", 0, 6);
+    }
+
     private String toSql(String sql) {
         if (sql.charAt(0) == '#') {
-            return Config.getConfig().getSqlProvider().getSql(sql.substring(1));
+            return Config.getConfig().getSqlProvider().resolve(sql);
         }
         return sql;
     }
 
-    private boolean isMySQL() throws SQLException {
-        String driverName = conn.getMetaData().getDriverName().toLowerCase();
-        return driverName.contains("mysql");
+    @Override
+    public Dialect dialect() {
+        if (dialect == null) {
+            dialect = Dialects.detect(conn);
+        }
+        return dialect;
     }
 
 
@@ -4,10 +4,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * @author Zero
@@ -17,55 +19,231 @@ public interface SqlProvider {
 
     String getSql(String key);
 
+    /**
+     * @param sql 以 # 开头时按 key 查找, 例如 #user.login
+     * @return 找到的 SQL, 不以 # 开头时原样返回
+     */
+    default String resolve(String sql) {
+        return sql.charAt(0) == '#' ? getSql(sql.substring(1)) : sql;
+    }
+
     static SqlProvider Default() {
         return DefaultSqlProvider.def;
     }
 
+    /**
+     * 开发时使用, classpath 目录中的 .sql 文件修改后自动重新加载
+     */
+    static SqlProvider hotReload() {
+        DefaultSqlProvider provider = new DefaultSqlProvider();
+        provider.watch();
+        return provider;
+    }
+
+    /**
+     * 第一次使用时索引 classpath 目录中所有的 .sql 文件, 不在目录中的(例如 jar 中的)按前缀加载.
+     * 索引不可变, 加载时整体替换, 查找不加锁; 不存在的 key 和文件也会记录, 不会重复读取.
+     * <p>
+     * default.sql 中的 key 没有前缀, 其它文件的 key 为 &lt;文件名去掉扩展名&gt;.id
+     */
     class DefaultSqlProvider implements SqlProvider {
         private static Logger logger = LoggerFactory.getLogger(SqlProvider.class);
         private static DefaultSqlProvider def = new DefaultSqlProvider();
 
-        private Map<String, String> sqlMap = new HashMap<>();
+        private static final String DEFAULT_FILE = "default";
+
+        private volatile Index index = Index.EMPTY;
+        // 加载和监视时持有, 不用 synchronized 以免加载文件时固定虚拟线程的载体线程
+        private final ReentrantLock lock = new ReentrantLock();
+        private boolean scanned;
+        // 监视的目录 -> 目录中的文件可以重新加载
+        private WatchService watchService;
+        private final Set<Path> watchedDirs = new HashSet<>();
 
         private DefaultSqlProvider() {
         }
 
         @Override
         public String getSql(String sqlKey) {
-            String s = sqlMap.get(sqlKey);
-            if (s != null) {
-                return s;
+            Index index = this.index;
+            String sql = index.sqls.get(sqlKey);
+            if (sql != null) {
+                return sql;
             }
             int i = sqlKey.indexOf('.');
-            if (i == -1) {
-                URL url = SqlProvider.class.getResource("/default.sql");
-                if (url == null) {
-                    throw new UncheckedIOException(new FileNotFoundException("The default.sql file is not found in classpath"));
+            String file = i == -1 ? DEFAULT_FILE : sqlKey.substring(0, i);
+            if (!index.files.containsKey(file)) {
+                index = load(file);
+                sql = index.sqls.get(sqlKey);
+                if (sql != null) {
+                    return sql;
+                }
+            }
+            if (index.files.get(file) == null) {
+                throw new UncheckedIOException(new FileNotFoundException("The " + file + ".sql file is not found in classpath"));
+            }
+            return null;
+        }
+
+        /**
+         * 命中时只有一次 Map 查找, 不需要截取 key
+         */
+        @Override
+        public String resolve(String sql) {
+            if (sql.charAt(0) != '#') {
+                return sql;
+            }
+            String s = index.refs.get(sql);
+            return s != null ? s : getSql(sql.substring(1));
+        }
+
+        private Index load(String file) {
+            lock.lock();
+            try {
+                if (!scanned) {
+                    scanned = true;
+                    scan();
+                }
+                if (!index.files.containsKey(file)) {
+                    URL url = SqlProvider.class.getResource("/" + file + ".sql");
+                    Map<String, String> sqls = null;
+                    if (url != null) {
+                        try {
+                            sqls = parse(url, file);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        watch(url);
+                    }
+                    publish(file, sqls);
+                }
+                return index;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 索引 classpath 目录根下的 .sql 文件
+         */
+        private void scan() {
+            try {
+                Enumeration<URL> roots = SqlProvider.class.getClassLoader().getResources("");
+                while (roots.hasMoreElements()) {
+                    URL root = roots.nextElement();
+                    if (!"file".equals(root.getProtocol())) {
+                        continue;
+                    }
+                    File[] files = new File(root.toURI()).listFiles((dir, name) -> name.endsWith(".sql"));
+                    if (files == null) {
+                        continue;
+                    }
+                    for (File f : files) {
+                        String name = f.getName().substring(0, f.getName().length() - 4);
+                        if (!index.files.containsKey(name)) {
+                            URL url = f.toURI().toURL();
+                            publish(name, parse(url, name));
+                            watch(url);
+                        }
+                    }
+                }
+            } catch (IOException | URISyntaxException e) {
+                logger.warn("failed to scan sql files: {}", e.getMessage());
+            }
+        }
+
+        /**
+         * @param sqls 为 null 表示文件不存在
+         */
+        private void publish(String file, Map<String, String> sqls) {
+            lock.lock();
+            try {
+                Map<String, Map<String, String>> files = new HashMap<>(index.files);
+                files.put(file, sqls);
+                this.index = new Index(files);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        ///////////////////////////////////////////////////////////////////////////
+        // 热加载
+
+        private void watch() {
+            lock.lock();
+            try {
+                if (watchService != null) {
+                    return;
                 }
                 try {
-                    sqlMap.putAll(parse(url, null));
+                    watchService = FileSystems.getDefault().newWatchService();
                 } catch (IOException e) {
                     throw new UncheckedIOException(e);
                 }
-            } else {
-                String prefix = sqlKey.substring(0, i);
-                URL url = SqlProvider.class.getResource("/" + prefix + ".sql");
-                if (url == null) {
-                    throw new UncheckedIOException(new FileNotFoundException("The " + prefix + ".sql file is not found in classpath"));
+                Thread thread = new Thread(this::pollEvents, "sqlte-sql-watcher");
+                thread.setDaemon(true);
+                thread.start();
+                load(DEFAULT_FILE);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void watch(URL url) {
+            lock.lock();
+            try {
+                if (watchService == null || !"file".equals(url.getProtocol())) {
+                    return;
+                }
+                Path dir = Paths.get(url.toURI()).getParent();
+                if (watchedDirs.add(dir)) {
+                    dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
                 }
+            } catch (IOException | URISyntaxException e) {
+                logger.warn("failed to watch {}: {}", url, e.getMessage());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void pollEvents() {
+            while (true) {
+                WatchKey key;
                 try {
-                    sqlMap.putAll(parse(url, prefix));
-                } catch (IOException e) {
-                    throw new UncheckedIOException(e);
+                    key = watchService.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                Path dir = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    if (!(context instanceof Path) || !context.toString().endsWith(".sql")) {
+                        continue;
+                    }
+                    String name = context.toString();
+                    reload(name.substring(0, name.length() - 4), dir.resolve((Path) context));
+                }
+                if (!key.reset()) {
+                    return;
                 }
             }
-            return sqlMap.get(sqlKey);
         }
 
-        private Map<String, String> parse(URL url, String prefix) throws IOException {
+        private void reload(String file, Path path) {
+            try {
+                Map<String, String> sqls = parse(path.toUri().toURL(), file);
+                publish(file, sqls);
+            } catch (IOException e) {
+                // 编辑器保存时文件可能暂时不可读, 保留原来的内容
+                logger.warn("failed to reload {}: {}", path, e.getMessage());
+            }
+        }
+
+        private static Map<String, String> parse(URL url, String file) throws IOException {
             if (logger.isInfoEnabled()) {
                 logger.info("loading sql from: {}", url);
             }
+            String prefix = DEFAULT_FILE.equals(file) ? null : file;
             try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
                 String line;
                 Map<String, String> map = new HashMap<>();
@@ -99,6 +277,33 @@ public interface SqlProvider {
                 return map;
             }
         }
+
+        /**
+         * 不可变的索引
+         */
+        private static final class Index {
+            private static final Index EMPTY = new Index(Collections.emptyMap());
+
+            // 文件名 -> SQL, 文件不存在时为 null
+            private final Map<String, Map<String, String>> files;
+            private final Map<String, String> sqls;
+            // #key -> SQL
+            private final Map<String, String> refs;
+
+            Index(Map<String, Map<String, String>> files) {
+                this.files = files;
+                Map<String, String> sqls = new HashMap<>();
+                Map<String, String> refs = new HashMap<>();
+                files.values().forEach(map -> {
+                    if (map != null) {
+                        sqls.putAll(map);
+                        map.forEach((k, v) -> refs.put("#" + k, v));
+                    }
+                });
+                this.sqls = sqls;
+                this.refs = refs;
+            }
+        }
     }
 
 }
@@ -1,6 +1,9 @@
 package hwp.sqlte;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
@@ -10,10 +13,16 @@ import java.util.stream.StreamSupport;
  * @author Zero
  * Created on 2017/3/20.
  */
-public class SqlResultSet implements Iterable<Row> {
+public class SqlResultSet implements Iterable<Row>, AutoCloseable {
+
+    // 少于该行数时并行映射没有收益, 按顺序映射
+    static final int PARALLEL_THRESHOLD = 1024;
+    // 每个任务至少映射的行数
+    private static final int MIN_CHUNK_SIZE = 256;
 
     private List<String> columns;
     private List<Row> rows;
+    private ColumnIndex index;
 
     public static final SqlResultSet EMPTY = new SqlResultSet(
             Collections.unmodifiableList(Collections.emptyList()),
@@ -24,6 +33,19 @@ public class SqlResultSet implements Iterable<Row> {
         this.rows = rows;
     }
 
+    SqlResultSet(ColumnIndex index, List<Row> rows) {
+        this.index = index;
+        this.columns = index.names();
+        this.rows = rows;
+    }
+
+    /**
+     * @return 所有行共享的列索引, 非查询结果时为 null
+     */
+    ColumnIndex columnIndex() {
+        return index;
+    }
+
     public List<String> getColumns() {
         return columns;
     }
@@ -53,12 +75,12 @@ public class SqlResultSet implements Iterable<Row> {
 
     public <T> T first(Class<T> clazz, T def) {
         Row row = first();
-        if (row == null || row.values().isEmpty()) {
+        if (row == null || row.isEmpty()) {
             return def;
         }
-        if (row.keySet().size() == 1) {
+        if (row.size() == 1) {
             ConversionService service = Config.getConfig().getConversionService();
-            Object v = row.values().iterator().next();
+            Object v = row.firstValue();
             if (v == null) {
                 return def;
             }
@@ -105,9 +127,7 @@ public class SqlResultSet implements Iterable<Row> {
     }
 
     public <T> List<T> list(Supplier<T> supplier, Consumer<T> consumer) {
-        List<T> list = new ArrayList<>(this.rows.size());
-        BeanMapper<T> mapper = new BeanMapper<>(supplier);
-        this.rows.forEach(row -> list.add(mapper.map(row)));
+        List<T> list = list(new BeanMapper<>(supplier));
         if (consumer != null) {
             for (T obj : list) {
                 consumer.accept(obj);
@@ -115,6 +135,93 @@ public class SqlResultSet implements Iterable<Row> {
         }
         return list;
     }
+    /**
+     * 使用 {@link ForkJoinPool#commonPool()} 并行映射, 结果顺序与行顺序一致.
+     * 适合行数较多或者映射开销较大(比如 JSON 列)的结果, 行数较少时按顺序映射.
+     * <p>
+     * mapper 需要是线程安全的
+     */
+    public <T> List<T> parallelList(RowMapper<T> mapper) {
+        return list(mapper, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    public <T> List<T> parallelList(Supplier<T> supplier) {
+        return list(new BeanMapper<>(supplier), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    public <T> List<T> parallelList(Class<T> clazz) {
+        return list(new BeanMapper<>(clazz), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * 并行映射, 结果顺序与行顺序一致.
+     * 写入了临时文件的结果按顺序映射, 避免为了拆分任务把整个文件读回内存
+     *
+     * @param parallelism 并行度, 与 common pool 的并行度一致时使用 common pool, 否则临时创建 ForkJoinPool
+     */
+    public <T> List<T> list(RowMapper<T> mapper, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be > 0: " + parallelism);
+        }
+        int size = this.rows.size();
+        if (parallelism == 1 || size < PARALLEL_THRESHOLD || isSpilled()) {
+            return list(mapper);
+        }
+        Object[] target = new Object[size];
+        Row[] source = this.rows.toArray(new Row[0]);
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, size / (parallelism * 4));
+        MapTask<T> task = new MapTask<>(mapper, source, target, 0, size, chunkSize);
+        if (parallelism == ForkJoinPool.getCommonPoolParallelism()) {
+            ForkJoinPool.commonPool().invoke(task);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(task);
+            } finally {
+                pool.shutdown();
+            }
+        }
+        @SuppressWarnings("unchecked")
+        List<T> list = (List<T>) new ArrayList<>(Arrays.asList(target));
+        return list;
+    }
+
+    public <T> List<T> list(Supplier<T> supplier, int parallelism) {
+        return list(new BeanMapper<>(supplier), parallelism);
+    }
+
+    private static final class MapTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RowMapper<T> mapper;
+        private final Row[] source;
+        private final Object[] target;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        MapTask(RowMapper<T> mapper, Row[] source, Object[] target, int from, int to, int chunkSize) {
+            this.mapper = mapper;
+            this.source = source;
+            this.target = target;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                for (int i = from; i < to; i++) {
+                    target[i] = mapper.map(source[i]);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new MapTask<>(mapper, source, target, from, mid, chunkSize),
+                    new MapTask<>(mapper, source, target, mid, to, chunkSize));
+        }
+    }
 /*
     public <T> List<T> list(Class<T> clazz) {
         List<T> list = new ArrayList<>(this.rows.size());
@@ -123,6 +230,47 @@ public class SqlResultSet implements Iterable<Row> {
         return list;
     }*/
 
+    /**
+     * @return 是否有行因超出 {@link ResultBudget} 而写入了临时文件
+     */
+    boolean isSpilled() {
+        return rows instanceof SpillFile.RowList;
+    }
+
+    /**
+     * 估算行占用的堆内存字节数, 按行数 × 列 × 值的大小累加, 不包括各行共享的列名.
+     * 写入了临时文件的结果不在内存中, 返回 0
+     *
+     * @see ResultSetWeigher
+     */
+    public long estimatedSize() {
+        if (isSpilled() || rows == null) {
+            return 0;
+        }
+        // ArrayList 和它的数组
+        long size = 24 + 16 + 4L * rows.size();
+        for (Row row : rows) {
+            size += SizeEstimator.estimate(row);
+        }
+        return size;
+    }
+
+    /**
+     * 删除超出 {@link ResultBudget} 时写入的临时文件, 之后不能再读取这些行. 没有写入临时文件时什么都不做.
+     * 读取方法(list, first, forEach 等)不会关闭, 可以多次读取, 使用完毕后应通过 try-with-resources 关闭.
+     * 没有关闭的结果被 GC 回收后, 临时文件在下一次写入临时文件时删除
+     */
+    @Override
+    public void close() throws SqlteException {
+        if (rows instanceof SpillFile.RowList) {
+            try {
+                ((SpillFile.RowList) rows).close();
+            } catch (IOException e) {
+                throw new SqlteException(e);
+            }
+        }
+    }
+
     protected void unmodifiableRows() {
         this.rows = Collections.unmodifiableList(this.rows);
     }
@@ -148,10 +296,10 @@ public class SqlResultSet implements Iterable<Row> {
 
     public <T> T first(RowMapper<T> mapper) throws UncheckedSQLException {
         Row row = first();
-        if (row == null || row.values().isEmpty()) {
+        if (row == null || row.isEmpty()) {
             return null;
         }
-        Object firstValue = row.values().iterator().next();
+        Object firstValue = row.firstValue();
         if (firstValue == null) {
             return null;
         }
@@ -1,14 +1,21 @@
 package hwp.sqlte;
 
+import hwp.sqlte.dialect.Dialect;
+import hwp.sqlte.dialect.Dialects;
+
 import javax.sql.DataSource;
 import java.io.Reader;
 import java.sql.*;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * for Spring:
@@ -44,6 +51,17 @@ public class SqlteTemplate implements SqlConnection {//sql
         return this;
     }
 
+    /**
+     * @return 缓存查询结果 ttl 时间的视图, 不影响当前对象
+     */
+    @Override
+    public SqlteTemplate cacheable(long ttl, TimeUnit unit) {
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("ttl must be > 0: " + ttl);
+        }
+        return new TtlView(this, unit.toNanos(ttl));
+    }
+
     @Override
     public void executeSqlScript(Reader reader, boolean ignoreError) {
         run(conn -> {
@@ -52,6 +70,14 @@ public class SqlteTemplate implements SqlConnection {//sql
         });
     }
 
+    @Override
+    public void executeSqlScript(Reader reader, ScriptRunner runner) {
+        run(conn -> {
+            conn.executeSqlScript(reader, runner);
+            return null;
+        });
+    }
+
     @Override
     public void statement(Consumer<Statement> consumer) throws UncheckedSQLException {
         run(conn -> {
@@ -88,6 +114,11 @@ public class SqlteTemplate implements SqlConnection {//sql
         return run(conn -> conn.query(consumer));
     }
 
+    @Override
+    public <T> List<T> list(Sql sql, Supplier<T> supplier) throws UncheckedSQLException {
+        return run(conn -> conn.list(sql, supplier));
+    }
+
     @Override
     public <T> Page<T> queryPage(Consumer<SqlBuilder> consumer, Supplier<T> supplier) throws UncheckedSQLException {
         return run(conn -> conn.queryPage(consumer, supplier));
@@ -118,6 +149,28 @@ public class SqlteTemplate implements SqlConnection {//sql
         return run(conn -> conn.reload(bean));
     }
 
+    /**
+     * 流关闭时归还连接
+     */
+    @Override
+    public Stream<Row> stream(Sql sql) throws UncheckedSQLException {
+        DataSource dataSource = Sql.config().getDataSource();
+        Connection conn = open(dataSource);
+        try {
+            SqlConnectionImpl sqlConn = SqlConnectionImpl.use(dataSource, conn);
+            return sqlConn.stream(sql).onClose(() -> {
+                try {
+                    sqlConn.release();
+                } finally {
+                    close(conn);
+                }
+            });
+        } catch (RuntimeException e) {
+            close(conn);
+            throw e;
+        }
+    }
+
     @Override
     public void query(Sql sql, ResultSetHandler rowHandler) throws UncheckedSQLException {
         run(conn -> {
@@ -186,6 +239,14 @@ public class SqlteTemplate implements SqlConnection {//sql
         });
     }
 
+    @Override
+    public void upsert(Object bean, String table) throws UncheckedSQLException {
+        run(conn -> {
+            conn.upsert(bean, table);
+            return null;
+        });
+    }
+
     @Override
     public boolean update(Object bean) throws UncheckedSQLException {
         return this.update(bean, null);
@@ -456,6 +517,11 @@ public class SqlteTemplate implements SqlConnection {//sql
         return null;
     }
 
+    @Override
+    public Dialect dialect() {
+        return Dialects.of(Sql.config().getDataSource());
+    }
+
 
     protected Connection open(DataSource dataSource) {
         try {
@@ -473,13 +539,75 @@ public class SqlteTemplate implements SqlConnection {//sql
         }
     }
 
-    private <R> R run(Function<SqlConnection, R> function) {
-        Connection conn = open(Sql.config().getDataSource());
+    /**
+     * 异步执行, 使用 {@link Config#getAsyncExecutor()}
+     */
+    public AsyncSqlte async() {
+        return new AsyncSqlte(this, Sql.config().getAsyncExecutor());
+    }
+
+    public AsyncSqlte async(Executor executor) {
+        Objects.requireNonNull(executor, "executor can not be null");
+        return new AsyncSqlte(this, executor);
+    }
+
+    <R> R run(Function<SqlConnection, R> function) {
+        DataSource dataSource = Sql.config().getDataSource();
+        Connection conn = open(dataSource);
+        SqlConnectionImpl sqlConn = null;
         try {
-            SqlConnection sqlConn = SqlConnectionImpl.use(conn);
-            return function.apply(cacheable ? sqlConn.cacheable() : sqlConn);
+            sqlConn = SqlConnectionImpl.use(dataSource, conn);
+            return function.apply(wrap(sqlConn));
         } finally {
-            close(conn);
+            try {
+                if (sqlConn != null) {
+                    sqlConn.release();
+                }
+            } finally {
+                close(conn);
+            }
+        }
+    }
+
+    SqlConnection wrap(SqlConnection conn) {
+        return cacheable ? conn.cacheable() : conn;
+    }
+
+    /**
+     * 连接的获取和释放交给原来的 template
+     */
+    private static final class TtlView extends SqlteTemplate {
+        private final SqlteTemplate template;
+        private final long ttlNanos;
+
+        TtlView(SqlteTemplate template, long ttlNanos) {
+            this.template = template;
+            this.ttlNanos = ttlNanos;
+        }
+
+        @Override
+        public SqlteTemplate cacheable() {
+            return this;
+        }
+
+        @Override
+        public SqlteTemplate cacheable(long ttl, TimeUnit unit) {
+            return template.cacheable(ttl, unit);
+        }
+
+        @Override
+        protected Connection open(DataSource dataSource) {
+            return template.open(dataSource);
+        }
+
+        @Override
+        protected void close(Connection connection) {
+            template.close(connection);
+        }
+
+        @Override
+        SqlConnection wrap(SqlConnection conn) {
+            return conn.cacheable(ttlNanos, TimeUnit.NANOSECONDS);
         }
     }
 
@@ -0,0 +1,241 @@
+package hwp.sqlte;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * 单个连接内的 PreparedStatement LRU 缓存, 按 SQL, 结果集类型和自增键选项区分.
+ * <p>
+ * 取出的是 {@link CachedStatement}, close() 时关闭未关闭的结果集, 清空参数和批处理后放回缓存, 而不是真正关闭;
+ * 同一条语句正在使用时(例如未关闭的 Stream), 另外创建一个不缓存的 Statement.
+ * 与连接一样不是线程安全的.
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+final class StatementCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementCache.class);
+
+    private static final int NO_KEYS = -1;
+
+    private final Connection conn;
+    private final int maxSize;
+    private final LinkedHashMap<Key, Entry> entries;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    StatementCache(Connection conn, int maxSize) {
+        this.conn = conn;
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    PreparedStatement prepare(String sql) throws SQLException {
+        Key key = new Key(sql, NO_KEYS, NO_KEYS, NO_KEYS, null);
+        Entry entry = checkout(key);
+        if (entry != null) {
+            return entry.lease();
+        }
+        return put(key, conn.prepareStatement(sql));
+    }
+
+    PreparedStatement prepare(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        Key key = new Key(sql, resultSetType, resultSetConcurrency, NO_KEYS, null);
+        Entry entry = checkout(key);
+        if (entry != null) {
+            return entry.lease();
+        }
+        return put(key, conn.prepareStatement(sql, resultSetType, resultSetConcurrency));
+    }
+
+    PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        Key key = new Key(sql, NO_KEYS, NO_KEYS, autoGeneratedKeys, null);
+        Entry entry = checkout(key);
+        if (entry != null) {
+            return entry.lease();
+        }
+        return put(key, conn.prepareStatement(sql, autoGeneratedKeys));
+    }
+
+    PreparedStatement prepare(String sql, String[] columnNames) throws SQLException {
+        Key key = new Key(sql, NO_KEYS, NO_KEYS, NO_KEYS, columnNames);
+        Entry entry = checkout(key);
+        if (entry != null) {
+            return entry.lease();
+        }
+        return put(key, conn.prepareStatement(sql, columnNames));
+    }
+
+    /**
+     * @return 缓存中空闲的 Statement, 没有时返回 null
+     */
+    private Entry checkout(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.evicted) {
+            // 放回时清理失败, 已经关闭
+            entries.remove(key);
+            entry = null;
+        }
+        if (entry != null && !entry.inUse) {
+            hitCount++;
+            return entry;
+        }
+        missCount++;
+        return null;
+    }
+
+    private PreparedStatement put(Key key, PreparedStatement stat) throws SQLException {
+        if (entries.containsKey(key)) {
+            // 缓存中的正在使用, 这个用完后直接关闭
+            return stat;
+        }
+        Entry entry = new Entry(stat);
+        entries.put(key, entry);
+        evict();
+        return entry.lease();
+    }
+
+    private void evict() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            Entry eldest = it.next();
+            it.remove();
+            evictionCount++;
+            eldest.evicted = true;
+            if (!eldest.inUse) {
+                eldest.closeQuietly();
+            }
+        }
+    }
+
+    StatementCacheStats stats() {
+        return new StatementCacheStats(hitCount, missCount, evictionCount, entries.size());
+    }
+
+    /**
+     * 关闭所有缓存的 Statement, 正在使用的在使用完毕时关闭
+     */
+    void close() {
+        for (Entry entry : entries.values()) {
+            entry.evicted = true;
+            if (!entry.inUse) {
+                entry.closeQuietly();
+            }
+        }
+        entries.clear();
+    }
+
+    private static final class Key {
+        private final String sql;
+        private final int resultSetType;
+        private final int resultSetConcurrency;
+        private final int autoGeneratedKeys;
+        private final String[] columnNames;
+        private final int hash;
+
+        Key(String sql, int resultSetType, int resultSetConcurrency, int autoGeneratedKeys, String[] columnNames) {
+            this.sql = sql;
+            this.resultSetType = resultSetType;
+            this.resultSetConcurrency = resultSetConcurrency;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+            this.columnNames = columnNames == null ? null : columnNames.clone();
+            int h = sql.hashCode();
+            h = 31 * h + resultSetType;
+            h = 31 * h + resultSetConcurrency;
+            h = 31 * h + autoGeneratedKeys;
+            h = 31 * h + Arrays.hashCode(columnNames);
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hash == key.hash
+                    && resultSetType == key.resultSetType
+                    && resultSetConcurrency == key.resultSetConcurrency
+                    && autoGeneratedKeys == key.autoGeneratedKeys
+                    && sql.equals(key.sql)
+                    && Arrays.equals(columnNames, key.columnNames);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    static final class Entry {
+        final PreparedStatement stat;
+        // 创建时的设置, 放回缓存时恢复
+        private final int fetchSize;
+        private final int maxRows;
+        private boolean inUse;
+        private boolean evicted;
+
+        Entry(PreparedStatement stat) throws SQLException {
+            this.stat = stat;
+            this.fetchSize = stat.getFetchSize();
+            this.maxRows = stat.getMaxRows();
+        }
+
+        PreparedStatement lease() {
+            inUse = true;
+            return new CachedStatement(this);
+        }
+
+        void release() throws SQLException {
+            inUse = false;
+            if (evicted) {
+                stat.close();
+                return;
+            }
+            try {
+                // 没有读完的结果集会占用连接(例如 MySQL 的流式读取), 和真正关闭一样先关掉
+                ResultSet rs = stat.getResultSet();
+                if (rs != null) {
+                    rs.close();
+                }
+                stat.clearParameters();
+                stat.clearBatch();
+                stat.clearWarnings();
+                if (stat.getFetchSize() != fetchSize) {
+                    stat.setFetchSize(fetchSize);
+                }
+                if (stat.getMaxRows() != maxRows) {
+                    stat.setMaxRows(maxRows);
+                }
+            } catch (SQLException e) {
+                // 不能复用时直接关闭
+                evicted = true;
+                stat.close();
+                throw e;
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                stat.close();
+            } catch (SQLException e) {
+                logger.error(e.getMessage());
+            }
+        }
+    }
+
+}
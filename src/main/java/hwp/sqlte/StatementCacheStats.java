@@ -0,0 +1,57 @@
+package hwp.sqlte;
+
+/**
+ * 连接内 PreparedStatement 缓存的统计, 见 {@link Config#setStatementCacheSize(int)}
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public final class StatementCacheStats {
+
+    /**
+     * 没有开启缓存
+     */
+    public static final StatementCacheStats EMPTY = new StatementCacheStats(0, 0, 0, 0);
+
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final int size;
+
+    StatementCacheStats(long hitCount, long missCount, long evictionCount, int size) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.size = size;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return 当前缓存的 Statement 数量
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public double getHitRate() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return "StatementCacheStats{hits=" + hitCount + ", misses=" + missCount
+                + ", evictions=" + evictionCount + ", size=" + size + "}";
+    }
+}
@@ -0,0 +1,251 @@
+package hwp.sqlte;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 记录每个表最后一次被写入的时间戳, 用于判断缓存的查询结果是否还有效.
+ * <ul>
+ * <li>查询前取 {@link #snapshot()}, 和结果中读到的表一起缓存</li>
+ * <li>通过 sqlte 写入后调用 {@link #bump(String...)}, 时间戳比快照新的表上的缓存失效</li>
+ * <li>不知道写了哪些表时(例如执行脚本)调用 {@link #bumpAll()}, 所有缓存失效</li>
+ * </ul>
+ * 只对同一个 JVM 中通过 sqlte 的写入有效. 表名不区分大小写, 忽略 schema 和引号.
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+final class TableVersions {
+
+    private static final int MAX_CACHED_SQLS = 1024;
+    private static final String[] NO_TABLES = new String[0];
+
+    private static final AtomicLong clock = new AtomicLong();
+    private static final ConcurrentHashMap<String, Long> versions = new ConcurrentHashMap<>();
+    private static final AtomicLong allVersion = new AtomicLong();
+    // SQL -> 读写的表
+    private static final ConcurrentHashMap<String, String[]> TABLES = new ConcurrentHashMap<>();
+
+    // 跟在这些关键字后面的是表名
+    private static final Set<String> TABLE_KEYWORDS = new HashSet<>();
+    // 表名后面出现这些关键字时不是别名
+    private static final Set<String> RESERVED = new HashSet<>();
+
+    static {
+        Collections.addAll(TABLE_KEYWORDS, "from", "join", "update", "into", "table");
+        Collections.addAll(RESERVED, "where", "join", "inner", "left", "right", "full", "cross", "outer", "natural",
+                "on", "using", "group", "order", "having", "limit", "offset", "fetch", "for", "union", "except",
+                "intersect", "minus", "set", "values", "value", "select", "returning", "window", "lateral", "default",
+                "partition", "ignore", "straight_join");
+    }
+
+    private TableVersions() {
+    }
+
+    /**
+     * 查询前调用, 之后的写入会使结果失效
+     */
+    static long snapshot() {
+        return clock.get();
+    }
+
+    /**
+     * @return 快照之后 tables 都没有被写入过
+     */
+    static boolean isCurrent(String[] tables, long snapshot) {
+        if (allVersion.get() > snapshot) {
+            return false;
+        }
+        for (String table : tables) {
+            Long version = versions.get(table);
+            if (version != null && version > snapshot) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 写入后调用, 没有表名时当作 {@link #bumpAll()}
+     */
+    static void bump(String... tables) {
+        if (tables.length == 0) {
+            bumpAll();
+            return;
+        }
+        Long version = clock.incrementAndGet();
+        for (String table : tables) {
+            // 并发写入时保留较大的版本
+            versions.merge(normalize(table), version, Math::max);
+        }
+    }
+
+    static void bumpAll() {
+        allVersion.accumulateAndGet(clock.incrementAndGet(), Math::max);
+    }
+
+    /**
+     * 提取 SQL 中 FROM, JOIN, UPDATE, INTO, TABLE 后面的表名, 包括子查询中的. 只用于缓存失效, 多提取了也没关系
+     *
+     * @return 小写的表名, 没有 schema 和引号
+     */
+    static String[] tablesOf(String sql) {
+        String[] tables = TABLES.get(sql);
+        if (tables == null) {
+            tables = parse(sql);
+            if (TABLES.size() < MAX_CACHED_SQLS) {
+                TABLES.putIfAbsent(sql, tables);
+            }
+        }
+        return tables;
+    }
+
+    static String normalize(String table) {
+        int i = table.lastIndexOf('.');
+        String name = i == -1 ? table : table.substring(i + 1);
+        if (name.length() > 1 && isQuote(name.charAt(0))) {
+            name = name.substring(1, name.length() - 1);
+        }
+        return name.toLowerCase();
+    }
+
+    private static String[] parse(String sql) {
+        List<String> tables = new ArrayList<>(2);
+        int len = sql.length();
+        int i = 0;
+        while (i < len) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                i = skipQuoted(sql, i, '\'');
+            } else if (c == '-' && i + 1 < len && sql.charAt(i + 1) == '-') {
+                int end = sql.indexOf('\n', i);
+                i = end == -1 ? len : end + 1;
+            } else if (c == '/' && i + 1 < len && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end == -1 ? len : end + 2;
+            } else if (isWordStart(c)) {
+                int end = wordEnd(sql, i);
+                String word = sql.substring(i, end).toLowerCase();
+                i = end;
+                if (TABLE_KEYWORDS.contains(word)) {
+                    i = readTables(sql, i, "from".equals(word), tables);
+                }
+            } else if (isQuote(c)) {
+                i = skipQuoted(sql, i, closingQuote(c));
+            } else {
+                i++;
+            }
+        }
+        if (tables.isEmpty()) {
+            return NO_TABLES;
+        }
+        return new HashSet<>(tables).toArray(NO_TABLES);
+    }
+
+    /**
+     * 读取一个表名, FROM 后面可以是逗号分隔的多个表, 每个表可以有别名
+     */
+    private static int readTables(String sql, int i, boolean list, List<String> tables) {
+        int len = sql.length();
+        while (true) {
+            i = skipSpaces(sql, i);
+            if (i >= len) {
+                return i;
+            }
+            char c = sql.charAt(i);
+            int end;
+            if (isWordStart(c)) {
+                end = wordEnd(sql, i);
+            } else if (isQuote(c)) {
+                end = skipQuoted(sql, i, closingQuote(c));
+            } else {
+                // 子查询或者不是表名
+                return i;
+            }
+            // schema.table
+            while (end < len && sql.charAt(end) == '.' && end + 1 < len) {
+                char next = sql.charAt(end + 1);
+                if (isWordStart(next)) {
+                    end = wordEnd(sql, end + 1);
+                } else if (isQuote(next)) {
+                    end = skipQuoted(sql, end + 1, closingQuote(next));
+                } else {
+                    break;
+                }
+            }
+            String name = sql.substring(i, end);
+            if (RESERVED.contains(name.toLowerCase()) || TABLE_KEYWORDS.contains(name.toLowerCase())) {
+                // 例如 DELETE FROM 中的 FROM, 交给调用者继续处理
+                return i;
+            }
+            tables.add(normalize(name));
+            i = end;
+            if (!list) {
+                return i;
+            }
+            // 别名: [AS] alias
+            i = skipSpaces(sql, i);
+            if (i < len && isWordStart(sql.charAt(i))) {
+                int aliasEnd = wordEnd(sql, i);
+                String word = sql.substring(i, aliasEnd).toLowerCase();
+                if (RESERVED.contains(word)) {
+                    return i;
+                }
+                i = aliasEnd;
+                if ("as".equals(word)) {
+                    i = skipSpaces(sql, i);
+                    if (i < len && (isWordStart(sql.charAt(i)) || isQuote(sql.charAt(i)))) {
+                        i = isQuote(sql.charAt(i)) ? skipQuoted(sql, i, closingQuote(sql.charAt(i))) : wordEnd(sql, i);
+                    }
+                }
+                i = skipSpaces(sql, i);
+            }
+            if (i < len && sql.charAt(i) == ',') {
+                i++;
+            } else {
+                return i;
+            }
+        }
+    }
+
+    private static int skipSpaces(String sql, int i) {
+        while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipQuoted(String sql, int i, char close) {
+        int end = sql.indexOf(close, i + 1);
+        return end == -1 ? sql.length() : end + 1;
+    }
+
+    private static int wordEnd(String sql, int i) {
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '$') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isWordStart(char c) {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    private static boolean isQuote(char c) {
+        return c == '"' || c == '`' || c == '[';
+    }
+
+    private static char closingQuote(char c) {
+        return c == '[' ? ']' : c;
+    }
+
+}
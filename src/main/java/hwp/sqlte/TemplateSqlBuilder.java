@@ -1,25 +1,22 @@
 package hwp.sqlte;
 
-import javax.script.*;
-import java.lang.reflect.Array;
-import java.util.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.function.Consumer;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * @author Zero
  * Created on 2017/3/21.
+ * @deprecated 使用 {@link NamedSql} 或 {@link Sql#named(String, Object)}
  */
 @Deprecated
 public class TemplateSqlBuilder implements Builder {
-    private static Pattern pattern = Pattern.compile("(:|\\$)([A-z_\\d\\.]+)");
 
     //StandardSql,SqlTemplate
     private StringBuilder sqlBuilder;
-    private List<Object> args = new ArrayList<>();
 
-    private Bindings data = new SimpleBindings();
+    private Map<String, Object> data = new HashMap<>();
 
     public TemplateSqlBuilder(String sql) {
         this.sqlBuilder = new StringBuilder(sql);
@@ -65,69 +62,12 @@ public class TemplateSqlBuilder implements Builder {
         return this;
     }
 
+    /**
+     * 参数由 {@link NamedSql} 解析, 先查找 addVar 的变量, 再查找 setRootVar 的对象
+     */
     @Override
     public Sql build() {
-        try {
-            if (sqlBuilder.indexOf(":") > -1) {
-                ScriptEngine engine = getScriptEngine();
-                boolean hasDef = data.containsKey("_");
-                Matcher matcher = pattern.matcher(sqlBuilder);
-                while (matcher.find()) {
-                    String name = matcher.group(2);
-                    int firstDot = name.indexOf('.');
-                    String base = firstDot == -1 ? name : name.substring(0, firstDot);
-                    Object val = null;
-                    if (data.containsKey(base)) {
-                        val = engine.eval(name, data);
-                    } else if (hasDef) {
-                        val = engine.eval("_." + name, data);
-                    }
-                    if (val != null && (val.getClass().isArray() || val instanceof Collection)) {
-                        int start = matcher.start();
-                        boolean wrap = false;
-                        if (sqlBuilder.charAt(start - 1) == '(') {
-                            wrap = true;
-                        }
-                        StringBuilder rep = new StringBuilder();
-                        if (!wrap) {
-                            rep.append('(');
-                        }
-                        if (val.getClass().isArray()) {
-                            for (int i = 0, len = Array.getLength(val); i < len; i++) {
-                                if (i > 0) {
-                                    rep.append(',');
-                                }
-                                rep.append('?');
-                                this.args.add(Array.get(val, i));
-                            }
-                        } else {
-                            Collection c = (Collection) val;
-                            int index = 0;
-                            for (Object obj : c) {
-                                if (index++ > 0) {
-                                    rep.append(',');
-                                }
-                                rep.append('?');
-                                this.args.add(obj);
-                            }
-                        }
-
-                        if (!wrap) {
-                            rep.append(')');
-                        }
-                        sqlBuilder.replace(matcher.start(), matcher.end(), rep.toString());
-                        matcher.reset(sqlBuilder);
-                    } else {
-                        sqlBuilder.replace(matcher.start(), matcher.end(), "?");
-                        this.args.add(val);
-                    }
-                }
-                return new SimpleSql(this.sqlBuilder.toString(), this.args);
-            }
-            return new SimpleSql(this.sqlBuilder.toString());
-        } catch (ScriptException e) {
-            throw new SqlteException(e);
-        }
+        return NamedSql.parse(sqlBuilder.toString()).bind(data, data.get("_"));
     }
 
 
@@ -184,15 +124,6 @@ public class TemplateSqlBuilder implements Builder {
 
     }
 
-    public static ScriptEngine getScriptEngine() {
-        ScriptEngineManager factory = new ScriptEngineManager();
-        ScriptEngine engine = factory.getEngineByName("JavaScript");
-//        ScriptContext context = new SimpleScriptContext();
-//        engine.eval()
-        return engine;
-    }
-
-
     public static void main(String[] args) {
 
         Map<String, Object> user = new HashMap<>();
@@ -1,5 +1,6 @@
 package hwp.sqlte.cache;
 
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 /**
@@ -10,21 +11,38 @@ public interface Cache<T> {
 
     void put(Object key, T value);
 
+    /**
+     * 指定过期时间, 内置的实现都支持. 不支持过期的实现忽略 ttl, 值只在被淘汰或删除时失效
+     */
+    default void put(Object key, T value, long ttl, TimeUnit unit) {
+        put(key, value);
+    }
+
     T get(Object key);
 
     default T get(Object key, Supplier<T> supplier) {
         return get(key, supplier, true);
     }
 
+    /**
+     * 没有缓存时调用 supplier, 同一个 key 的并发调用只执行一次 supplier, 见 {@link SingleFlight}
+     */
+    @SuppressWarnings("unchecked")
     default T get(Object key, Supplier<T> supplier, boolean cache) {
         T o = get(key);
-        if (o == null) {
-            o = supplier.get();
-            if (cache) {
-                put(key, o);
-            }
+        if (o != null) {
+            return o;
         }
-        return o;
+        return (T) SingleFlight.CACHES.load(new SingleFlight.CacheKey(this, key), () -> {
+            T value = get(key);
+            if (value == null) {
+                value = supplier.get();
+                if (cache) {
+                    put(key, value);
+                }
+            }
+            return value;
+        });
     }
 
     void remove(Object key);
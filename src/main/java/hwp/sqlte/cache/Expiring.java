@@ -0,0 +1,40 @@
+package hwp.sqlte.cache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LruCache} 和 {@link FifoCache} 中的值, 读取时检查是否过期
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+final class Expiring<T> {
+
+    final T value;
+    // System.nanoTime(), 0 表示不过期
+    private final long expiresAt;
+
+    private Expiring(T value, long expiresAt) {
+        this.value = value;
+        this.expiresAt = expiresAt;
+    }
+
+    static <T> Expiring<T> of(T value) {
+        return new Expiring<>(value, 0);
+    }
+
+    static <T> Expiring<T> of(T value, long ttl, TimeUnit unit) {
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("ttl must be > 0: " + ttl);
+        }
+        // 0 被用来表示不过期
+        long expiresAt = System.nanoTime() + unit.toNanos(ttl);
+        return new Expiring<>(value, expiresAt == 0 ? 1 : expiresAt);
+    }
+
+    boolean isExpired() {
+        // 使用 nanoTime 时只能比较差值
+        return expiresAt != 0 && System.nanoTime() - expiresAt >= 0;
+    }
+
+}
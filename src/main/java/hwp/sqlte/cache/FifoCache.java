@@ -3,20 +3,21 @@ package hwp.sqlte.cache;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class FifoCache<T> implements Cache<T> {
 
-    private final LinkedHashMap<Object, T> map;
+    private final LinkedHashMap<Object, Expiring<T>> map;
     private final Lock rlock;
     private final Lock wlock;
 
     public FifoCache(int cacheSize) {
-        map = new LinkedHashMap<Object, T>(cacheSize, 0.75f, false) {
+        map = new LinkedHashMap<Object, Expiring<T>>(cacheSize, 0.75f, false) {
             @Override
-            protected boolean removeEldestEntry(Map.Entry<Object, T> eldest) {
+            protected boolean removeEldestEntry(Map.Entry<Object, Expiring<T>> eldest) {
                 return size() > cacheSize;
             }
         };
@@ -27,6 +28,18 @@ public class FifoCache<T> implements Cache<T> {
 
     @Override
     public void put(Object key, T value) {
+        put(key, Expiring.of(value));
+    }
+
+    /**
+     * 过期的值在读取时删除, 在此之前和其它值一样按写入顺序淘汰
+     */
+    @Override
+    public void put(Object key, T value, long ttl, TimeUnit unit) {
+        put(key, Expiring.of(value, ttl, unit));
+    }
+
+    private void put(Object key, Expiring<T> value) {
         wlock.lock();
         try {
             map.put(key, value);
@@ -37,12 +50,27 @@ public class FifoCache<T> implements Cache<T> {
 
     @Override
     public T get(Object key) {
+        Expiring<T> value;
         rlock.lock();
         try {
-            return map.get(key);
+            value = map.get(key);
         } finally {
             rlock.unlock();
         }
+        if (value == null) {
+            return null;
+        }
+        if (value.isExpired()) {
+            // 读锁不能升级, 重新加写锁删除, 期间可能已经写入了新值
+            wlock.lock();
+            try {
+                map.remove(key, value);
+            } finally {
+                wlock.unlock();
+            }
+            return null;
+        }
+        return value.value;
     }
 
     @Override
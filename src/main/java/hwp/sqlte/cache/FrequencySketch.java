@@ -0,0 +1,108 @@
+package hwp.sqlte.cache;
+
+/**
+ * 4 位计数器的 Count-Min Sketch, 估计 key 最近被访问的次数, 用于 {@link TinyLfuCache} 的准入判断.
+ * <p>
+ * 每个 long 保存 16 个计数器, 一个 key 对应 4 个计数器, 取最小值. 累计次数达到 10 倍容量时所有计数器减半,
+ * 使旧的访问逐渐失效. 不是线程安全的, 由调用者加锁.
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+final class FrequencySketch {
+
+    private static final long[] SEED = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    private long[] table;
+    private int tableMask;
+    private int sampleSize;
+    private int size;
+
+    FrequencySketch(long maximum) {
+        ensureCapacity(maximum);
+    }
+
+    /**
+     * 按权重限制的缓存不知道会有多少条目, 条目数增长时扩大, 已有的计数丢弃
+     */
+    void ensureCapacity(long maximum) {
+        int capacity = (int) Math.min(Math.max(maximum, 1), 1 << 30);
+        capacity = Math.max(Integer.highestOneBit(capacity - 1) << 1, 1);
+        if (table != null && capacity <= table.length) {
+            return;
+        }
+        this.table = new long[capacity];
+        this.tableMask = capacity - 1;
+        this.sampleSize = Math.max(10 * capacity, 10);
+        this.size = 0;
+    }
+
+    int capacity() {
+        return table.length;
+    }
+
+    /**
+     * @return 估计的访问次数, 最大为 15
+     */
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int i, int j) {
+        int offset = j << 2;
+        long mask = 0xfL << offset;
+        if ((table[i] & mask) != mask) {
+            table[i] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 所有计数器减半
+     */
+    private void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size >>> 1) - (odd >>> 2);
+    }
+
+    private int indexOf(int item, int i) {
+        long hash = (item + SEED[i]) * SEED[i];
+        hash += hash >>> 32;
+        return ((int) hash) & tableMask;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+
+}
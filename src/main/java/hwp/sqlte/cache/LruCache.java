@@ -2,69 +2,86 @@ package hwp.sqlte.cache;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 //https://github.com/mybatis/mybatis-3/tree/master/src/main/java/org/apache/ibatis/cache/decorators
 public class LruCache<T> implements Cache<T> {
 
-    private final Map<Object, T> map;
-    private final Lock rlock;
-    private final Lock wlock;
+    private final Map<Object, Expiring<T>> map;
+    // 按访问顺序排列的 LinkedHashMap 在 get 时也会修改链表, 读写都要加同一把锁
+    private final Lock lock = new ReentrantLock();
 
     public LruCache(int maxSize) {
         if (maxSize < 1) {
             throw new IllegalArgumentException("maxSize < 1");
         }
-        map = new LinkedHashMap<Object, T>(maxSize, .75F, true) {
+        map = new LinkedHashMap<Object, Expiring<T>>(maxSize, .75F, true) {
             @Override
-            protected boolean removeEldestEntry(Map.Entry<Object, T> eldest) {
+            protected boolean removeEldestEntry(Map.Entry<Object, Expiring<T>> eldest) {
                 return size() > maxSize;
             }
         };
-        ReadWriteLock lock = new ReentrantReadWriteLock();
-        rlock = lock.readLock();
-        wlock = lock.writeLock();
     }
 
     @Override
     public void put(Object key, T value) {
-        wlock.lock();
+        put(key, Expiring.of(value));
+    }
+
+    /**
+     * 过期的值在读取时删除, 在此之前和其它值一样参与淘汰
+     */
+    @Override
+    public void put(Object key, T value, long ttl, TimeUnit unit) {
+        put(key, Expiring.of(value, ttl, unit));
+    }
+
+    private void put(Object key, Expiring<T> value) {
+        lock.lock();
         try {
             map.put(key, value);
         } finally {
-            wlock.unlock();
+            lock.unlock();
         }
     }
 
     @Override
     public T get(Object key) {
-        rlock.lock();
+        lock.lock();
         try {
-            return map.get(key);
+            Expiring<T> value = map.get(key);
+            if (value == null) {
+                return null;
+            }
+            if (value.isExpired()) {
+                map.remove(key);
+                return null;
+            }
+            return value.value;
         } finally {
-            rlock.unlock();
+            lock.unlock();
         }
     }
 
     @Override
     public void remove(Object key) {
-        wlock.lock();
+        lock.lock();
         try {
             map.remove(key);
         } finally {
-            wlock.unlock();
+            lock.unlock();
         }
     }
 
     @Override
     public void clear() {
-        wlock.lock();
+        lock.lock();
         try {
             map.clear();
         } finally {
-            wlock.unlock();
+            lock.unlock();
         }
     }
 
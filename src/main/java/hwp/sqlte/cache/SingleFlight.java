@@ -0,0 +1,112 @@
+package hwp.sqlte.cache;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 合并同一个 key 的并发加载: 第一个调用者执行 loader, 其它调用者等待并得到同一个结果.
+ * loader 抛出的异常传给所有等待者, 不会被记住, 下一次调用重新加载.
+ * <p>
+ * 用于缓存失效时防止大量请求同时查询数据库:
+ * <pre>{@code
+ * V v = cache.get(key);
+ * if (v == null) {
+ *     v = flight.load(key, () -> {
+ *         V loaded = cache.get(key); // 可能刚被其它调用者加载
+ *         ...
+ *     });
+ * }
+ * }</pre>
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public final class SingleFlight<K, V> {
+
+    /**
+     * {@link Cache#get(Object, Supplier, boolean)} 使用, key 为 (缓存, key)
+     */
+    static final SingleFlight<Object, Object> CACHES = new SingleFlight<>();
+
+    private final ConcurrentHashMap<K, Call<V>> calls = new ConcurrentHashMap<>();
+
+    public V load(K key, Supplier<V> loader) {
+        Call<V> call = new Call<>();
+        Call<V> inFlight = calls.putIfAbsent(key, call);
+        if (inFlight != null) {
+            return inFlight.await();
+        }
+        try {
+            V value = loader.get();
+            call.future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, call);
+        }
+    }
+
+    /**
+     * @return 正在加载的 key 的数量
+     */
+    public int inFlight() {
+        return calls.size();
+    }
+
+    private static final class Call<V> {
+        final Thread owner = Thread.currentThread();
+        final CompletableFuture<V> future = new CompletableFuture<>();
+
+        V await() {
+            if (owner == Thread.currentThread()) {
+                // loader 中加载同一个 key, 等待自己会死锁
+                throw new IllegalStateException("Recursive load");
+            }
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw e;
+            }
+        }
+    }
+
+    static final class CacheKey {
+        private final Cache<?> cache;
+        private final Object key;
+
+        CacheKey(Cache<?> cache, Object key) {
+            this.cache = cache;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return cache == other.cache && Objects.equals(key, other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(cache) * 31 + Objects.hashCode(key);
+        }
+    }
+
+}
@@ -0,0 +1,149 @@
+package hwp.sqlte.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮, 用于 {@link TinyLfuCache} 的过期处理, 插入/删除/推进都是 O(1), 不需要扫描所有条目.
+ * <p>
+ * 5 层, 每层的槽位跨度分别约为 1 秒, 1 分钟, 1 小时, 1 天, 6.5 天(时间都取 2 的幂, 用移位代替除法).
+ * 时间推进时处理经过的槽位, 槽位中还没有到期的节点重新放入更精确的层. 不是线程安全的, 由调用者加锁.
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+final class TimerWheel<T> {
+
+    private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+    private static final long[] SPANS = {
+            ceilingPowerOfTwo(TimeUnit.SECONDS.toNanos(1)), // 1.07s
+            ceilingPowerOfTwo(TimeUnit.MINUTES.toNanos(1)), // 1.14m
+            ceilingPowerOfTwo(TimeUnit.HOURS.toNanos(1)),   // 1.22h
+            ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)),    // 1.63d
+            BUCKETS[3] * ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)), // 6.5d
+            BUCKETS[3] * ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)), // 6.5d
+    };
+    private static final long[] SHIFT = {
+            Long.numberOfTrailingZeros(SPANS[0]),
+            Long.numberOfTrailingZeros(SPANS[1]),
+            Long.numberOfTrailingZeros(SPANS[2]),
+            Long.numberOfTrailingZeros(SPANS[3]),
+            Long.numberOfTrailingZeros(SPANS[4]),
+    };
+
+    // 每个槽位是一个带哨兵的循环链表
+    private final TinyLfuCache.Node<T>[][] wheel;
+    private long nanos;
+
+    @SuppressWarnings("unchecked")
+    TimerWheel(long now) {
+        this.nanos = now;
+        this.wheel = (TinyLfuCache.Node<T>[][]) new TinyLfuCache.Node<?>[BUCKETS.length][];
+        for (int i = 0; i < BUCKETS.length; i++) {
+            wheel[i] = (TinyLfuCache.Node<T>[]) new TinyLfuCache.Node<?>[BUCKETS[i]];
+            for (int j = 0; j < BUCKETS[i]; j++) {
+                TinyLfuCache.Node<T> sentinel = new TinyLfuCache.Node<>(null, null);
+                sentinel.prevInTimer = sentinel;
+                sentinel.nextInTimer = sentinel;
+                wheel[i][j] = sentinel;
+            }
+        }
+    }
+
+    /**
+     * 放入 time 所在的槽位, 已经在时间轮中时先移除
+     */
+    void schedule(TinyLfuCache.Node<T> node, long time) {
+        deschedule(node);
+        TinyLfuCache.Node<T> sentinel = findBucket(time);
+        node.prevInTimer = sentinel.prevInTimer;
+        node.nextInTimer = sentinel;
+        sentinel.prevInTimer.nextInTimer = node;
+        sentinel.prevInTimer = node;
+    }
+
+    void deschedule(TinyLfuCache.Node<T> node) {
+        if (node.nextInTimer != null) {
+            node.nextInTimer.prevInTimer = node.prevInTimer;
+            node.prevInTimer.nextInTimer = node.nextInTimer;
+            node.nextInTimer = null;
+            node.prevInTimer = null;
+        }
+    }
+
+    /**
+     * 推进到 now, 经过的槽位中的节点交给 expirer, 由它淘汰已经过期的, 其余的重新 {@link #schedule}
+     */
+    void advance(long now, Consumer<TinyLfuCache.Node<T>> expirer) {
+        long previous = nanos;
+        nanos = now;
+        for (int i = 0; i < SHIFT.length; i++) {
+            long previousTicks = previous >>> SHIFT[i];
+            long currentTicks = now >>> SHIFT[i];
+            if (currentTicks - previousTicks <= 0) {
+                // 低层没有经过新的槽位时高层也不会
+                break;
+            }
+            expire(i, previousTicks, currentTicks - previousTicks, expirer);
+        }
+    }
+
+    void clear() {
+        for (TinyLfuCache.Node<T>[] buckets : wheel) {
+            for (TinyLfuCache.Node<T> sentinel : buckets) {
+                TinyLfuCache.Node<T> node = sentinel.nextInTimer;
+                while (node != sentinel) {
+                    TinyLfuCache.Node<T> next = node.nextInTimer;
+                    node.prevInTimer = null;
+                    node.nextInTimer = null;
+                    node = next;
+                }
+                sentinel.prevInTimer = sentinel;
+                sentinel.nextInTimer = sentinel;
+            }
+        }
+    }
+
+    private void expire(int index, long previousTicks, long delta, Consumer<TinyLfuCache.Node<T>> expirer) {
+        TinyLfuCache.Node<T>[] buckets = wheel[index];
+        int mask = buckets.length - 1;
+        int steps = (int) Math.min(1 + delta, buckets.length);
+        int start = (int) (previousTicks & mask);
+        for (int i = start; i < start + steps; i++) {
+            // 先把整个槽位摘下来, expirer 重新放入的节点不会再被遍历到
+            TinyLfuCache.Node<T> sentinel = buckets[i & mask];
+            TinyLfuCache.Node<T> node = sentinel.nextInTimer;
+            sentinel.prevInTimer = sentinel;
+            sentinel.nextInTimer = sentinel;
+            while (node != sentinel) {
+                TinyLfuCache.Node<T> next = node.nextInTimer;
+                node.prevInTimer = null;
+                node.nextInTimer = null;
+                expirer.accept(node);
+                node = next;
+            }
+        }
+    }
+
+    private TinyLfuCache.Node<T> findBucket(long time) {
+        long duration = time - nanos;
+        if (duration <= 0) {
+            // 已经过期的放入当前槽位, 下次推进时处理
+            time = nanos;
+            duration = 0;
+        }
+        int last = wheel.length - 1;
+        for (int i = 0; i < last; i++) {
+            if (duration < SPANS[i + 1]) {
+                long ticks = time >>> SHIFT[i];
+                return wheel[i][(int) (ticks & (wheel[i].length - 1))];
+            }
+        }
+        return wheel[last][0];
+    }
+
+    private static long ceilingPowerOfTwo(long x) {
+        return 1L << -Long.numberOfLeadingZeros(x - 1);
+    }
+
+}
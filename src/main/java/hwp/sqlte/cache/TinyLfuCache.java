@@ -0,0 +1,663 @@
+package hwp.sqlte.cache;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 基于 ConcurrentHashMap 的 W-TinyLFU 缓存, 读操作不加锁.
+ * <ul>
+ * <li>读: 直接查 ConcurrentHashMap, 命中的节点放入按线程分段的有损环形缓冲区, 缓冲区满时由抢到锁的线程批量处理</li>
+ * <li>写: 加锁后先处理读缓冲区, 再更新队列并淘汰</li>
+ * <li>淘汰: 新条目先进入窗口 LRU(容量的 1%), 被挤出窗口时与主区(SLRU: 试用区 + 保护区)的 LRU 比较
+ * {@link FrequencySketch} 估计的访问频率, 频率高的留下</li>
+ * </ul>
+ * 扫描式的一次性访问停留在窗口中很快被淘汰, 不会冲掉经常访问的条目.
+ * <p>
+ * 过期: 可以设置写入后过期(expireAfterWrite), 访问后过期(expireAfterAccess), 也可以用
+ * {@link #put(Object, Object, long, TimeUnit)} 为单个条目指定 TTL. 读取时发现过期的条目当作不存在,
+ * 过期的条目由 {@link TimerWheel} 在写入或 {@link #cleanUp()} 时移除.
+ * <p>
+ * 默认按条目数限制, 也可以用 {@link Weigher} 按总权重限制, 这时窗口和主区的大小都按权重计算, 权重超过
+ * maximumEntryWeight 的条目不会被缓存:
+ * <pre>{@code
+ * Cache<Object> cache = TinyLfuCache.builder()
+ *         .maximumWeight(64L << 20, ResultSetWeigher.INSTANCE)
+ *         .expireAfterWrite(10, TimeUnit.MINUTES)
+ *         .build();
+ * }</pre>
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public class TinyLfuCache<T> implements Cache<T> {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+    private static final int REMOVED = -1;
+
+    private final ConcurrentHashMap<Object, Node<T>> data;
+    private final long maximum;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final long maximumEntryWeight;
+    private final Weigher<? super T> weigher;
+    private final boolean weighted;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+    // 配置了过期时间或者用过 TTL, 读取时才需要检查
+    private volatile boolean mayExpire;
+
+    // 以下字段只在持有 evictionLock 时访问
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final AccessOrderDeque<T> window = new AccessOrderDeque<>();
+    private final AccessOrderDeque<T> probation = new AccessOrderDeque<>();
+    private final AccessOrderDeque<T> protectedDeque = new AccessOrderDeque<>();
+    private long weightedSize;
+    private long windowWeight;
+    private long protectedWeight;
+    private final TimerWheel<T> timerWheel = new TimerWheel<>(System.nanoTime());
+    private final Consumer<Node<T>> onExpire = this::onExpire;
+    private long now;
+
+    private final ReadBuffer<Node<T>> readBuffer = new ReadBuffer<>();
+    private final Consumer<Node<T>> onAccess = this::onAccess;
+
+    public TinyLfuCache(int maxSize) {
+        this(maxSize, 0, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param expireAfterWrite  写入后多久过期, 0 表示不过期
+     * @param expireAfterAccess 最后一次读取或写入后多久过期, 0 表示不过期
+     */
+    public TinyLfuCache(int maxSize, long expireAfterWrite, long expireAfterAccess, TimeUnit unit) {
+        this(new Builder<T>().maximumSize(maxSize).expireAfterWrite(expireAfterWrite, unit)
+                .expireAfterAccess(expireAfterAccess, unit));
+    }
+
+    private TinyLfuCache(Builder<T> builder) {
+        this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+        this.expireAfterAccessNanos = builder.expireAfterAccessNanos;
+        this.mayExpire = expireAfterWriteNanos > 0 || expireAfterAccessNanos > 0;
+        this.maximum = builder.maximum;
+        this.weigher = builder.weigher;
+        this.weighted = builder.weigher != null;
+        this.maximumEntryWeight = builder.maximumEntryWeight > 0 ? builder.maximumEntryWeight : maximum;
+        this.windowMaximum = Math.max(1, maximum / 100);
+        this.protectedMaximum = (long) ((maximum - windowMaximum) * 0.8);
+        // 按权重限制时不知道条目数, 从小的容量开始
+        long capacity = weighted ? Math.min(maximum, 1024) : maximum;
+        this.data = new ConcurrentHashMap<>((int) Math.min(capacity, 1 << 16));
+        this.sketch = new FrequencySketch(capacity);
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    @Override
+    public T get(Object key) {
+        Node<T> node = data.get(key);
+        if (node == null) {
+            return null;
+        }
+        if (mayExpire) {
+            long now = System.nanoTime();
+            if (now - expiresAt(node) >= 0) {
+                tryDrain();
+                return null;
+            }
+            if (expireAfterAccessNanos > 0) {
+                node.accessTime = now;
+            }
+        }
+        if (readBuffer.offer(node) == ReadBuffer.FULL) {
+            tryDrain();
+        }
+        return node.value;
+    }
+
+    @Override
+    public void put(Object key, T value) {
+        put(key, value, expireAfterWriteNanos);
+    }
+
+    /**
+     * 指定这个条目的 TTL, 代替 expireAfterWrite; 同时配置了 expireAfterAccess 时先到的生效
+     */
+    @Override
+    public void put(Object key, T value, long ttl, TimeUnit unit) {
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("ttl must be > 0: " + ttl);
+        }
+        if (!mayExpire) {
+            mayExpire = true;
+        }
+        put(key, value, unit.toNanos(ttl));
+    }
+
+    private void put(Object key, T value, long ttlNanos) {
+        if (value == null) {
+            remove(key);
+            return;
+        }
+        long weight = weigh(key, value);
+        if (weight > maximumEntryWeight) {
+            // 太大的条目不缓存, 旧的值也不能再用
+            remove(key);
+            return;
+        }
+        evictionLock.lock();
+        try {
+            maintenance();
+            Node<T> node = data.get(key);
+            if (node == null) {
+                node = new Node<>(key, value);
+                node.weight = weight;
+                setExpiry(node, ttlNanos);
+                data.put(key, node);
+                if (weighted && data.size() > sketch.capacity()) {
+                    sketch.ensureCapacity(data.size() * 2L);
+                }
+                sketch.increment(key);
+                node.queue = WINDOW;
+                window.addLast(node);
+                windowWeight += weight;
+                weightedSize += weight;
+                schedule(node);
+            } else {
+                setExpiry(node, ttlNanos);
+                node.value = value;
+                setWeight(node, weight);
+                onAccess(node);
+                schedule(node);
+            }
+            evict();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private long weigh(Object key, T value) {
+        if (!weighted) {
+            return 1;
+        }
+        long weight = weigher.weigh(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight must be >= 0: " + weight);
+        }
+        return weight;
+    }
+
+    private void setWeight(Node<T> node, long weight) {
+        long delta = weight - node.weight;
+        node.weight = weight;
+        weightedSize += delta;
+        if (node.queue == WINDOW) {
+            windowWeight += delta;
+        } else if (node.queue == PROTECTED) {
+            protectedWeight += delta;
+        }
+    }
+
+    @Override
+    public void remove(Object key) {
+        evictionLock.lock();
+        try {
+            Node<T> node = data.remove(key);
+            if (node != null) {
+                unlink(node);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        evictionLock.lock();
+        try {
+            readBuffer.drainTo(node -> {
+            });
+            timerWheel.clear();
+            data.clear();
+            window.clear();
+            probation.clear();
+            protectedDeque.clear();
+            weightedSize = 0;
+            windowWeight = 0;
+            protectedWeight = 0;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * @return 当前的条目数
+     */
+    public long estimatedSize() {
+        return data.mappingCount();
+    }
+
+    /**
+     * @return 所有条目的权重之和, 没有设置 {@link Weigher} 时等于条目数
+     */
+    public long weightedSize() {
+        evictionLock.lock();
+        try {
+            return weightedSize;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 立即处理缓冲的读记录, 移除过期的条目
+     */
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void tryDrain() {
+        if (evictionLock.tryLock()) {
+            try {
+                maintenance();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void maintenance() {
+        now = System.nanoTime();
+        readBuffer.drainTo(onAccess);
+        if (mayExpire) {
+            timerWheel.advance(now, onExpire);
+        }
+    }
+
+    private void setExpiry(Node<T> node, long ttlNanos) {
+        node.timed = ttlNanos > 0 || expireAfterAccessNanos > 0;
+        // 不过期的条目取足够远的时间, 使用 nanoTime 时只能比较差值
+        node.writeExpiresAt = now + (ttlNanos > 0 ? ttlNanos : Long.MAX_VALUE >> 1);
+        node.accessTime = now;
+    }
+
+    private long expiresAt(Node<T> node) {
+        long expiresAt = node.writeExpiresAt;
+        if (expireAfterAccessNanos > 0) {
+            long accessExpiresAt = node.accessTime + expireAfterAccessNanos;
+            if (accessExpiresAt - expiresAt < 0) {
+                return accessExpiresAt;
+            }
+        }
+        return expiresAt;
+    }
+
+    private void schedule(Node<T> node) {
+        if (node.timed) {
+            timerWheel.schedule(node, expiresAt(node));
+        } else {
+            timerWheel.deschedule(node);
+        }
+    }
+
+    private void onExpire(Node<T> node) {
+        if (node.queue == REMOVED) {
+            return;
+        }
+        if (now - expiresAt(node) >= 0) {
+            evict(node);
+        } else {
+            // 访问后过期的条目被读取过, 推迟
+            timerWheel.schedule(node, expiresAt(node));
+        }
+    }
+
+    private void onAccess(Node<T> node) {
+        switch (node.queue) {
+            case WINDOW:
+                sketch.increment(node.key);
+                window.moveToLast(node);
+                break;
+            case PROBATION:
+                sketch.increment(node.key);
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protectedDeque.addLast(node);
+                protectedWeight += node.weight;
+                // 保护区满时把最久未访问的降回试用区
+                while (protectedWeight > protectedMaximum && protectedDeque.peekFirst() != node) {
+                    Node<T> demoted = protectedDeque.pollFirst();
+                    protectedWeight -= demoted.weight;
+                    demoted.queue = PROBATION;
+                    probation.addLast(demoted);
+                }
+                break;
+            case PROTECTED:
+                sketch.increment(node.key);
+                protectedDeque.moveToLast(node);
+                break;
+            default:
+                // 已经被移除
+                return;
+        }
+        if (expireAfterAccessNanos > 0) {
+            timerWheel.schedule(node, expiresAt(node));
+        }
+    }
+
+    private void evict() {
+        // 窗口满时移到试用区的末尾, 作为候选
+        Node<T> candidate = null;
+        while (windowWeight > windowMaximum) {
+            Node<T> node = window.pollFirst();
+            windowWeight -= node.weight;
+            node.queue = PROBATION;
+            probation.addLast(node);
+            if (candidate == null) {
+                candidate = node;
+            }
+        }
+        while (weightedSize > maximum) {
+            Node<T> victim = probation.peekFirst();
+            if (victim == null) {
+                victim = protectedDeque.peekFirst() != null ? protectedDeque.peekFirst() : window.peekFirst();
+                evict(victim);
+                continue;
+            }
+            if (candidate == null || candidate.queue != PROBATION || candidate == victim) {
+                evict(victim);
+                candidate = null;
+                continue;
+            }
+            if (admit(candidate.key, victim.key)) {
+                evict(victim);
+            } else {
+                Node<T> next = probation.next(candidate);
+                evict(candidate);
+                candidate = next;
+            }
+        }
+    }
+
+    /**
+     * @return 候选的频率更高时返回 true, 淘汰 victim
+     */
+    private boolean admit(Object candidateKey, Object victimKey) {
+        int candidateFreq = sketch.frequency(candidateKey);
+        int victimFreq = sketch.frequency(victimKey);
+        if (candidateFreq > victimFreq) {
+            return true;
+        }
+        if (candidateFreq <= 5) {
+            return false;
+        }
+        // 防止攻击者构造哈希冲突使热门的 victim 永远留下
+        return (ThreadLocalRandom.current().nextInt() & 127) == 0;
+    }
+
+    private void evict(Node<T> node) {
+        data.remove(node.key, node);
+        unlink(node);
+    }
+
+    private void unlink(Node<T> node) {
+        timerWheel.deschedule(node);
+        switch (node.queue) {
+            case WINDOW:
+                window.remove(node);
+                windowWeight -= node.weight;
+                break;
+            case PROBATION:
+                probation.remove(node);
+                break;
+            case PROTECTED:
+                protectedDeque.remove(node);
+                protectedWeight -= node.weight;
+                break;
+            default:
+                return;
+        }
+        node.queue = REMOVED;
+        weightedSize -= node.weight;
+    }
+
+    public static final class Builder<T> {
+        private long maximum = 1024;
+        private Weigher<? super T> weigher;
+        private long maximumEntryWeight;
+        private long expireAfterWriteNanos;
+        private long expireAfterAccessNanos;
+
+        private Builder() {
+        }
+
+        /**
+         * 按条目数限制, 默认 1024
+         */
+        public Builder<T> maximumSize(long maximumSize) {
+            if (maximumSize < 1) {
+                throw new IllegalArgumentException("maxSize < 1");
+            }
+            this.maximum = maximumSize;
+            this.weigher = null;
+            return this;
+        }
+
+        /**
+         * 按总权重限制, 例如用 hwp.sqlte.ResultSetWeigher 估算的字节数
+         */
+        public Builder<T> maximumWeight(long maximumWeight, Weigher<? super T> weigher) {
+            if (maximumWeight < 1) {
+                throw new IllegalArgumentException("maximumWeight < 1");
+            }
+            this.maximum = maximumWeight;
+            this.weigher = Objects.requireNonNull(weigher, "weigher can not be null");
+            return this;
+        }
+
+        /**
+         * 权重超过这个值的条目不缓存, 默认为总的限制
+         */
+        public Builder<T> maximumEntryWeight(long maximumEntryWeight) {
+            if (maximumEntryWeight < 1) {
+                throw new IllegalArgumentException("maximumEntryWeight < 1");
+            }
+            this.maximumEntryWeight = maximumEntryWeight;
+            return this;
+        }
+
+        /**
+         * 写入后多久过期, 0 表示不过期
+         */
+        public Builder<T> expireAfterWrite(long duration, TimeUnit unit) {
+            this.expireAfterWriteNanos = toNanos(duration, unit);
+            return this;
+        }
+
+        /**
+         * 最后一次读取或写入后多久过期, 0 表示不过期
+         */
+        public Builder<T> expireAfterAccess(long duration, TimeUnit unit) {
+            this.expireAfterAccessNanos = toNanos(duration, unit);
+            return this;
+        }
+
+        public TinyLfuCache<T> build() {
+            if (maximumEntryWeight > maximum) {
+                throw new IllegalArgumentException("maximumEntryWeight > maximum");
+            }
+            return new TinyLfuCache<>(this);
+        }
+
+        private static long toNanos(long duration, TimeUnit unit) {
+            if (duration < 0) {
+                throw new IllegalArgumentException("expire time must be >= 0");
+            }
+            Objects.requireNonNull(unit, "unit can not be null");
+            return unit.toNanos(duration);
+        }
+    }
+
+    static final class Node<T> {
+        final Object key;
+        volatile T value;
+        volatile long writeExpiresAt;
+        volatile long accessTime;
+        // 以下字段只在持有 evictionLock 时访问
+        int queue = REMOVED;
+        long weight;
+        boolean timed;
+        Node<T> prev;
+        Node<T> next;
+        Node<T> prevInTimer;
+        Node<T> nextInTimer;
+
+        Node(Object key, T value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * 侵入式的双向链表, 头部是最久未访问的
+     */
+    static final class AccessOrderDeque<T> {
+        private Node<T> first;
+        private Node<T> last;
+
+        void addLast(Node<T> node) {
+            node.prev = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+        }
+
+        Node<T> peekFirst() {
+            return first;
+        }
+
+        Node<T> pollFirst() {
+            Node<T> node = first;
+            if (node != null) {
+                remove(node);
+            }
+            return node;
+        }
+
+        Node<T> next(Node<T> node) {
+            return node.next;
+        }
+
+        void remove(Node<T> node) {
+            if (node.prev == null) {
+                first = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+        }
+
+        void moveToLast(Node<T> node) {
+            if (node != last) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        void clear() {
+            first = null;
+            last = null;
+        }
+    }
+
+    /**
+     * 按线程分段的有损环形缓冲区, 满时丢弃记录(只影响淘汰的精确度), 由持有锁的线程批量读取
+     */
+    static final class ReadBuffer<E> {
+        static final int SUCCESS = 0;
+        static final int FULL = 1;
+        static final int FAILED = 2;
+
+        private static final int BUFFER_SIZE = 16;
+        private static final int MASK = BUFFER_SIZE - 1;
+        private static final int STRIPES = Math.min(64, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1);
+
+        private final AtomicLong[] writeCounters = new AtomicLong[STRIPES];
+        private final AtomicLongArray readCounters = new AtomicLongArray(STRIPES);
+        private final AtomicReferenceArray<E> buffer = new AtomicReferenceArray<>(STRIPES * BUFFER_SIZE);
+
+        ReadBuffer() {
+            for (int i = 0; i < STRIPES; i++) {
+                writeCounters[i] = new AtomicLong();
+            }
+        }
+
+        int offer(E e) {
+            int stripe = stripe();
+            AtomicLong writeCounter = writeCounters[stripe];
+            long tail = writeCounter.get();
+            long head = readCounters.get(stripe);
+            if (tail - head >= BUFFER_SIZE) {
+                return FULL;
+            }
+            if (writeCounter.compareAndSet(tail, tail + 1)) {
+                buffer.lazySet(stripe * BUFFER_SIZE + (int) (tail & MASK), e);
+                return tail - head + 1 >= BUFFER_SIZE ? FULL : SUCCESS;
+            }
+            return FAILED;
+        }
+
+        /**
+         * 调用者必须持有锁
+         */
+        void drainTo(Consumer<E> consumer) {
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                long head = readCounters.get(stripe);
+                long tail = writeCounters[stripe].get();
+                for (; head < tail; head++) {
+                    int index = stripe * BUFFER_SIZE + (int) (head & MASK);
+                    E e = buffer.get(index);
+                    if (e == null) {
+                        // 写入还没完成
+                        break;
+                    }
+                    buffer.lazySet(index, null);
+                    consumer.accept(e);
+                }
+                readCounters.lazySet(stripe, head);
+            }
+        }
+
+        private static int stripe() {
+            int h = (int) Thread.currentThread().getId() * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & (STRIPES - 1);
+        }
+    }
+
+}
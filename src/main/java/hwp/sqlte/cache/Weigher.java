@@ -0,0 +1,26 @@
+package hwp.sqlte.cache;
+
+/**
+ * 计算缓存条目的权重, 用于按总权重(例如估算的字节数)而不是条目数限制缓存, 见 {@link TinyLfuCache.Builder#maximumWeight}
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+@FunctionalInterface
+public interface Weigher<T> {
+
+    /**
+     * 写入时调用一次, 必须很快并且不能修改缓存
+     *
+     * @return 权重, 不能小于 0
+     */
+    long weigh(Object key, T value);
+
+    /**
+     * 每个条目的权重为 1, 即按条目数限制
+     */
+    static <T> Weigher<T> singleton() {
+        return (key, value) -> 1;
+    }
+
+}
@@ -0,0 +1,94 @@
+package hwp.sqlte.dialect;
+
+/**
+ * 数据库方言: 分页语法, 自增键的返回方式, 流式读取, upsert 语法以及批量插入的限制.
+ * <p>
+ * 每个 DataSource 只识别一次, 见 {@link Dialects#of(javax.sql.DataSource)}.
+ * 实现必须是无状态且线程安全的.
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public interface Dialect {
+
+    String name();
+
+    /**
+     * 追加分页子句
+     *
+     * @param offset 跳过的行数
+     * @param limit  最多返回的行数
+     */
+    void paging(StringBuilder sql, int offset, int limit);
+
+    default void limit(StringBuilder sql, int limit) {
+        sql.append("LIMIT ").append(limit);
+    }
+
+    /**
+     * 流式读取时设置给 Statement 的 fetch size
+     *
+     * @param fetchSize {@link hwp.sqlte.FetchPolicy#getFetchSize()}
+     * @return 0 表示不设置
+     */
+    default int streamingFetchSize(int fetchSize) {
+        return fetchSize;
+    }
+
+    /**
+     * @return 是否只有在非自动提交模式下才能使用游标读取
+     */
+    default boolean cursorRequiresTransaction() {
+        return false;
+    }
+
+    /**
+     * @return getGeneratedKeys() 返回的列名是否与表的列名无关(例如 MySQL 的 GENERATED_KEY), 只能按位置读取
+     */
+    default boolean generatedKeysByPosition() {
+        return false;
+    }
+
+    /**
+     * 插入, 键冲突时更新其他列, 用于 {@link hwp.sqlte.SqlConnection#upsert(Object, String)}, 不支持时抛出 UnsupportedOperationException
+     *
+     * @param table      表名
+     * @param columns    插入的列, 参数顺序与之一致
+     * @param keyColumns 判断冲突的列(主键或唯一键), 必须包含在 columns 中
+     */
+    default String upsert(String table, String[] columns, String[] keyColumns) {
+        throw new UnsupportedOperationException("Upsert is not supported by dialect: " + name());
+    }
+
+    /**
+     * @return 一条语句最多可以绑定的参数个数
+     */
+    default int maxParameters() {
+        return 2000;
+    }
+
+    /**
+     * @return 一个 IN 列表最多的值个数, 超过时 {@link hwp.sqlte.SqlConnection#listIn} 分批查询.
+     * 默认不超过参数上限的一半, 给语句中的其它参数留出位置
+     */
+    default int maxInListSize() {
+        return Math.max(1, Math.min(1000, maxParameters() / 2));
+    }
+
+    /**
+     * @return 一条 INSERT 语句最多插入的行数, 只用于生成多行 INSERT ... VALUES (...), (...) 的场合.
+     * JDBC 批处理不受它限制, 驱动改写批处理(例如 MySQL 的 rewriteBatchedStatements)时会自己拆分
+     */
+    default int maxInsertRows() {
+        return 1000;
+    }
+
+    /**
+     * @param columns 每行的列数
+     * @return 一条 INSERT 语句最多插入的行数, 同时受参数个数的限制
+     */
+    default int maxInsertRows(int columns) {
+        return Math.max(1, Math.min(maxInsertRows(), maxParameters() / Math.max(columns, 1)));
+    }
+
+}
@@ -0,0 +1,163 @@
+package hwp.sqlte.dialect;
+
+import hwp.sqlte.UncheckedSQLException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 根据驱动识别方言, 按 DataSource 缓存, 每个 DataSource 只读取一次元数据
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public final class Dialects {
+
+    // 弱引用 DataSource, 关闭并丢弃的 DataSource 可以被回收
+    private static final Map<DataSource, Dialect> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private Dialects() {
+    }
+
+    /**
+     * 第一次调用时会获取一个连接读取元数据
+     */
+    public static Dialect of(DataSource dataSource) throws UncheckedSQLException {
+        Dialect dialect = CACHE.get(dataSource);
+        if (dialect != null) {
+            return dialect;
+        }
+        try (Connection conn = dataSource.getConnection()) {
+            return of(dataSource, conn);
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * @param conn 从 dataSource 获取的连接, 没有缓存时用来读取元数据
+     */
+    public static Dialect of(DataSource dataSource, Connection conn) throws UncheckedSQLException {
+        Dialect dialect = CACHE.get(dataSource);
+        if (dialect == null) {
+            dialect = detect(conn);
+            CACHE.putIfAbsent(dataSource, dialect);
+        }
+        return dialect;
+    }
+
+    /**
+     * @return 已经识别或指定的方言, 没有时返回 null, 不会获取连接
+     */
+    public static Dialect detected(DataSource dataSource) {
+        return CACHE.get(dataSource);
+    }
+
+    /**
+     * 指定 DataSource 的方言, 不再自动识别
+     */
+    public static void register(DataSource dataSource, Dialect dialect) {
+        CACHE.put(dataSource, dialect);
+    }
+
+    public static Dialect detect(Connection conn) throws UncheckedSQLException {
+        try {
+            DatabaseMetaData metaData = conn.getMetaData();
+            Dialect dialect = detect(metaData.getDatabaseProductName());
+            return dialect == GenericDialect.INSTANCE ? detect(metaData.getDriverName()) : dialect;
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * @param name 数据库产品名或驱动名
+     */
+    public static Dialect detect(String name) {
+        if (name == null) {
+            return GenericDialect.INSTANCE;
+        }
+        String lower = name.toLowerCase(Locale.ROOT);
+        if (lower.contains("mysql") || lower.contains("mariadb")) {
+            return MySQLDialect.INSTANCE;
+        }
+        if (lower.contains("postgresql")) {
+            return PostgreSQLDialect.INSTANCE;
+        }
+        if (lower.contains("sqlite")) {
+            return SQLiteDialect.INSTANCE;
+        }
+        if (lower.equals("h2") || lower.startsWith("h2 ")) {
+            return H2Dialect.INSTANCE;
+        }
+        return GenericDialect.INSTANCE;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // 生成 SQL
+
+    static StringBuilder insert(String table, String[] columns) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append('(');
+        join(sql, columns);
+        sql.append(") VALUES (");
+        placeholders(sql, columns.length);
+        return sql.append(')');
+    }
+
+    /**
+     * PostgreSQL / SQLite: ON CONFLICT (keys) DO UPDATE SET c=EXCLUDED.c
+     */
+    static String onConflict(String table, String[] columns, String[] keyColumns) {
+        StringBuilder sql = insert(table, columns);
+        sql.append(" ON CONFLICT (");
+        join(sql, keyColumns);
+        sql.append(") DO ");
+        boolean first = true;
+        for (String column : columns) {
+            if (contains(keyColumns, column)) {
+                continue;
+            }
+            sql.append(first ? "UPDATE SET " : ", ");
+            sql.append(column).append("=EXCLUDED.").append(column);
+            first = false;
+        }
+        if (first) {
+            sql.append("NOTHING");
+        }
+        return sql.toString();
+    }
+
+    static void join(StringBuilder sql, String[] columns) {
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(columns[i]);
+        }
+    }
+
+    static void placeholders(StringBuilder sql, int count) {
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append('?');
+        }
+    }
+
+    static boolean contains(String[] columns, String column) {
+        for (String c : columns) {
+            if (c.equalsIgnoreCase(column)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,23 @@
+package hwp.sqlte.dialect;
+
+/**
+ * 无法识别的数据库, 保持原有的行为: LIMIT offset, limit
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public class GenericDialect implements Dialect {
+
+    public static final GenericDialect INSTANCE = new GenericDialect();
+
+    @Override
+    public String name() {
+        return "generic";
+    }
+
+    @Override
+    public void paging(StringBuilder sql, int offset, int limit) {
+        sql.append("LIMIT ").append(offset).append(", ").append(limit);
+    }
+
+}
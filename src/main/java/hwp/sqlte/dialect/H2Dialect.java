@@ -0,0 +1,39 @@
+package hwp.sqlte.dialect;
+
+/**
+ * H2, 支持 MySQL 风格的分页
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public class H2Dialect implements Dialect {
+
+    public static final H2Dialect INSTANCE = new H2Dialect();
+
+    @Override
+    public String name() {
+        return "h2";
+    }
+
+    @Override
+    public void paging(StringBuilder sql, int offset, int limit) {
+        sql.append("LIMIT ").append(offset).append(", ").append(limit);
+    }
+
+    @Override
+    public String upsert(String table, String[] columns, String[] keyColumns) {
+        StringBuilder sql = new StringBuilder("MERGE INTO ").append(table).append('(');
+        Dialects.join(sql, columns);
+        sql.append(") KEY(");
+        Dialects.join(sql, keyColumns);
+        sql.append(") VALUES (");
+        Dialects.placeholders(sql, columns.length);
+        return sql.append(')').toString();
+    }
+
+    @Override
+    public int maxParameters() {
+        return 65535;
+    }
+
+}
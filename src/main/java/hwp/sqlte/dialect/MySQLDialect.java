@@ -0,0 +1,66 @@
+package hwp.sqlte.dialect;
+
+/**
+ * MySQL / MariaDB
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public class MySQLDialect implements Dialect {
+
+    public static final MySQLDialect INSTANCE = new MySQLDialect();
+
+    @Override
+    public String name() {
+        return "mysql";
+    }
+
+    @Override
+    public void paging(StringBuilder sql, int offset, int limit) {
+        sql.append("LIMIT ").append(offset).append(", ").append(limit);
+    }
+
+    /**
+     * jdbc规范: rows >= 0. MySQL有个例外, Integer.MIN_VALUE 表示逐行读取, 否则会把结果全部读取到内存
+     */
+    @Override
+    public int streamingFetchSize(int fetchSize) {
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * 返回的列名是 GENERATED_KEY
+     */
+    @Override
+    public boolean generatedKeysByPosition() {
+        return true;
+    }
+
+    @Override
+    public String upsert(String table, String[] columns, String[] keyColumns) {
+        StringBuilder sql = Dialects.insert(table, columns);
+        sql.append(" ON DUPLICATE KEY UPDATE ");
+        boolean first = true;
+        for (String column : columns) {
+            if (Dialects.contains(keyColumns, column)) {
+                continue;
+            }
+            if (!first) {
+                sql.append(", ");
+            }
+            sql.append(column).append("=VALUES(").append(column).append(')');
+            first = false;
+        }
+        if (first) {
+            // 只有键列时什么也不更新
+            sql.append(keyColumns[0]).append('=').append(keyColumns[0]);
+        }
+        return sql.toString();
+    }
+
+    @Override
+    public int maxParameters() {
+        return 65535;
+    }
+
+}
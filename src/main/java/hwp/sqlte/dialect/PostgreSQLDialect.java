@@ -0,0 +1,41 @@
+package hwp.sqlte.dialect;
+
+/**
+ * PostgreSQL
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public class PostgreSQLDialect implements Dialect {
+
+    public static final PostgreSQLDialect INSTANCE = new PostgreSQLDialect();
+
+    @Override
+    public String name() {
+        return "postgresql";
+    }
+
+    @Override
+    public void paging(StringBuilder sql, int offset, int limit) {
+        sql.append("LIMIT ").append(limit).append(" OFFSET ").append(offset);
+    }
+
+    /**
+     * 只有在非自动提交模式且 fetch size &gt; 0 时才使用游标, 否则会把结果全部读取到内存
+     */
+    @Override
+    public boolean cursorRequiresTransaction() {
+        return true;
+    }
+
+    @Override
+    public String upsert(String table, String[] columns, String[] keyColumns) {
+        return Dialects.onConflict(table, columns, keyColumns);
+    }
+
+    @Override
+    public int maxParameters() {
+        return Short.MAX_VALUE;
+    }
+
+}
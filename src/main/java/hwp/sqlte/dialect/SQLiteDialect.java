@@ -0,0 +1,49 @@
+package hwp.sqlte.dialect;
+
+/**
+ * SQLite, upsert 需要 3.24 及以上版本
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public class SQLiteDialect implements Dialect {
+
+    public static final SQLiteDialect INSTANCE = new SQLiteDialect();
+
+    @Override
+    public String name() {
+        return "sqlite";
+    }
+
+    @Override
+    public void paging(StringBuilder sql, int offset, int limit) {
+        sql.append("LIMIT ").append(offset).append(", ").append(limit);
+    }
+
+    /**
+     * 返回的列名是 last_insert_rowid()
+     */
+    @Override
+    public boolean generatedKeysByPosition() {
+        return true;
+    }
+
+    @Override
+    public String upsert(String table, String[] columns, String[] keyColumns) {
+        return Dialects.onConflict(table, columns, keyColumns);
+    }
+
+    /**
+     * SQLITE_MAX_VARIABLE_NUMBER 在 3.32 之前默认为 999
+     */
+    @Override
+    public int maxParameters() {
+        return 999;
+    }
+
+    @Override
+    public int maxInsertRows() {
+        return 500;
+    }
+
+}
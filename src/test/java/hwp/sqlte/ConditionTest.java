@@ -96,4 +96,21 @@ public class ConditionTest {
         Assert.assertEquals(argsExpected, Arrays.toString(con.args()));
     }
 
+
+    @Test
+    public void testInBuckets() {
+        Config.getConfig().setInListBuckets(1, 4, 16);
+        try {
+            Condition con = Condition.in("id", 1, 2, 3);
+            Assert.assertEquals("id IN (?, ?, ?, ?)", con.sql());
+            Assert.assertEquals("[1, 2, 3, 3]", Arrays.toString(con.args()));
+            Assert.assertEquals(con.sql(), Condition.in("id", 5, 6).sql());
+            Object[] values = new Object[20];
+            Arrays.fill(values, 1);
+            Assert.assertEquals(32, Condition.in("id", values).args().length);
+        } finally {
+            Config.getConfig().setInListBuckets();
+        }
+        Assert.assertEquals("id IN (?, ?, ?)", Condition.in("id", 1, 2, 3).sql());
+    }
 }
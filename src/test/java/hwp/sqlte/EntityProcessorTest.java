@@ -0,0 +1,139 @@
+package hwp.sqlte;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * 测试编译时通过 testAnnotationProcessor 运行 sqlte-processor
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public class EntityProcessorTest {
+
+    @Test
+    public void testLoadGenerated() {
+        ClassInfo info = ClassInfo.getClassInfo(GeneratedEntity.class);
+        Assert.assertNotNull(info.getEntityMapper());
+        Assert.assertEquals("hwp.sqlte.GeneratedEntity_SqlteMapper", info.getEntityMapper().getClass().getName());
+        Assert.assertTrue(info.getEntityMapper().canInstantiate());
+        Assert.assertEquals(Arrays.asList("id", "count", "score", "ratio", "enabled", "name", "status", "tags"),
+                Arrays.asList(info.getEntityMapper().fields()));
+        Assert.assertTrue(BeanMapper.supplier(GeneratedEntity.class).get() instanceof GeneratedEntity);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        ClassInfo info = ClassInfo.getClassInfo(GeneratedEntity.class);
+        GeneratedEntity bean = new GeneratedEntity();
+        info.getAccessor("id").setLong(bean, 7L);
+        info.getAccessor("count").setInt(bean, 3);
+        info.getAccessor("score").set(bean, 90);
+        info.getAccessor("ratio").setDouble(bean, 0.5);
+        info.getAccessor("enabled").set(bean, true);
+        info.getAccessor("name").set(bean, "Zero");
+        info.getAccessor("status").set(bean, GeneratedEntity.Status.DONE);
+        info.getAccessor("tags").set(bean, Arrays.asList("a", "b"));
+
+        Assert.assertEquals(7L, bean.id);
+        Assert.assertEquals(3, bean.count);
+        Assert.assertEquals(Integer.valueOf(90), bean.score);
+        Assert.assertEquals(0.5, bean.ratio, 0);
+        Assert.assertTrue(bean.enabled);
+        Assert.assertEquals("Zero", bean.name);
+
+        Assert.assertEquals(7L, info.getAccessor("id").getLong(bean));
+        Assert.assertEquals(3, info.getAccessor("count").getInt(bean));
+        Assert.assertEquals(90, info.getAccessor("score").get(bean));
+        Assert.assertEquals(true, info.getAccessor("enabled").get(bean));
+        Assert.assertEquals("DONE", Helper.getSerializedValue(bean, info.getAccessor("status")));
+        Assert.assertEquals("[\"a\",\"b\"]", Helper.getSerializedValue(bean, info.getAccessor("tags")));
+    }
+
+    @Test
+    public void testMapRow() {
+        ColumnIndex index = new ColumnIndex(new String[]{"id", "count", "score", "name", "status", "tags"});
+        Row row = new Row(index, new Object[]{7L, 3, null, "Zero", "NEW", "[\"a\"]"});
+        GeneratedEntity bean = new BeanMapper<>(GeneratedEntity.class).map(row);
+        Assert.assertEquals(7L, bean.id);
+        Assert.assertEquals(3, bean.count);
+        Assert.assertNull(bean.score);
+        Assert.assertEquals("Zero", bean.name);
+        Assert.assertEquals(GeneratedEntity.Status.NEW, bean.status);
+        Assert.assertEquals(Arrays.asList("a"), bean.tags);
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        // 列 1: count, 列 2: score(NULL), 列 3: name
+        Object[] values = {3, null, "Zero"};
+        int[] last = new int[1];
+        ResultSet rs = (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{ResultSet.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getInt":
+                    last[0] = (Integer) args[0];
+                    Object v = values[last[0] - 1];
+                    return v == null ? 0 : v;
+                case "getString":
+                    last[0] = (Integer) args[0];
+                    return values[last[0] - 1];
+                case "wasNull":
+                    return values[last[0] - 1] == null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+        ClassInfo info = ClassInfo.getClassInfo(GeneratedEntity.class);
+        GeneratedEntity bean = new GeneratedEntity();
+        bean.score = 1;
+        Assert.assertTrue(info.getAccessor("count").read(rs, 1, bean));
+        Assert.assertTrue(info.getAccessor("score").read(rs, 2, bean));
+        Assert.assertTrue(info.getAccessor("name").read(rs, 3, bean));
+        Assert.assertEquals(3, bean.count);
+        Assert.assertEquals(Integer.valueOf(1), bean.score);
+        Assert.assertEquals("Zero", bean.name);
+        // 需要转换的属性由运行时处理
+        Assert.assertFalse(info.getAccessor("status").read(rs, 1, bean));
+        Assert.assertFalse(info.getAccessor("tags").read(rs, 1, bean));
+    }
+
+    @Test
+    public void testReadConverts() throws Exception {
+        // 列 1: id(TIMESTAMP), 列 2: name(INTEGER), 列类型不一致时不调用生成的 getLong/getString
+        Timestamp time = new Timestamp(1_600_000_000_000L);
+        Object[] values = {time, 42};
+        ResultSet rs = (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{ResultSet.class}, (proxy, method, args) -> {
+            if (method.getName().equals("getObject")) {
+                return values[(Integer) args[0] - 1];
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+        ColumnIndex index = new ColumnIndex(new String[]{"id", "name"}, new int[]{Types.TIMESTAMP, Types.INTEGER});
+        GeneratedEntity bean = index.mappingPlan(ClassInfo.getClassInfo(GeneratedEntity.class)).read(rs, new GeneratedEntity());
+        Assert.assertEquals(time.getTime(), bean.id);
+        Assert.assertEquals("42", bean.name);
+    }
+
+    @Test
+    public void testNotInstantiable() {
+        ClassInfo info = ClassInfo.getClassInfo(GeneratedEntity.Base.class);
+        Assert.assertNotNull(info.getEntityMapper());
+        Assert.assertFalse(info.getEntityMapper().canInstantiate());
+        Supplier<GeneratedEntity.Base> supplier = BeanMapper.supplier(GeneratedEntity.Base.class);
+        try {
+            supplier.get();
+            Assert.fail();
+        } catch (SqlteException e) {
+            // 使用反射创建, 而不是生成的代码
+            Assert.assertTrue(e.getCause() instanceof InstantiationException);
+        }
+    }
+
+}
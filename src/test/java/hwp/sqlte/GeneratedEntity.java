@@ -0,0 +1,37 @@
+package hwp.sqlte;
+
+import java.util.List;
+
+/**
+ * 测试时由 sqlte-processor 生成 GeneratedEntity_SqlteMapper 和 GeneratedEntity_SqlteBinder
+ *
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+@Table(name = "generated_entity")
+public class GeneratedEntity {
+
+    @Id
+    public long id;
+    public int count;
+    public Integer score;
+    public double ratio;
+    public boolean enabled;
+    public String name;
+    public Status status;
+    @Column(json = true)
+    public List<String> tags;
+
+    public enum Status {
+        NEW, DONE
+    }
+
+    /**
+     * 不能直接创建, 生成的映射器不负责实例化
+     */
+    @Table(name = "generated_entity")
+    public static abstract class Base {
+        public String name;
+    }
+
+}
@@ -0,0 +1,72 @@
+package hwp.sqlte;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+/**
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public class MappingPlanTest {
+
+    public static class Event {
+        public int id;
+        public long createdAt;
+        public String name;
+    }
+
+    /**
+     * 只支持 getObject 和数值列的 getInt, 用其它 getter 读取时抛出异常
+     */
+    private static ResultSet resultSet(Object... values) {
+        int[] last = new int[1];
+        return (ResultSet) Proxy.newProxyInstance(MappingPlanTest.class.getClassLoader(), new Class[]{ResultSet.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getObject":
+                    last[0] = (Integer) args[0];
+                    return values[last[0] - 1];
+                case "getInt":
+                    last[0] = (Integer) args[0];
+                    return ((Number) values[last[0] - 1]).intValue();
+                case "wasNull":
+                    return values[last[0] - 1] == null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    @Test
+    public void testTimestampToLong() throws Exception {
+        Timestamp time = new Timestamp(1_600_000_000_000L);
+        ColumnIndex index = new ColumnIndex(new String[]{"id", "created_at", "name"},
+                new int[]{Types.INTEGER, Types.TIMESTAMP, Types.TIMESTAMP});
+        MappingPlan plan = index.mappingPlan(ClassInfo.getClassInfo(Event.class));
+        Event event = plan.read(resultSet(7, time, time), new Event());
+        Assert.assertEquals(7, event.id);
+        // 通过 ConversionService 转换, 而不是 getLong/getString
+        Assert.assertEquals(time.getTime(), event.createdAt);
+        Assert.assertEquals(time.toString(), event.name);
+    }
+
+    @Test
+    public void testLayout() {
+        ClassInfo info = ClassInfo.getClassInfo(Event.class);
+        String[] names = {"id", "created_at", "name"};
+        MappingPlan numeric = info.getMappingPlan(new ColumnIndex(names, new int[]{Types.INTEGER, Types.BIGINT, Types.VARCHAR}));
+        MappingPlan timestamp = info.getMappingPlan(new ColumnIndex(names, new int[]{Types.INTEGER, Types.TIMESTAMP, Types.VARCHAR}));
+        Assert.assertNotSame(numeric, timestamp);
+        Assert.assertSame(numeric, info.getMappingPlan(new ColumnIndex(names, new int[]{Types.INTEGER, Types.BIGINT, Types.VARCHAR})));
+        Assert.assertTrue(MappingPlan.isDirect(long.class, Types.BIGINT));
+        Assert.assertFalse(MappingPlan.isDirect(long.class, Types.TIMESTAMP));
+        Assert.assertFalse(MappingPlan.isDirect(long.class, Types.VARCHAR));
+        Assert.assertFalse(MappingPlan.isDirect(String.class, Types.CLOB));
+        Assert.assertTrue(MappingPlan.isDirect(boolean.class, Types.TINYINT));
+    }
+
+}
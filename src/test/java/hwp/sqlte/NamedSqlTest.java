@@ -0,0 +1,70 @@
+package hwp.sqlte;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public class NamedSqlTest {
+
+    @Test
+    public void testMap() {
+        Map<String, Object> params = new HashMap<>();
+        params.put("name", "Zero");
+        params.put("ids", Arrays.asList(1, 2, 3));
+        Sql sql = Sql.named("SELECT * FROM users WHERE username = :name AND id IN (:ids)", params);
+        Assert.assertEquals("SELECT * FROM users WHERE username = ? AND id IN (?, ?, ?)", sql.sql());
+        Assert.assertEquals("[Zero, 1, 2, 3]", Arrays.toString(sql.args()));
+    }
+
+    @Test
+    public void testBean() {
+        User2 user = new User2("Zero", "zero@xxx.com", "123456");
+        user.id = 12;
+        Map<String, Object> params = Collections.singletonMap("user", user);
+        Sql sql = Sql.named("UPDATE users SET email = :user.email, password_salt = :user.passwordSalt WHERE id = :user.id", params);
+        Assert.assertEquals("UPDATE users SET email = ?, password_salt = ? WHERE id = ?", sql.sql());
+        Assert.assertEquals("[zero@xxx.com, sfwerx, 12]", Arrays.toString(sql.args()));
+    }
+
+    @Test
+    public void testRow() {
+        Row row = new Row().set("id", 12);
+        Sql sql = Sql.named("SELECT * FROM users WHERE id = :id", row);
+        Assert.assertEquals("[12]", Arrays.toString(sql.args()));
+    }
+
+    @Test
+    public void testIgnored() {
+        NamedSql sql = NamedSql.parse("SELECT ':a', \"b:c\", d::text FROM t -- :e\nWHERE f = :f /* :g */");
+        Assert.assertEquals("SELECT ':a', \"b:c\", d::text FROM t -- :e\nWHERE f = ? /* :g */", sql.sql());
+        Assert.assertEquals(Collections.singletonList("f"), sql.names());
+        Assert.assertSame(sql, NamedSql.parse("SELECT ':a', \"b:c\", d::text FROM t -- :e\nWHERE f = :f /* :g */"));
+    }
+
+    @Test
+    public void testSqlProvider() {
+        User2 user = new User2("Zero", "zero@xxx.com", "123456");
+        Sql sql = Sql.named("#login-named", user);
+        Assert.assertEquals("SELECT * FROM users WHERE username=? and password=?", sql.sql());
+        Assert.assertEquals("[Zero, 123456]", Arrays.toString(sql.args()));
+    }
+
+    @Test(expected = SqlteException.class)
+    public void testMissing() {
+        Sql.named("SELECT * FROM users WHERE id = :id", Collections.emptyMap());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmpty() {
+        NamedSql.parse("");
+    }
+
+}
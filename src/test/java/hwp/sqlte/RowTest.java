@@ -0,0 +1,188 @@
+package hwp.sqlte;
+
+import hwp.sqlte.cache.Cache;
+import hwp.sqlte.cache.TinyLfuCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public class RowTest {
+
+    private final ColumnIndex index = new ColumnIndex(new String[]{"id", "username", "email"});
+
+    @Test
+    public void testGet() {
+        Row row = new Row(index, new Object[]{1, "Zero", null});
+        Assert.assertEquals(3, row.size());
+        Assert.assertEquals(1, (int) row.getValue("id"));
+        Assert.assertEquals("Zero", row.getString("username"));
+        Assert.assertTrue(row.containsKey("email"));
+        Assert.assertNull(row.get("email"));
+        Assert.assertNull(row.get("xxx"));
+        Assert.assertEquals(Arrays.asList("id", "username", "email"), Arrays.asList(row.keySet().toArray()));
+    }
+
+    @Test
+    public void testEstimatedSize() {
+        SqlResultSet small = new SqlResultSet(index, new ArrayList<>(Arrays.asList(
+                new Row(index, new Object[]{1, "Zero", null}))));
+        SqlResultSet large = new SqlResultSet(index, new ArrayList<>(Arrays.asList(
+                new Row(index, new Object[]{1, "Zero", null}),
+                new Row(index, new Object[]{2, "Zero", "zero@xxx.com"}))));
+        Assert.assertTrue(small.estimatedSize() > 0);
+        Assert.assertTrue(large.estimatedSize() > 2 * small.estimatedSize() - 64);
+        Assert.assertTrue(ResultSetWeigher.INSTANCE.weigh("key", large) > large.estimatedSize());
+    }
+
+    @Test
+    public void testCacheMaximumBytes() {
+        SqlResultSet small = new SqlResultSet(index, new ArrayList<>(Arrays.asList(
+                new Row(index, new Object[]{1, "Zero", null}))));
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            rows.add(new Row(index, new Object[]{i, "user" + i, "user" + i + "@xxx.com"}));
+        }
+        SqlResultSet large = new SqlResultSet(index, rows);
+        long maxBytes = 16 * ResultSetWeigher.INSTANCE.weigh("small", small) + 16;
+        Config.getConfig().setCacheMaximumBytes(maxBytes);
+        try {
+            Cache<Object> cache = Config.getConfig().getCache();
+            Assert.assertTrue(cache instanceof TinyLfuCache);
+            cache.put("small", small);
+            cache.put("large", large);
+            Assert.assertSame(small, cache.get("small"));
+            // 超过 maxBytes / 16 的结果不缓存
+            Assert.assertNull(cache.get("large"));
+        } finally {
+            Config.getConfig().setCache(null);
+        }
+    }
+
+    @Test
+    public void testPut() {
+        Row row = new Row(index, new Object[]{1, "Zero", null});
+        row.set("email", "zero@xxx.com");
+        Assert.assertEquals("zero@xxx.com", row.get("email"));
+        row.set("age", 18);
+        Assert.assertEquals(4, row.size());
+        Assert.assertEquals(18, row.get("age"));
+        Assert.assertEquals("Zero", row.get("username"));
+    }
+
+    @Test
+    public void testRemove() {
+        Row row = new Row(index, new Object[]{1, "Zero", null});
+        Assert.assertEquals("Zero", row.remove("username"));
+        Assert.assertFalse(row.containsKey("username"));
+        Assert.assertEquals(2, row.size());
+    }
+
+    @Test
+    public void testDuplicateColumn() {
+        Row row = new Row(new ColumnIndex(new String[]{"id", "id"}), new Object[]{1, 2});
+        Assert.assertEquals(1, row.size());
+        Assert.assertEquals(2, row.get("id"));
+    }
+
+    @Test
+    public void testParallelList() {
+        // 远多于 PARALLEL_THRESHOLD 行, 会拆分成多个任务
+        int size = SqlResultSet.PARALLEL_THRESHOLD * 5 + 7;
+        List<Row> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            rows.add(new Row(index, new Object[]{i, "user" + i, null}));
+        }
+        SqlResultSet result = new SqlResultSet(index, rows);
+        RowMapper<Integer> mapper = row -> row.getValue("id");
+        for (List<Integer> ids : Arrays.asList(result.list(mapper, 4), result.parallelList(mapper))) {
+            Assert.assertEquals(size, ids.size());
+            for (int i = 0; i < size; i++) {
+                Assert.assertEquals(i, (int) ids.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testSpillReadTwice() throws Exception {
+        List<Row> head = new ArrayList<>(Arrays.asList(new Row(index, new Object[]{1, "Zero", null})));
+        Row first = new Row(index, new Object[]{2, "May", "may@xxx.com"});
+        List<Row> rows = SpillFile.spill(resultSet(new Object[][]{{3, "Tom", null}}), index, head, first);
+        SqlResultSet rs = new SqlResultSet(index, rows);
+        Assert.assertTrue(rs.isSpilled());
+        Assert.assertEquals(1, (int) rs.first().getValue("id"));
+        Assert.assertEquals(3, rs.list(row -> row.getString("username")).size());
+        // 读取后不删除临时文件, 可以再次读取
+        Assert.assertEquals(Arrays.asList("Zero", "May", "Tom"), rs.list(row -> row.getString("username")));
+        rs.close();
+        try {
+            rs.rows().get(2);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            //
+        }
+    }
+
+    @Test
+    public void testSpillLob() throws Exception {
+        Clob clob = (Clob) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Clob.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "length":
+                    return 4L;
+                case "getSubString":
+                    return "Zero";
+                case "free":
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+        Row first = new Row(index, new Object[]{1, "May", null});
+        List<Row> rows = SpillFile.spill(resultSet(new Object[][]{{2, clob, null}}), index, new ArrayList<>(), first);
+        try (SqlResultSet rs = new SqlResultSet(index, rows)) {
+            // 写入前读到内存
+            Assert.assertEquals("Zero", rs.rows().get(1).getString("username"));
+        }
+        try {
+            SpillFile.spill(resultSet(new Object[][]{{2, new Object(), null}}), index, new ArrayList<>(), first);
+            Assert.fail();
+        } catch (ResultTooLargeException e) {
+            //
+        }
+    }
+
+    /**
+     * 只支持 next 和 getObject
+     */
+    static ResultSet resultSet(Object[][] rows) {
+        int[] cursor = {-1};
+        return (ResultSet) Proxy.newProxyInstance(RowTest.class.getClassLoader(), new Class[]{ResultSet.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    return ++cursor[0] < rows.length;
+                case "getObject":
+                    return rows[cursor[0]][(Integer) args[0] - 1];
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    @Test
+    public void testEquals() {
+        Row row = new Row(index, new Object[]{1, "Zero", null});
+        Row row2 = new Row().set("id", 1).set("username", "Zero").set("email", null);
+        Assert.assertEquals(row2, row);
+        Assert.assertEquals(row2.hashCode(), row.hashCode());
+    }
+
+}
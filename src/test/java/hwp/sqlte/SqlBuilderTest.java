@@ -1,5 +1,6 @@
 package hwp.sqlte;
 
+import hwp.sqlte.dialect.PostgreSQLDialect;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -37,6 +38,17 @@ public class SqlBuilderTest {
 //        System.out.println(sql);
     }
 
+    @Test
+    public void testWhereExample() {
+        User2 example = new User2();
+        example.username = "Zero";
+        example.email = " ";
+        SqlBuilder sql = new SqlBuilder();
+        sql.from("users").where(example);
+        Assert.assertEquals("SELECT * FROM users WHERE username = ? AND password_salt = ?", sql.sql());
+        Assert.assertEquals("[Zero, sfwerx]", Arrays.toString(sql.args()));
+    }
+
     @Test
     public void testSelectSqlArray() {
         SqlBuilder sql = new SqlBuilder();
@@ -66,4 +78,52 @@ public class SqlBuilderTest {
         Assert.assertEquals("DELETE FROM users WHERE id = ?", builder.sql());
         Assert.assertEquals(1, builder.args().length);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPreparedQuery() {
+        PreparedQuery query = PreparedQuery.builder()
+                .select("*").from("users")
+                .where("status = ?")
+                .andIf("username LIKE ?")
+                .andIf("age > ? OR age < ?")
+                .orderBy("id DESC")
+                .build();
+        Assert.assertEquals("SELECT * FROM users WHERE status = ? ORDER BY id DESC", query.sql());
+
+        Sql sql = query.binder().bind(1).bindIf(true, "Z%").bindIf(false, 12, 18).build();
+        Assert.assertEquals("SELECT * FROM users WHERE status = ? AND username LIKE ? ORDER BY id DESC", sql.sql());
+        Assert.assertEquals("[1, Z%]", Arrays.toString(sql.args()));
+
+        Sql sql2 = query.binder().bind(2).bindIf(true, "F%").bindIf(false).build();
+        Assert.assertSame(sql.sql(), sql2.sql());
+
+        Sql sql3 = query.binder().bind(1).bindIf(false).bindIf(true, 12, 18).limit(0, 20).build();
+        Assert.assertEquals("SELECT * FROM users WHERE status = ? AND (age > ? OR age < ?) ORDER BY id DESC LIMIT 0, 20", sql3.sql());
+        Assert.assertEquals("[1, 12, 18]", Arrays.toString(sql3.args()));
+    }
+
+    @Test
+    public void testDialect() {
+        SqlBuilder sql = new SqlBuilder().dialect(PostgreSQLDialect.INSTANCE);
+        sql.from("users").limit(20, 10);
+        Assert.assertEquals("SELECT * FROM users LIMIT 10 OFFSET 20", sql.sql());
+
+        Query query = new Query().select("*").from("users").limit(20, 10).dialect(PostgreSQLDialect.INSTANCE);
+        Assert.assertEquals("SELECT * FROM users LIMIT 10 OFFSET 20", query.toSql(' '));
+
+        PreparedQuery prepared = PreparedQuery.builder().select("*").from("users").where("status = ?").build();
+        Assert.assertEquals("SELECT * FROM users WHERE status = ? LIMIT 20, 10",
+                prepared.binder().bind(1).limit(20, 10).build().sql());
+        Assert.assertEquals("SELECT * FROM users WHERE status = ? LIMIT 10 OFFSET 20",
+                prepared.binder().dialect(PostgreSQLDialect.INSTANCE).bind(1).limit(20, 10).build().sql());
+        PreparedQuery pgQuery = PreparedQuery.builder().dialect(PostgreSQLDialect.INSTANCE)
+                .select("*").from("users").where("status = ?").build();
+        Assert.assertEquals("SELECT * FROM users WHERE status = ? LIMIT 10 OFFSET 20",
+                pgQuery.binder().bind(1).limit(20, 10).build().sql());
+        // 固定的分页在绑定时生成, 不依赖创建模板时的方言
+        PreparedQuery fixed = PreparedQuery.builder().select("*").from("users").where("status = ?").limit(20, 10).build();
+        Assert.assertEquals("SELECT * FROM users WHERE status = ? LIMIT 10 OFFSET 20",
+                fixed.binder().dialect(PostgreSQLDialect.INSTANCE).bind(1).build().sql());
+        Assert.assertEquals("SELECT * FROM users WHERE status = ? LIMIT 20, 10", fixed.bind(1).sql());
+    }
+}
@@ -6,8 +6,13 @@ package hwp.sqlte;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import hwp.sqlte.dialect.Dialect;
+import hwp.sqlte.dialect.Dialects;
+import hwp.sqlte.dialect.H2Dialect;
 import org.junit.*;
 
+import javax.sql.DataSource;
+import java.io.StringReader;
 import java.net.URL;
 import java.sql.*;
 import java.time.LocalDate;
@@ -15,7 +20,13 @@ import java.time.LocalDateTime;
 import java.util.Date;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
 
 /**
  * @author Zero
@@ -114,6 +125,23 @@ public class SqlConnectionTest {
         }
     }
 
+    @Test
+    public void testUpsert() {
+        User2 user = new User2("May", "may@xxx.com", "123456");
+        user.id = 123456;
+        conn.upsert(user);
+        user.username = "Zero";
+        conn.upsert(user);
+        Assert.assertEquals("Zero", conn.tryGet(User2::new, 123456).username);
+        Assert.assertEquals(1, conn.query("select * from users where id=?", 123456).rows().size());
+        try {
+            conn.upsert(new User2("May", "may@xxx.com", "123456"));
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // 主键不能为 null
+        }
+    }
+
     @Test
     public void testLoad() { // Single primary key
         User2 user = new User2("May", "may@xxx.com", "123456");
@@ -237,6 +265,433 @@ public class SqlConnectionTest {
 //        conn.query(sql -> sql.select(""));
     }
 
+    @Test
+    public void testStream() {
+        insertUser();
+        insertUser();
+        try (Stream<User> users = conn.stream(Sql.create("select * from users where username=?", "May"), User.class)) {
+            Assert.assertEquals(2, users.filter(user -> "may@xxx.com".equals(user.email)).count());
+        }
+        try (Stream<Row> rows = conn.stream(sql -> sql.select("username").from("users"))) {
+            Assert.assertEquals("May", rows.findFirst().map(row -> row.getString("username")).orElse(null));
+        }
+    }
+
+    @Test
+    public void testQueryLongs() {
+        for (int i = 1; i <= 3; i++) {
+            User user = newUser();
+            user.id = i;
+            conn.insert(user, "users");
+        }
+        long[] ids = conn.queryLongs(Sql.create("select id from users order by id"));
+        Assert.assertArrayEquals(new long[]{1, 2, 3}, ids);
+        int[] ints = conn.queryInts(Sql.create("select id from users where id > ? order by id", 1));
+        Assert.assertArrayEquals(new int[]{2, 3}, ints);
+        LongAdder sum = new LongAdder();
+        conn.queryLongs(Sql.create("select id from users"), sum::add);
+        Assert.assertEquals(6, sum.sum());
+    }
+
+    @Test
+    public void testFetchPolicy() {
+        for (int i = 0; i < 3; i++) {
+            insertUser();
+        }
+        FetchPolicy policy = FetchPolicy.streaming(2).maxRows(2);
+        SqlResultSet rs = conn.query(sql -> sql.select("*").from("users").fetch(policy));
+        Assert.assertEquals(2, rs.rows().size());
+        Counter counter = new Counter();
+        conn.query(sql -> sql.select("*").from("users").fetch(policy), row -> {
+            counter.incrementAndGet();
+            return true;
+        });
+        Assert.assertEquals(2, counter.get());
+        Assert.assertEquals(3, conn.query(sql -> sql.select("*").from("users").fetch(FetchPolicy.buffered())).rows().size());
+        Assert.assertTrue(conn.getAutoCommit());
+    }
+
+    @Test
+    public void testResultBudget() {
+        for (int i = 0; i < 5; i++) {
+            insertUser();
+        }
+        try {
+            conn.query(sql -> sql.select("*").from("users").budget(ResultBudget.ofRows(2)));
+            Assert.fail();
+        } catch (ResultTooLargeException e) {
+            //
+        }
+        try (SqlResultSet rs = conn.query(sql -> sql.select("*").from("users").budget(ResultBudget.ofRows(2).spillToDisk()))) {
+            Assert.assertEquals(5, rs.rows().size());
+            Assert.assertEquals("May", rs.first().get("username"));
+            Assert.assertEquals(5, rs.list(User.class).stream().filter(user -> "May".equals(user.username)).count());
+            // 可以多次读取, 关闭时才删除临时文件
+            Assert.assertEquals(5, rs.list(User.class).size());
+            rs.close();
+            try {
+                rs.rows().get(4);
+                Assert.fail();
+            } catch (IllegalStateException e) {
+                //
+            }
+        }
+        // 直接映射为对象时也限制行数
+        try {
+            conn.list(new SqlBuilder().select("*").from("users").budget(ResultBudget.ofRows(2)), User.class);
+            Assert.fail();
+        } catch (ResultTooLargeException e) {
+            //
+        }
+        Assert.assertEquals(5, conn.list(new SqlBuilder().select("*").from("users").budget(ResultBudget.ofRows(5)), User.class).size());
+    }
+
+    @Test
+    public void testPublish() {
+        for (int i = 0; i < 5; i++) {
+            insertUser();
+        }
+        List<User> users = new ArrayList<>();
+        QueryPublisher<User> publisher = conn.publish(Sql.create("select * from users"), User.class);
+        publisher.subscribe(new QueryPublisher.Subscriber<User>() {
+            private QueryPublisher.Subscription subscription;
+
+            @Override
+            public void onSubscribe(QueryPublisher.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(User user) {
+                users.add(user);
+                if (users.size() == 3) {
+                    subscription.cancel();
+                } else {
+                    subscription.request(1);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                Assert.fail(throwable.toString());
+            }
+
+            @Override
+            public void onComplete() {
+                Assert.fail();
+            }
+        });
+        Assert.assertEquals(3, users.size());
+        // 取消后连接可以继续使用
+        Assert.assertEquals(5, conn.query("select * from users").rows().size());
+    }
+
+    @Test
+    public void testStatementCache() {
+        Config.getConfig().setStatementCacheSize(16);
+        try (SqlConnection conn = Sql.open()) {
+            for (int i = 0; i < 10; i++) {
+                conn.executeUpdate("insert into users (email, username) values (?, ?)", "may@xxx.com", "May" + i);
+            }
+            for (int i = 0; i < 10; i++) {
+                Assert.assertEquals(1, conn.query(Sql.create("select * from users where username=?", "May" + i)).rows().size());
+            }
+            try (Stream<Row> stream = conn.stream(Sql.create("select * from users where username=?", "May0"))) {
+                // 缓存的语句正在使用, 使用新的语句
+                Assert.assertEquals(1, conn.query(Sql.create("select * from users where username=?", "May1")).rows().size());
+                Assert.assertEquals(1, stream.count());
+            }
+            StatementCacheStats stats = conn.statementCacheStats();
+            Assert.assertEquals(2, stats.getSize());
+            Assert.assertEquals(19, stats.getHitCount());
+            Assert.assertEquals(3, stats.getMissCount());
+        } finally {
+            Config.getConfig().setStatementCacheSize(0);
+        }
+        Assert.assertEquals(StatementCacheStats.EMPTY, conn.statementCacheStats());
+    }
+
+    @Test
+    public void testTemplateStatementCache() {
+        Config.getConfig().setStatementCacheSize(16);
+        try {
+            PreparedStatement[] cached = new PreparedStatement[1];
+            new SqlteTemplate().run(conn -> {
+                conn.prepareStatement("select * from users", stat -> {
+                    try {
+                        cached[0] = stat.unwrap(PreparedStatement.class);
+                    } catch (SQLException e) {
+                        throw new UncheckedSQLException(e);
+                    }
+                });
+                return null;
+            });
+            // 归还连接时关闭缓存的语句
+            Assert.assertTrue(cached[0].isClosed());
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        } finally {
+            Config.getConfig().setStatementCacheSize(0);
+        }
+    }
+
+    @Test
+    public void testTemplateExternalTransaction() {
+        long[] snapshot = new long[1];
+        // 模拟外部管理的事务: 归还连接时还没有提交, 不会调用 SqlConnection.commit()
+        SqlteTemplate template = new SqlteTemplate() {
+            @Override
+            protected Connection open(DataSource dataSource) {
+                Connection connection = super.open(dataSource);
+                try {
+                    connection.setAutoCommit(false);
+                } catch (SQLException e) {
+                    throw new UncheckedSQLException(e);
+                }
+                return connection;
+            }
+
+            @Override
+            protected void close(Connection connection) {
+                // 归还前写入过的表再失效一次
+                Assert.assertFalse(TableVersions.isCurrent(new String[]{"users"}, snapshot[0]));
+                try {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                } catch (SQLException e) {
+                    throw new UncheckedSQLException(e);
+                }
+                super.close(connection);
+            }
+        };
+        template.run(conn -> {
+            conn.executeUpdate("update users set username=? where username=?", "Zero", "none");
+            snapshot[0] = TableVersions.snapshot();
+            return null;
+        });
+    }
+
+    @Test
+    public void testStatementInvalidatesCache() {
+        long snapshot = TableVersions.snapshot();
+        conn.statement(stat -> {
+        });
+        Assert.assertFalse(TableVersions.isCurrent(new String[]{"users"}, snapshot));
+    }
+
+    @Test
+    public void testListIn() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(insertUser().id);
+        }
+        Config.getConfig().setInListBuckets(1, 4, 16);
+        try {
+            List<User> users = conn.listIn(ids, in -> new SqlBuilder().from("users")
+                    .where(where -> where.and(Condition.in("id", in))), User.class);
+            Assert.assertEquals(5, users.size());
+        } finally {
+            Config.getConfig().setInListBuckets();
+        }
+    }
+
+    @Test
+    public void testListInSplit() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(insertUser().id);
+        }
+        conn.commit();
+        // IN 列表最多 3 个值, 10 个值分成 4 条语句
+        Dialect small = new Dialect() {
+            @Override
+            public String name() {
+                return "small";
+            }
+
+            @Override
+            public void paging(StringBuilder sql, int offset, int limit) {
+                H2Dialect.INSTANCE.paging(sql, offset, limit);
+            }
+
+            @Override
+            public int maxInListSize() {
+                return 3;
+            }
+        };
+        DataSource dataSource = Sql.config().getDataSource();
+        Dialect detected = Dialects.detected(dataSource);
+        Dialects.register(dataSource, small);
+        try (SqlConnection conn2 = Sql.open()) {
+            Assert.assertSame(small, conn2.dialect());
+            AtomicInteger queries = new AtomicInteger();
+            List<User> users = conn2.listIn(ids, in -> {
+                queries.incrementAndGet();
+                Assert.assertTrue(in.length <= 3);
+                return new SqlBuilder().from("users").where(where -> where.and(Condition.in("id", in))).orderBy("id");
+            }, User.class);
+            Assert.assertEquals(4, queries.get());
+            Assert.assertEquals(ids.size(), users.size());
+            for (int i = 0; i < ids.size(); i++) {
+                Assert.assertEquals(ids.get(i), users.get(i).id);
+            }
+        } finally {
+            Dialects.register(dataSource, detected == null ? H2Dialect.INSTANCE : detected);
+        }
+    }
+
+    @Test
+    public void testCacheableTtl() throws InterruptedException {
+        // 事务中的查询结果不缓存
+        conn.setAutoCommit(true);
+        User user = insertUser();
+        SqlConnection cached = conn.cacheable(100, TimeUnit.MILLISECONDS);
+        SqlResultSet rs = cached.query("select * from users where id=?", user.id);
+        Assert.assertSame(rs, cached.query("select * from users where id=?", user.id));
+        Thread.sleep(150);
+        Assert.assertNotSame(rs, cached.query("select * from users where id=?", user.id));
+    }
+
+    @Test
+    public void testCacheInvalidation() {
+        // 事务中的查询结果不缓存
+        conn.setAutoCommit(true);
+        User user = insertUser();
+        SqlConnection cached = conn.cacheable();
+        SqlResultSet rs = cached.query("select * from users where id=?", user.id);
+        Assert.assertSame(rs, cached.query("select * from users where id=?", user.id));
+        conn.executeUpdate("update users set password=? where id=?", "new_password", user.id);
+        SqlResultSet rs2 = cached.query("select * from users where id=?", user.id);
+        Assert.assertNotSame(rs, rs2);
+        Assert.assertEquals("new_password", rs2.first().getString("password"));
+        user.password = "new_password2";
+        conn.update(user, "password");
+        Assert.assertEquals("new_password2", cached.query("select * from users where id=?", user.id).first().getString("password"));
+    }
+
+    @Test
+    public void testAsync() {
+        User user1 = insertUser();
+        User user2 = insertUser();
+        conn.commit();
+        AsyncSqlte async = new SqlteTemplate().async();
+        CompletableFuture<User> f1 = async.tryGet(User.class, user1.id);
+        CompletableFuture<User> f2 = async.tryGet(User.class, user2.id);
+        CompletableFuture<List<User>> all = async.list(new SqlBuilder().sql("select * from users order by id"), User.class);
+        CompletableFuture<Long> count = async.selectCount("users", new Where());
+        CompletableFuture.allOf(f1, f2, all, count).join();
+        Assert.assertEquals(user1.id, f1.join().id);
+        Assert.assertEquals(user2.id, f2.join().id);
+        Assert.assertEquals(2, all.join().size());
+        Assert.assertEquals(2L, (long) count.join());
+
+        // 异常通过 CompletableFuture 传出
+        CompletableFuture<User> missing = async.mustGet(User.class, -1);
+        CompletableFuture<SqlResultSet> bad = async.query("select * from no_such_table");
+        try {
+            missing.join();
+            Assert.fail();
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof NotFoundException);
+        }
+        try {
+            bad.join();
+            Assert.fail();
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof UncheckedSQLException);
+        }
+        Assert.assertTrue(missing.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testAsyncExecutor() {
+        User user = insertUser();
+        conn.commit();
+        AtomicInteger tasks = new AtomicInteger();
+        Executor executor = command -> {
+            tasks.incrementAndGet();
+            new Thread(command, "custom-async").start();
+        };
+        Config.getConfig().setAsyncExecutor(executor);
+        try {
+            Assert.assertSame(executor, Config.getConfig().getAsyncExecutor());
+            SqlteTemplate template = new SqlteTemplate();
+            String thread = template.async().run(conn -> Thread.currentThread().getName()).join();
+            Assert.assertEquals("custom-async", thread);
+            Assert.assertEquals(user.id, template.async().tryGet(User.class, user.id).join().id);
+            Assert.assertEquals(2, tasks.get());
+        } finally {
+            Config.getConfig().setAsyncExecutor(null);
+        }
+        Assert.assertNotSame(executor, Config.getConfig().getAsyncExecutor());
+        AtomicInteger direct = new AtomicInteger();
+        new SqlteTemplate().async(command -> {
+            direct.incrementAndGet();
+            command.run();
+        }).selectCount("users", new Where()).join();
+        Assert.assertEquals(1, direct.get());
+    }
+
+    @Test
+    public void testCacheUncommitted() {
+        User user = insertUser();
+        conn.commit();
+        String sql = "select * from users where id=?";
+        conn.executeUpdate("update users set password=? where id=?", "uncommitted", user.id);
+        Assert.assertEquals("uncommitted", conn.cacheable().query(sql, user.id).first().getString("password"));
+        try (SqlConnection conn2 = Sql.open()) {
+            Assert.assertEquals("123456", conn2.cacheable().query(sql, user.id).first().getString("password"));
+            conn.rollback();
+            Assert.assertEquals("123456", conn2.cacheable().query(sql, user.id).first().getString("password"));
+        }
+    }
+
+    @Test
+    public void testExecuteSqlScript() {
+        StringBuilder script = new StringBuilder("CREATE TABLE script_test (id INT, name VARCHAR(20));\n");
+        for (int i = 0; i < 25; i++) {
+            script.append("INSERT INTO script_test VALUES (").append(i).append(", 'a;''").append(i).append("');\n");
+        }
+        List<ScriptRunner.Progress> progresses = new ArrayList<>();
+        ScriptRunner runner = new ScriptRunner(true, false).setBatchSize(10).setCommitInterval(10)
+                .setProgressListener(10, progresses::add);
+        try {
+            conn.executeSqlScript(new StringReader(script.toString()), runner);
+            Assert.assertEquals(25L, (long) conn.query("SELECT COUNT(*) FROM script_test").first(Long.class));
+            Assert.assertEquals("a;'7", conn.query("SELECT name FROM script_test WHERE id = 7").first(String.class));
+            ScriptRunner.Progress last = progresses.get(progresses.size() - 1);
+            Assert.assertTrue(last.isFinished());
+            Assert.assertEquals(26, last.getStatements());
+            Assert.assertEquals(3, last.getBatches());
+        } finally {
+            conn.executeUpdate("DROP TABLE script_test");
+        }
+    }
+
+    @Test
+    public void testExecuteSqlScriptBackslash() {
+        String script = "CREATE TABLE script_test (id INT, name VARCHAR(20));\n"
+                + "INSERT INTO script_test VALUES (1, 'C:\\');\n"
+                + "INSERT INTO script_test VALUES (2, 'a;b');\n";
+        try {
+            conn.executeSqlScript(new StringReader(script), new ScriptRunner(true, false));
+            Assert.assertEquals("C:\\", conn.query("SELECT name FROM script_test WHERE id = 1").first(String.class));
+            Assert.assertEquals("a;b", conn.query("SELECT name FROM script_test WHERE id = 2").first(String.class));
+        } finally {
+            conn.executeUpdate("DROP TABLE script_test");
+        }
+    }
+
+    @Test
+    public void testList() {
+        insertUser();
+        List<User> users = conn.list(Sql.create("select * from users where username=?", "May"), User.class);
+        Assert.assertEquals(1, users.size());
+        Assert.assertEquals("may@xxx.com", users.get(0).email);
+        Assert.assertEquals("***", users.get(0).password_salt);
+    }
+
     @Test
     public void testQueryResultSet() {
         conn.query(Sql.create("select * from users where username=?", "Frank"), rs -> {
@@ -42,4 +42,11 @@ public class SqlProviderTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    public void test3() {
+        Assert.assertEquals("SELECT * FROM users WHERE username=? and password=?", sqlProvider.resolve("#user.login"));
+        Assert.assertEquals("SELECT 1", sqlProvider.resolve("SELECT 1"));
+        Assert.assertNull(sqlProvider.getSql("user.not-exists"));
+    }
+
+}
@@ -0,0 +1,48 @@
+package hwp.sqlte;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public class TableVersionsTest {
+
+    @Test
+    public void testTablesOf() {
+        assertTables("select * from users where id=?", "users");
+        assertTables("SELECT u.*, o.id FROM public.\"Users\" u JOIN orders o ON o.uid=u.id LEFT JOIN items AS i ON i.x=o.y",
+                "users", "orders", "items");
+        assertTables("select * from a, b x, c as y where a.id=b.id", "a", "b", "c");
+        assertTables("insert into t_user(name) values(?)", "t_user");
+        assertTables("UPDATE users SET name=? WHERE id IN (select uid from bans)", "users", "bans");
+        assertTables("delete from `users` where id=?", "users");
+        assertTables("select 'from a' from b -- from c\n", "b");
+        assertTables("select 1");
+    }
+
+    @Test
+    public void testBump() {
+        long version = TableVersions.snapshot();
+        String[] tables = TableVersions.tablesOf("select * from version_test");
+        Assert.assertTrue(TableVersions.isCurrent(tables, version));
+        TableVersions.bump("other_table");
+        Assert.assertTrue(TableVersions.isCurrent(tables, version));
+        TableVersions.bump("PUBLIC.VERSION_TEST");
+        Assert.assertFalse(TableVersions.isCurrent(tables, version));
+        Assert.assertTrue(TableVersions.isCurrent(tables, TableVersions.snapshot()));
+        version = TableVersions.snapshot();
+        TableVersions.bumpAll();
+        Assert.assertFalse(TableVersions.isCurrent(tables, version));
+    }
+
+    private static void assertTables(String sql, String... tables) {
+        Set<String> expected = new HashSet<>(Arrays.asList(tables));
+        Assert.assertEquals(expected, new HashSet<>(Arrays.asList(TableVersions.tablesOf(sql))));
+    }
+}
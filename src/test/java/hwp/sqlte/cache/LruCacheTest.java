@@ -12,6 +12,8 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * @author Zero
  * Created on 2020/12/22.
@@ -60,4 +62,13 @@ public class LruCacheTest {
         Assert.assertNull(cache.get("a"));
         Assert.assertNull(cache.get("b"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void ttl() throws InterruptedException {
+        cache.put("c", "C", 50, TimeUnit.MILLISECONDS);
+        Assert.assertEquals("C", cache.get("c"));
+        Thread.sleep(80);
+        Assert.assertNull(cache.get("c"));
+        Assert.assertEquals("B", cache.get("b"));
+    }
+}
@@ -0,0 +1,117 @@
+package hwp.sqlte.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public class SingleFlightTest {
+    private final SingleFlight<String, String> flight = new SingleFlight<>();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void load() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<String>> futures = loadConcurrently(() -> {
+            loads.incrementAndGet();
+            await(release);
+            return "v";
+        });
+        release.countDown();
+        for (Future<String> future : futures) {
+            Assert.assertEquals("v", future.get(10, TimeUnit.SECONDS));
+        }
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    public void failure() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<String>> futures = loadConcurrently(() -> {
+            loads.incrementAndGet();
+            await(release);
+            throw new IllegalStateException("failed");
+        });
+        release.countDown();
+        for (Future<String> future : futures) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+        Assert.assertEquals(1, loads.get());
+        // 失败不会被记住
+        Assert.assertEquals("v", flight.load("k", () -> "v"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void recursive() {
+        flight.load("k", () -> flight.load("k", () -> "v"));
+    }
+
+    @Test
+    public void cacheGet() throws Exception {
+        Cache<String> cache = new LruCache<>(10);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(() -> cache.get("k", () -> {
+                loads.incrementAndGet();
+                await(release);
+                return "v";
+            })));
+        }
+        waitInFlight(SingleFlight.CACHES);
+        release.countDown();
+        for (Future<String> future : futures) {
+            Assert.assertEquals("v", future.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals("v", cache.get("k"));
+    }
+
+    private List<Future<String>> loadConcurrently(Supplier<String> loader) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(() -> flight.load("k", loader)));
+        }
+        executor.shutdown();
+        waitInFlight(flight);
+        return futures;
+    }
+
+    private static void waitInFlight(SingleFlight<?, ?> flight) throws InterruptedException {
+        // 等第一个调用开始加载, 其余的调用很快就会开始等待
+        while (flight.inFlight() == 0) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(100);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
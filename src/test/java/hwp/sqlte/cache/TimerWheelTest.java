@@ -0,0 +1,58 @@
+package hwp.sqlte.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public class TimerWheelTest {
+
+    private final List<Object> expired = new ArrayList<>();
+
+    @Test
+    public void advance() {
+        long start = 1L << 40;
+        TimerWheel<String> wheel = new TimerWheel<>(start);
+        long[] delays = {TimeUnit.MILLISECONDS.toNanos(500), TimeUnit.SECONDS.toNanos(30), TimeUnit.MINUTES.toNanos(30),
+                TimeUnit.HOURS.toNanos(5), TimeUnit.DAYS.toNanos(3), TimeUnit.DAYS.toNanos(30)};
+        for (int i = 0; i < delays.length; i++) {
+            TinyLfuCache.Node<String> node = new TinyLfuCache.Node<>(i, "v");
+            node.writeExpiresAt = start + delays[i];
+            wheel.schedule(node, node.writeExpiresAt);
+        }
+        for (int i = 0; i < delays.length; i++) {
+            long now = start + delays[i];
+            // 到期之前不会被移除
+            wheel.advance(now - TimeUnit.SECONDS.toNanos(2), node -> expire(wheel, node, now - TimeUnit.SECONDS.toNanos(2)));
+            Assert.assertEquals(i, expired.size());
+            wheel.advance(now + TimeUnit.SECONDS.toNanos(2), node -> expire(wheel, node, now + TimeUnit.SECONDS.toNanos(2)));
+            Assert.assertEquals(i + 1, expired.size());
+            Assert.assertEquals(i, expired.get(i));
+        }
+    }
+
+    @Test
+    public void deschedule() {
+        TimerWheel<String> wheel = new TimerWheel<>(0);
+        TinyLfuCache.Node<String> node = new TinyLfuCache.Node<>("a", "v");
+        node.writeExpiresAt = TimeUnit.SECONDS.toNanos(10);
+        wheel.schedule(node, node.writeExpiresAt);
+        wheel.deschedule(node);
+        wheel.advance(TimeUnit.SECONDS.toNanos(20), node2 -> expire(wheel, node2, TimeUnit.SECONDS.toNanos(20)));
+        Assert.assertTrue(expired.isEmpty());
+    }
+
+    private void expire(TimerWheel<String> wheel, TinyLfuCache.Node<String> node, long now) {
+        if (now - node.writeExpiresAt >= 0) {
+            expired.add(node.key);
+        } else {
+            wheel.schedule(node, node.writeExpiresAt);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package hwp.sqlte.cache;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public class TinyLfuCacheTest {
+    private final TinyLfuCache<String> cache = new TinyLfuCache<>(100);
+
+    @Before
+    public void init() {
+        cache.put("a", "A");
+        cache.put("b", "B");
+    }
+
+    @Test
+    public void get() {
+        Assert.assertEquals("A", cache.get("a"));
+        Assert.assertNull(cache.get("c"));
+        cache.put("a", "A2");
+        Assert.assertEquals("A2", cache.get("a"));
+    }
+
+    @Test
+    public void maxSize() {
+        for (int i = 0; i < 1000; i++) {
+            cache.put("k" + i, "v");
+        }
+        Assert.assertEquals(100, cache.estimatedSize());
+    }
+
+    @Test
+    public void scanResistant() {
+        for (int i = 0; i < 50; i++) {
+            cache.put("hot" + i, "v");
+        }
+        for (int n = 0; n < 10; n++) {
+            for (int i = 0; i < 50; i++) {
+                cache.get("hot" + i);
+            }
+        }
+        cache.cleanUp();
+        for (int i = 0; i < 10000; i++) {
+            cache.put("scan" + i, "v");
+        }
+        int hits = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.get("hot" + i) != null) {
+                hits++;
+            }
+        }
+        Assert.assertTrue(hits >= 45);
+    }
+
+    @Test
+    public void remove() {
+        cache.remove("a");
+        Assert.assertNull(cache.get("a"));
+        Assert.assertNotNull(cache.get("b"));
+        cache.put("c", null);
+        Assert.assertNull(cache.get("c"));
+    }
+
+    @Test
+    public void clear() {
+        cache.clear();
+        Assert.assertNull(cache.get("a"));
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals(0, cache.estimatedSize());
+    }
+
+    @Test
+    public void expireAfterWrite() throws InterruptedException {
+        TinyLfuCache<String> cache = new TinyLfuCache<>(100, 50, 0, TimeUnit.MILLISECONDS);
+        cache.put("a", "A");
+        Assert.assertEquals("A", cache.get("a"));
+        Thread.sleep(80);
+        Assert.assertNull(cache.get("a"));
+        cache.put("a", "A2");
+        Assert.assertEquals("A2", cache.get("a"));
+    }
+
+    @Test
+    public void expireAfterAccess() throws InterruptedException {
+        TinyLfuCache<String> cache = new TinyLfuCache<>(100, 0, 100, TimeUnit.MILLISECONDS);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(40);
+            Assert.assertEquals("A", cache.get("a"));
+        }
+        Assert.assertNull(cache.get("b"));
+    }
+
+    @Test
+    public void ttl() throws InterruptedException {
+        cache.put("c", "C", 50, TimeUnit.MILLISECONDS);
+        Thread.sleep(80);
+        Assert.assertNull(cache.get("c"));
+        Assert.assertEquals("A", cache.get("a"));
+    }
+
+    @Test
+    public void expiredRemoved() throws InterruptedException {
+        for (int i = 0; i < 10; i++) {
+            cache.put("k" + i, "v", 10, TimeUnit.MILLISECONDS);
+        }
+        Assert.assertEquals(12, cache.estimatedSize());
+        // 最小的槽位约 1.07 秒
+        Thread.sleep(2200);
+        cache.cleanUp();
+        Assert.assertEquals(2, cache.estimatedSize());
+    }
+
+    @Test
+    public void weighted() {
+        TinyLfuCache<String> cache = TinyLfuCache.<String>builder().maximumWeight(100, (key, value) -> value.length()).build();
+        for (int i = 0; i < 50; i++) {
+            cache.put("k" + i, "0123456789");
+        }
+        Assert.assertEquals(10, cache.estimatedSize());
+        Assert.assertEquals(100, cache.weightedSize());
+        cache.put("k49", "01");
+        Assert.assertTrue(cache.weightedSize() <= 100);
+    }
+
+    @Test
+    public void oversized() {
+        TinyLfuCache<String> cache = TinyLfuCache.<String>builder().maximumWeight(100, (key, value) -> value.length())
+                .maximumEntryWeight(10).build();
+        cache.put("a", "0123456789");
+        Assert.assertEquals("0123456789", cache.get("a"));
+        cache.put("a", "0123456789a");
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals(0, cache.weightedSize());
+    }
+
+    @Test
+    public void concurrent() throws Exception {
+        TinyLfuCache<Integer> cache = new TinyLfuCache<>(500);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 100000; i++) {
+                    int key = random.nextInt(1000);
+                    Integer value = cache.get(key);
+                    if (value == null) {
+                        cache.put(key, key);
+                    } else {
+                        Assert.assertEquals(key, value.intValue());
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+        Assert.assertTrue(cache.estimatedSize() <= 500);
+    }
+}
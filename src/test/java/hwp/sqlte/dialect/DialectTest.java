@@ -0,0 +1,53 @@
+package hwp.sqlte.dialect;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Zero
+ * Created on 2026/10/18.
+ */
+public class DialectTest {
+
+    @Test
+    public void detect() {
+        Assert.assertSame(MySQLDialect.INSTANCE, Dialects.detect("MySQL"));
+        Assert.assertSame(MySQLDialect.INSTANCE, Dialects.detect("MariaDB"));
+        Assert.assertSame(PostgreSQLDialect.INSTANCE, Dialects.detect("PostgreSQL"));
+        Assert.assertSame(H2Dialect.INSTANCE, Dialects.detect("H2"));
+        Assert.assertSame(H2Dialect.INSTANCE, Dialects.detect("H2 JDBC Driver"));
+        Assert.assertSame(SQLiteDialect.INSTANCE, Dialects.detect("SQLite"));
+        Assert.assertSame(GenericDialect.INSTANCE, Dialects.detect("Oracle"));
+    }
+
+    @Test
+    public void paging() {
+        StringBuilder sql = new StringBuilder();
+        MySQLDialect.INSTANCE.paging(sql, 20, 10);
+        Assert.assertEquals("LIMIT 20, 10", sql.toString());
+        sql.setLength(0);
+        PostgreSQLDialect.INSTANCE.paging(sql, 20, 10);
+        Assert.assertEquals("LIMIT 10 OFFSET 20", sql.toString());
+    }
+
+    @Test
+    public void upsert() {
+        String[] columns = {"id", "name", "email"};
+        String[] keys = {"id"};
+        Assert.assertEquals("INSERT INTO users(id, name, email) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE name=VALUES(name), email=VALUES(email)",
+                MySQLDialect.INSTANCE.upsert("users", columns, keys));
+        Assert.assertEquals("INSERT INTO users(id, name, email) VALUES (?, ?, ?) ON CONFLICT (id) DO UPDATE SET name=EXCLUDED.name, email=EXCLUDED.email",
+                PostgreSQLDialect.INSTANCE.upsert("users", columns, keys));
+        Assert.assertEquals("MERGE INTO users(id, name, email) KEY(id) VALUES (?, ?, ?)",
+                H2Dialect.INSTANCE.upsert("users", columns, keys));
+        Assert.assertEquals("INSERT INTO users(id) VALUES (?) ON CONFLICT (id) DO NOTHING",
+                SQLiteDialect.INSTANCE.upsert("users", keys, keys));
+    }
+
+    @Test
+    public void maxInsertRows() {
+        Assert.assertEquals(1000, MySQLDialect.INSTANCE.maxInsertRows(3));
+        Assert.assertEquals(99, SQLiteDialect.INSTANCE.maxInsertRows(10));
+    }
+
+}
@@ -21,4 +21,8 @@ FROM
 	orders
 LEFT JOIN users ON orders.user_id = users.id
 WHERE
-	users.username = ?
\ No newline at end of file
+	users.username = ?
+
+-- eg. conn.query(Sql.named("#login-named", user))
+-- #login-named
+SELECT * FROM users WHERE username=:username and password=:password